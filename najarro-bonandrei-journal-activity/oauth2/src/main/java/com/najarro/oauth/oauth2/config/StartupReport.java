@@ -0,0 +1,75 @@
+package com.najarro.oauth.oauth2.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aot.AotDetector;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.NativeDetector;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Logs one line with the startup time and resident memory once the application is ready, so
+ * the plain jar can be compared with the AOT, CDS and native builds (see ../startup-report.sh).
+ * Only active with {@code startup.report.enabled=true}; with {@code startup.report.exit=true} the
+ * application stops right after logging it. For the AOT and native builds the flag has to be set
+ * when they are built, which the startup-report profile does.
+ */
+@Component
+@ConditionalOnProperty(prefix = "startup.report", name = "enabled", havingValue = "true")
+public class StartupReport implements ApplicationListener<ApplicationReadyEvent> {
+
+  private static final Logger log = LoggerFactory.getLogger(StartupReport.class);
+
+  private final Environment environment;
+
+  public StartupReport(Environment environment) {
+    this.environment = environment;
+  }
+
+  @Override
+  public void onApplicationEvent(ApplicationReadyEvent event) {
+    log.info("Startup report: ready in {} ms, RSS {} MB (peak {} MB), mode {}",
+        event.getTimeTaken().toMillis(), memory("VmRSS"), memory("VmHWM"), mode());
+    if (environment.getProperty("startup.report.exit", Boolean.class, false)) {
+      System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+  }
+
+  private static String mode() {
+    if (NativeDetector.inNativeImage()) {
+      return "native";
+    }
+    List<String> arguments = ManagementFactory.getRuntimeMXBean().getInputArguments();
+    boolean cds = arguments.stream().anyMatch(argument -> argument.startsWith("-XX:SharedArchiveFile"));
+    String mode = AotDetector.useGeneratedArtifacts() ? "jvm+aot" : "jvm";
+    return cds ? mode + "+cds" : mode;
+  }
+
+  /**
+   * @param field A /proc/self/status field, in kB there.
+   * @return The value in MB, or "n/a" where there is no /proc.
+   */
+  private static String memory(String field) {
+    try {
+      for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+        if (line.startsWith(field + ":")) {
+          long kilobytes = Long.parseLong(line.substring(field.length() + 1).replace("kB", "").trim());
+          return String.valueOf(kilobytes / 1024);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // Not on Linux
+    }
+    return "n/a";
+  }
+}
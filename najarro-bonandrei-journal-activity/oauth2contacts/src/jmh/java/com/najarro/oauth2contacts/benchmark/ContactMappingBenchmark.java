@@ -0,0 +1,61 @@
+package com.najarro.oauth2contacts.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.najarro.oauth2contacts.model.Contact;
+import com.najarro.oauth2contacts.service.ConnectionsPage;
+import com.najarro.oauth2contacts.service.ContactMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of mapping People API responses to {@link Contact}s via {@link ContactMapper}.
+ * The payload is already in memory, so this isolates parsing and mapping from network I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContactMappingBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int contacts;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private byte[] connectionsResponse;
+    private byte[] personResponse;
+
+    @Setup
+    public void setUp() {
+        connectionsResponse = PeoplePayloads.connectionsResponse(contacts);
+        personResponse = PeoplePayloads.personResponse();
+    }
+
+    @Benchmark
+    public ConnectionsPage readConnectionsPage() throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(connectionsResponse)) {
+            return ContactMapper.readConnectionsPage(parser);
+        }
+    }
+
+    @Benchmark
+    public Contact mapApiToContact() throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(personResponse)) {
+            return ContactMapper.mapApiToContact(parser);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.najarro.oauth2contacts.benchmark;
+
+import com.najarro.oauth2contacts.model.Contact;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Contact#getFullName()} is called once per row when contacts.html is rendered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContactModelBenchmark {
+
+    @Param({"both", "firstOnly", "none"})
+    private String names;
+
+    private Contact contact;
+
+    @Setup
+    public void setUp() {
+        contact = PeoplePayloads.contact(3);
+        if (!"both".equals(names)) {
+            contact.setLastName(null);
+        }
+        if ("none".equals(names)) {
+            contact.setFirstName(null);
+        }
+    }
+
+    @Benchmark
+    public String getFullName() {
+        return contact.getFullName();
+    }
+}
@@ -0,0 +1,50 @@
+package com.najarro.oauth2contacts.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.najarro.oauth2contacts.model.Contact;
+import com.najarro.oauth2contacts.service.ContactPayloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the createContact/updateContact request body in saveContact:
+ * the Person map construction on its own, and together with JSON serialization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContactPayloadBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Contact contact;
+
+    @Setup
+    public void setUp() {
+        contact = PeoplePayloads.contact(7);
+    }
+
+    @Benchmark
+    public Map<String, Object> toPerson() {
+        return ContactPayloads.toPerson(contact);
+    }
+
+    @Benchmark
+    public String toPersonJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(ContactPayloads.toPerson(contact));
+    }
+}
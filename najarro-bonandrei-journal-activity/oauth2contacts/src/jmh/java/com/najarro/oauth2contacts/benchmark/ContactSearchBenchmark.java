@@ -0,0 +1,52 @@
+package com.najarro.oauth2contacts.benchmark;
+
+import com.najarro.oauth2contacts.model.Contact;
+import com.najarro.oauth2contacts.service.ContactSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of /contacts/search against one user's indexed snapshot: a narrow prefix, a name shared
+ * by an eighth of the contacts, a phone number fragment and a typo that needs the fuzzy fallback.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContactSearchBenchmark {
+
+    @Param({"1000", "10000"})
+    private int contacts;
+
+    @Param({"ada42", "hopper", "555 0142", "dijsktra"})
+    private String query;
+
+    private ContactSnapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        snapshot = new ContactSnapshot();
+        for (int i = 0; i < contacts; i++) {
+            snapshot.put(PeoplePayloads.contact(i));
+        }
+    }
+
+    @Benchmark
+    public List<Contact> search() {
+        return snapshot.search(query);
+    }
+}
@@ -0,0 +1,96 @@
+package com.najarro.oauth2contacts.benchmark;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic People API payloads shaped like real people/me/connections responses,
+ * including the metadata and source blocks Google returns alongside the fields we read.
+ */
+final class PeoplePayloads {
+
+    private static final String[] FIRST_NAMES = {"Ada", "Grace", "Alan", "Linus", "Barbara", "Dennis", "Edsger", "Margaret"};
+    private static final String[] LAST_NAMES = {"Lovelace", "Hopper", "Turing", "Torvalds", "Liskov", "Ritchie", "Dijkstra", "Hamilton"};
+
+    private PeoplePayloads() {
+    }
+
+    static byte[] connectionsResponse(int count) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder(count * 700);
+        json.append("{\"connections\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendPerson(json, i, random);
+        }
+        json.append("],\"nextPageToken\":\"CAEQ0AsaBAgAEAE\",\"totalPeople\":").append(count)
+                .append(",\"totalItems\":").append(count).append('}');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] personResponse() {
+        StringBuilder json = new StringBuilder(700);
+        appendPerson(json, 1, new Random(42));
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static Contact contact(int index) {
+        Random random = new Random(index);
+        Contact contact = new Contact();
+        contact.setResourceName("people/c" + (1_000_000L + index));
+        contact.setEtag("%EgUBAgMuNxoEAQIFByIMbjJrTFBQbXlaRmc9");
+        contact.setFirstName(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+        contact.setLastName(LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+
+        List<Contact.EmailAddress> emails = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Contact.EmailAddress email = new Contact.EmailAddress();
+            email.setValue(contact.getFirstName().toLowerCase() + index + "@example" + i + ".com");
+            email.setType(i == 0 ? "home" : "work");
+            emails.add(email);
+        }
+        contact.setEmailAddresses(emails);
+
+        Contact.PhoneNumber phone = new Contact.PhoneNumber();
+        phone.setValue("+1 555 01" + String.format("%02d", index % 100));
+        phone.setType("mobile");
+        contact.setPhoneNumbers(List.of(phone));
+        return contact;
+    }
+
+    private static void appendPerson(StringBuilder json, int index, Random random) {
+        String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        String source = "{\"primary\":true,\"source\":{\"type\":\"CONTACT\",\"id\":\"" + Long.toHexString(index) + "\"}}";
+        json.append("{\"resourceName\":\"people/c").append(1_000_000L + index)
+                .append("\",\"etag\":\"%EgUBAgMuNxoEAQIFByIMbjJrTFBQbXlaRmc9\"")
+                .append(",\"metadata\":{\"sources\":[{\"type\":\"CONTACT\",\"id\":\"").append(Long.toHexString(index))
+                .append("\",\"etag\":\"#n2kLPPmyZFg=\",\"updateTime\":\"2025-06-13T08:00:00.000Z\"}],\"objectType\":\"PERSON\"}")
+                .append(",\"names\":[{\"metadata\":").append(source)
+                .append(",\"displayName\":\"").append(first).append(' ').append(last)
+                .append("\",\"familyName\":\"").append(last)
+                .append("\",\"givenName\":\"").append(first)
+                .append("\",\"displayNameLastFirst\":\"").append(last).append(", ").append(first)
+                .append("\",\"unstructuredName\":\"").append(first).append(' ').append(last).append("\"}]")
+                .append(",\"emailAddresses\":[");
+        int emails = 1 + random.nextInt(3);
+        for (int i = 0; i < emails; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"metadata\":").append(source)
+                    .append(",\"value\":\"").append(first.toLowerCase()).append(index).append("@example").append(i).append(".com\"")
+                    .append(",\"type\":\"home\",\"formattedType\":\"Home\"}");
+        }
+        json.append("],\"phoneNumbers\":[{\"metadata\":").append(source)
+                .append(",\"value\":\"+1 555 01").append(String.format("%02d", index % 100))
+                .append("\",\"canonicalForm\":\"+155501").append(String.format("%02d", index % 100))
+                .append("\",\"type\":\"mobile\",\"formattedType\":\"Mobile\"}]}");
+    }
+}
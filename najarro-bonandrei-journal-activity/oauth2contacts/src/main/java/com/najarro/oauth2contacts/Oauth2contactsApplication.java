@@ -1,9 +1,12 @@
 package com.najarro.oauth2contacts;
 
+import com.najarro.oauth2contacts.config.ContactsRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(ContactsRuntimeHints.class)
 public class Oauth2contactsApplication {
 
 	public static void main(String[] args) {
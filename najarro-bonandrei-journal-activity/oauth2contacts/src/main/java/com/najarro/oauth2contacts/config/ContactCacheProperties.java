@@ -0,0 +1,63 @@
+package com.najarro.oauth2contacts.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Sizing and freshness settings for the per-user contact cache.
+ * Bound from the {@code contacts.cache.*} keys in application.properties.
+ */
+@ConfigurationProperties(prefix = "contacts.cache")
+public class ContactCacheProperties {
+
+  private int maxUsers = 500;
+  private int maxPersons = 2000;
+  private Duration ttl = Duration.ofMinutes(30);
+  private Duration syncInterval = Duration.ofSeconds(30);
+
+  /**
+   * Maximum number of users kept in the cache; the least recently used one is evicted beyond this.
+   */
+  public int getMaxUsers() {
+    return maxUsers;
+  }
+
+  public void setMaxUsers(int maxUsers) {
+    this.maxUsers = maxUsers;
+  }
+
+  /**
+   * Maximum number of individually cached people (see {@code PersonCache}) across all users.
+   */
+  public int getMaxPersons() {
+    return maxPersons;
+  }
+
+  public void setMaxPersons(int maxPersons) {
+    this.maxPersons = maxPersons;
+  }
+
+  /**
+   * How long a user's contacts are kept after their last access.
+   */
+  public Duration getTtl() {
+    return ttl;
+  }
+
+  public void setTtl(Duration ttl) {
+    this.ttl = ttl;
+  }
+
+  /**
+   * How long cached contacts are served without asking Google for changes.
+   * Once this has elapsed the next read runs an incremental sync with the stored syncToken.
+   */
+  public Duration getSyncInterval() {
+    return syncInterval;
+  }
+
+  public void setSyncInterval(Duration syncInterval) {
+    this.syncInterval = syncInterval;
+  }
+}
@@ -0,0 +1,54 @@
+package com.najarro.oauth2contacts.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the background sync that keeps signed-in users' contacts warm.
+ * Bound from the {@code contacts.sync.*} keys in application.properties; how often each user is
+ * synced is {@code contacts.cache.sync-interval}.
+ */
+@ConfigurationProperties(prefix = "contacts.sync")
+public class ContactSyncProperties {
+
+  private boolean enabled = true;
+  private int threads = 2;
+  private Duration tick = Duration.ofSeconds(1);
+
+  /**
+   * Whether users with a live session are synced in the background. While on, /contacts serves the
+   * cached copy as is and only goes to the People API on a cold cache; while off, it syncs inline
+   * once the copy is due for it.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Maximum number of users synced at the same time. Users that are due beyond that wait for a
+   * free worker, which shows up as scheduler lag.
+   */
+  public int getThreads() {
+    return Math.max(1, threads);
+  }
+
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
+  /**
+   * How often the scheduler looks for users that are due.
+   */
+  public Duration getTick() {
+    return tick;
+  }
+
+  public void setTick(Duration tick) {
+    this.tick = tick;
+  }
+}
@@ -0,0 +1,35 @@
+package com.najarro.oauth2contacts.config;
+
+import com.najarro.oauth2contacts.model.Contact;
+import com.najarro.oauth2contacts.service.BatchResult;
+import com.najarro.oauth2contacts.service.ContactDelta;
+import com.najarro.oauth2contacts.service.ContactPage;
+import com.najarro.oauth2contacts.service.ContactSort;
+import com.najarro.oauth2contacts.service.DuplicateGroup;
+import com.najarro.oauth2contacts.service.ImportProgress;
+import com.najarro.oauth2contacts.service.SearchPage;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Reflection and resource hints for the native image ({@code mvn -Pnative native:compile}).
+ * The Thymeleaf templates read the model through SpEL ({@code ${contact.fullName}},
+ * {@code ${page.hasNext}}, ...) and the contact form binds request parameters into
+ * {@link Contact} and its nested email addresses and phone numbers, both by reflection on the
+ * getters and setters, which the AOT processing can't see. The same types are written as JSON by
+ * the paging, search, duplicates, import progress and event endpoints.
+ */
+public class ContactsRuntimeHints implements RuntimeHintsRegistrar {
+
+  private final BindingReflectionHintsRegistrar bindingHints = new BindingReflectionHintsRegistrar();
+
+  @Override
+  public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+    // Walks the properties, so the nested EmailAddress, PhoneNumber and Name types are included
+    bindingHints.registerReflectionHints(hints.reflection(),
+        Contact.class, ContactPage.class, SearchPage.class, ContactSort.class, ImportProgress.class,
+        ContactDelta.class, BatchResult.class, DuplicateGroup.class);
+    hints.resources().registerPattern("templates/*.html");
+  }
+}
@@ -0,0 +1,51 @@
+package com.najarro.oauth2contacts.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for finding duplicate contacts on /contacts/duplicates.
+ * Bound from the {@code contacts.duplicates.*} keys in application.properties.
+ */
+@ConfigurationProperties(prefix = "contacts.duplicates")
+public class DuplicateProperties {
+
+  private String defaultCountryCode = "1";
+  private double nameSimilarity = 0.88;
+  private int maxBlockSize = 200;
+
+  /**
+   * Calling code (without the +) assumed for phone numbers stored without one, so that
+   * "(555) 555-1234" and "+1 555 555 1234" compare equal.
+   */
+  public String getDefaultCountryCode() {
+    return defaultCountryCode;
+  }
+
+  public void setDefaultCountryCode(String defaultCountryCode) {
+    this.defaultCountryCode = defaultCountryCode;
+  }
+
+  /**
+   * Jaro-Winkler similarity, between 0 and 1, that both the first and the last name of two
+   * contacts must reach for them to count as duplicates by name alone.
+   */
+  public double getNameSimilarity() {
+    return nameSimilarity;
+  }
+
+  public void setNameSimilarity(double nameSimilarity) {
+    this.nameSimilarity = nameSimilarity;
+  }
+
+  /**
+   * Largest group of similarly named contacts whose names are compared pair by pair. Larger
+   * groups (a very common name) are only matched on exact names, emails and phone numbers.
+   */
+  public int getMaxBlockSize() {
+    return Math.max(2, maxBlockSize);
+  }
+
+  public void setMaxBlockSize(int maxBlockSize) {
+    this.maxBlockSize = maxBlockSize;
+  }
+}
@@ -0,0 +1,144 @@
+package com.najarro.oauth2contacts.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Rate limiting, retry and circuit breaker settings for People API calls.
+ * Bound from the {@code contacts.governor.*} keys in application.properties.
+ */
+@ConfigurationProperties(prefix = "contacts.governor")
+public class GovernorProperties {
+
+  private double userRequestsPerMinute = 90;
+  private int userBurst = 10;
+  private int maxUsers = 10_000;
+  private double globalRequestsPerMinute = 3000;
+  private int globalBurst = 100;
+  private Duration maxWait = Duration.ofSeconds(5);
+  private int maxRetries = 3;
+  private Duration initialBackoff = Duration.ofMillis(500);
+  private Duration maxBackoff = Duration.ofSeconds(30);
+  private int failureThreshold = 5;
+  private Duration openDuration = Duration.ofSeconds(30);
+
+  /**
+   * Sustained rate allowed per user; Google's default per-user read quota is 90 a minute.
+   */
+  public double getUserRequestsPerMinute() {
+    return userRequestsPerMinute;
+  }
+
+  public void setUserRequestsPerMinute(double userRequestsPerMinute) {
+    this.userRequestsPerMinute = userRequestsPerMinute;
+  }
+
+  /**
+   * How many requests a user may make back to back before the sustained rate applies.
+   */
+  public int getUserBurst() {
+    return userBurst;
+  }
+
+  public void setUserBurst(int userBurst) {
+    this.userBurst = userBurst;
+  }
+
+  /**
+   * Maximum number of per-user limiters kept; the least recently used one is dropped beyond this.
+   */
+  public int getMaxUsers() {
+    return maxUsers;
+  }
+
+  public void setMaxUsers(int maxUsers) {
+    this.maxUsers = maxUsers;
+  }
+
+  /**
+   * Sustained rate allowed for the whole application (the per-project quota). Halved on every
+   * 429 and recovered gradually on success.
+   */
+  public double getGlobalRequestsPerMinute() {
+    return globalRequestsPerMinute;
+  }
+
+  public void setGlobalRequestsPerMinute(double globalRequestsPerMinute) {
+    this.globalRequestsPerMinute = globalRequestsPerMinute;
+  }
+
+  public int getGlobalBurst() {
+    return globalBurst;
+  }
+
+  public void setGlobalBurst(int globalBurst) {
+    this.globalBurst = globalBurst;
+  }
+
+  /**
+   * Longest a call waits for a limiter before it is rejected locally.
+   */
+  public Duration getMaxWait() {
+    return maxWait;
+  }
+
+  public void setMaxWait(Duration maxWait) {
+    this.maxWait = maxWait;
+  }
+
+  /**
+   * Retries after a 429 (any call), or a 5xx or I/O error (idempotent calls only).
+   */
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  public void setMaxRetries(int maxRetries) {
+    this.maxRetries = maxRetries;
+  }
+
+  /**
+   * Backoff before the first retry; doubles on every attempt, with full jitter.
+   */
+  public Duration getInitialBackoff() {
+    return initialBackoff;
+  }
+
+  public void setInitialBackoff(Duration initialBackoff) {
+    this.initialBackoff = initialBackoff;
+  }
+
+  /**
+   * Cap on the backoff. A Retry-After longer than this is not waited out; the call fails instead.
+   */
+  public Duration getMaxBackoff() {
+    return maxBackoff;
+  }
+
+  public void setMaxBackoff(Duration maxBackoff) {
+    this.maxBackoff = maxBackoff;
+  }
+
+  /**
+   * Consecutive failed calls (after retries) that open the circuit breaker.
+   */
+  public int getFailureThreshold() {
+    return failureThreshold;
+  }
+
+  public void setFailureThreshold(int failureThreshold) {
+    this.failureThreshold = failureThreshold;
+  }
+
+  /**
+   * How long the open breaker rejects calls before letting a trial call through.
+   */
+  public Duration getOpenDuration() {
+    return openDuration;
+  }
+
+  public void setOpenDuration(Duration openDuration) {
+    this.openDuration = openDuration;
+  }
+}
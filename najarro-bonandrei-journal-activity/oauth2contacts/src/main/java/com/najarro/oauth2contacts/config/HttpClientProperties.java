@@ -0,0 +1,132 @@
+package com.najarro.oauth2contacts.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Connection pool and timeout settings for the HTTP client behind the RestTemplate bean.
+ * Bound from the {@code contacts.http.*} keys in application.properties.
+ */
+@ConfigurationProperties(prefix = "contacts.http")
+public class HttpClientProperties {
+
+  private int maxConnectionsTotal = 200;
+  private int maxConnectionsPerRoute = 100;
+  private Duration connectTimeout = Duration.ofSeconds(5);
+  private Duration responseTimeout = Duration.ofSeconds(30);
+  private Duration connectionRequestTimeout = Duration.ofSeconds(2);
+  private Duration keepAlive = Duration.ofMinutes(2);
+  private Duration timeToLive = Duration.ofMinutes(10);
+  private Duration idleEviction = Duration.ofSeconds(60);
+  private Duration validateAfterInactivity = Duration.ofSeconds(10);
+  private String userAgent = "oauth2contacts (gzip)";
+
+  /**
+   * Maximum number of pooled connections across all routes.
+   */
+  public int getMaxConnectionsTotal() {
+    return maxConnectionsTotal;
+  }
+
+  public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+    this.maxConnectionsTotal = maxConnectionsTotal;
+  }
+
+  /**
+   * Maximum number of pooled connections per host. Practically all traffic goes to
+   * people.googleapis.com, so this is the limit that matters under concurrent users.
+   */
+  public int getMaxConnectionsPerRoute() {
+    return maxConnectionsPerRoute;
+  }
+
+  public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+  }
+
+  public Duration getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(Duration connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  /**
+   * How long to wait for response data once a request has been sent.
+   */
+  public Duration getResponseTimeout() {
+    return responseTimeout;
+  }
+
+  public void setResponseTimeout(Duration responseTimeout) {
+    this.responseTimeout = responseTimeout;
+  }
+
+  /**
+   * How long a request may wait to lease a connection from the pool.
+   */
+  public Duration getConnectionRequestTimeout() {
+    return connectionRequestTimeout;
+  }
+
+  public void setConnectionRequestTimeout(Duration connectionRequestTimeout) {
+    this.connectionRequestTimeout = connectionRequestTimeout;
+  }
+
+  /**
+   * Keep-alive used when the server does not send a Keep-Alive header.
+   */
+  public Duration getKeepAlive() {
+    return keepAlive;
+  }
+
+  public void setKeepAlive(Duration keepAlive) {
+    this.keepAlive = keepAlive;
+  }
+
+  /**
+   * Maximum lifetime of a pooled connection, regardless of activity.
+   */
+  public Duration getTimeToLive() {
+    return timeToLive;
+  }
+
+  public void setTimeToLive(Duration timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  /**
+   * Connections idle for longer than this are closed by a background evictor.
+   */
+  public Duration getIdleEviction() {
+    return idleEviction;
+  }
+
+  public void setIdleEviction(Duration idleEviction) {
+    this.idleEviction = idleEviction;
+  }
+
+  /**
+   * Pooled connections idle for longer than this are checked for staleness before being reused.
+   */
+  public Duration getValidateAfterInactivity() {
+    return validateAfterInactivity;
+  }
+
+  public void setValidateAfterInactivity(Duration validateAfterInactivity) {
+    this.validateAfterInactivity = validateAfterInactivity;
+  }
+
+  /**
+   * Google APIs only gzip responses when the User-Agent contains "gzip" in addition to Accept-Encoding.
+   */
+  public String getUserAgent() {
+    return userAgent;
+  }
+
+  public void setUserAgent(String userAgent) {
+    this.userAgent = userAgent;
+  }
+}
@@ -0,0 +1,124 @@
+package com.najarro.oauth2contacts.config;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties({PeopleApiProperties.class, ContactCacheProperties.class, HttpClientProperties.class,
+    GovernorProperties.class, ContactSyncProperties.class, SnapshotStoreProperties.class,
+    SharedStoreProperties.class, DuplicateProperties.class})
+public class PeopleApiConfig {
+
+  /**
+   * Executor used to prefetch the next connections page while the current one is being rendered.
+   * With {@code spring.threads.virtual.enabled=true} (which also moves Tomcat's request handling
+   * onto virtual threads) every prefetch gets its own virtual thread instead of queueing for
+   * one of {@code contacts.people-api.prefetch-threads} platform threads.
+   */
+  @Bean
+  public TaskExecutor peopleApiExecutor(PeopleApiProperties properties, Environment environment) {
+    if (Threading.VIRTUAL.isActive(environment)) {
+      SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("people-api-");
+      executor.setVirtualThreads(true);
+      executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+      return executor;
+    }
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(properties.getPrefetchThreads());
+    executor.setMaxPoolSize(properties.getPrefetchThreads());
+    executor.setThreadNamePrefix("people-api-");
+    executor.setDaemon(true);
+    // Carry the request's observation (trace) context over to the prefetch threads
+    executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+    return executor;
+  }
+
+  /**
+   * Executor for Spring MVC async requests (streamed exports), wired in by {@link WebAsyncConfig}.
+   * At most {@code contacts.people-api.export-threads} downloads are written at once and up to
+   * {@code contacts.people-api.export-queue-capacity} more wait for a thread; any beyond that are
+   * rejected. Pooled in virtual-thread mode too, so that the limit holds there as well.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor mvcAsyncExecutor(PeopleApiProperties properties, Environment environment) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(properties.getExportThreads());
+    executor.setMaxPoolSize(properties.getExportThreads());
+    executor.setQueueCapacity(properties.getExportQueueCapacity());
+    executor.setThreadNamePrefix("mvc-async-");
+    executor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+    executor.setDaemon(true);
+    executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+    return executor;
+  }
+
+  /**
+   * Executor contact imports run on after their upload has been accepted. Separate from
+   * {@link #peopleApiExecutor} because an import waits for the batch calls it submits there.
+   * At most {@code contacts.people-api.import-threads} imports run at once and up to
+   * {@code contacts.people-api.import-queue-capacity} more wait, each with its upload on disk;
+   * further uploads are rejected right away rather than holding the request thread until an
+   * earlier import finishes. Pooled in virtual-thread mode too, so that both modes are bounded alike.
+   */
+  @Bean
+  public TaskExecutor contactImportExecutor(PeopleApiProperties properties, Environment environment) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(properties.getImportThreads());
+    executor.setMaxPoolSize(properties.getImportThreads());
+    executor.setQueueCapacity(properties.getImportQueueCapacity());
+    executor.setThreadNamePrefix("contact-import-");
+    executor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+    executor.setDaemon(true);
+    executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+    return executor;
+  }
+
+  /**
+   * Executor the background contact sync runs on. The scheduler never hands it more than
+   * {@code contacts.sync.threads} users at a time, so it has no queue of its own to grow.
+   */
+  @Bean
+  public TaskExecutor contactSyncExecutor(ContactSyncProperties properties, Environment environment) {
+    if (Threading.VIRTUAL.isActive(environment)) {
+      SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("contact-sync-");
+      executor.setVirtualThreads(true);
+      executor.setConcurrencyLimit(properties.getThreads());
+      return executor;
+    }
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(properties.getThreads());
+    executor.setMaxPoolSize(properties.getThreads());
+    executor.setThreadNamePrefix("contact-sync-");
+    executor.setDaemon(true);
+    return executor;
+  }
+
+  /**
+   * Executor that writes contact change events to open contacts pages, so that a write or a sync
+   * only queues the event instead of waiting on each page's connection. Each page is drained by
+   * at most one task at a time, so two platform threads keep up with many pages.
+   */
+  @Bean
+  public TaskExecutor contactEventsExecutor(Environment environment) {
+    if (Threading.VIRTUAL.isActive(environment)) {
+      SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("contact-events-");
+      executor.setVirtualThreads(true);
+      return executor;
+    }
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(2);
+    executor.setMaxPoolSize(2);
+    executor.setThreadNamePrefix("contact-events-");
+    executor.setDaemon(true);
+    return executor;
+  }
+}
@@ -0,0 +1,165 @@
+package com.najarro.oauth2contacts.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Tunables for talking to the Google People API.
+ * Bound from the {@code contacts.people-api.*} keys in application.properties.
+ */
+@ConfigurationProperties(prefix = "contacts.people-api")
+public class PeopleApiProperties {
+
+  /**
+   * Hard upper bound the People API accepts for {@code pageSize} on people/me/connections.
+   */
+  public static final int MAX_PAGE_SIZE = 1000;
+
+  public static final String DEFAULT_BASE_URL = "https://people.googleapis.com/v1/";
+
+  private String baseUrl = DEFAULT_BASE_URL;
+  private String client = "blocking";
+  private int pageSize = 500;
+  private int prefetchThreads = 4;
+  private int batchParallelism = 2;
+  private Duration batchTimeout = Duration.ofMinutes(2);
+  private int importThreads = 2;
+  private int importQueueCapacity = 4;
+  private int exportThreads = 8;
+  private int exportQueueCapacity = 16;
+  private int retryAttempts = 2;
+  private Duration retryBackoff = Duration.ofMillis(200);
+
+  /**
+   * Root of the People API, e.g. a local stand-in for load tests. Always ends with '/'.
+   */
+  public String getBaseUrl() {
+    return baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+  }
+
+  public void setBaseUrl(String baseUrl) {
+    this.baseUrl = baseUrl;
+  }
+
+  /**
+   * Which People API client the contact endpoints run on: "blocking" (RestTemplate, the default)
+   * or "reactive" (WebClient, with controller methods completing asynchronously).
+   */
+  public String getClient() {
+    return client;
+  }
+
+  public void setClient(String client) {
+    this.client = client;
+  }
+
+  /**
+   * Page size sent on connections.list, clamped to the 1..1000 range the API allows.
+   */
+  public int getPageSize() {
+    return Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+  }
+
+  public void setPageSize(int pageSize) {
+    this.pageSize = pageSize;
+  }
+
+  public int getPrefetchThreads() {
+    return prefetchThreads;
+  }
+
+  public void setPrefetchThreads(int prefetchThreads) {
+    this.prefetchThreads = prefetchThreads;
+  }
+
+  /**
+   * How many batch calls of one bulk operation may be in flight at once. Google asks for mutations
+   * of the same user's contacts to be mostly sequential, so keep this small.
+   */
+  public int getBatchParallelism() {
+    return Math.max(1, batchParallelism);
+  }
+
+  public void setBatchParallelism(int batchParallelism) {
+    this.batchParallelism = batchParallelism;
+  }
+
+  /**
+   * How long a bulk request waits for all of its chunks; chunks without a result by then are
+   * reported as failed instead of holding the request thread.
+   */
+  public Duration getBatchTimeout() {
+    return batchTimeout;
+  }
+
+  public void setBatchTimeout(Duration batchTimeout) {
+    this.batchTimeout = batchTimeout;
+  }
+
+  /**
+   * How many contact imports run at once.
+   */
+  public int getImportThreads() {
+    return Math.max(1, importThreads);
+  }
+
+  public void setImportThreads(int importThreads) {
+    this.importThreads = importThreads;
+  }
+
+  /**
+   * How many further imports wait for a free thread before new uploads are turned away.
+   */
+  public int getImportQueueCapacity() {
+    return Math.max(0, importQueueCapacity);
+  }
+
+  public void setImportQueueCapacity(int importQueueCapacity) {
+    this.importQueueCapacity = importQueueCapacity;
+  }
+
+  /**
+   * How many streamed exports are written at once.
+   */
+  public int getExportThreads() {
+    return Math.max(1, exportThreads);
+  }
+
+  public void setExportThreads(int exportThreads) {
+    this.exportThreads = exportThreads;
+  }
+
+  /**
+   * How many further exports wait for a free thread before new ones are turned away.
+   */
+  public int getExportQueueCapacity() {
+    return Math.max(0, exportQueueCapacity);
+  }
+
+  public void setExportQueueCapacity(int exportQueueCapacity) {
+    this.exportQueueCapacity = exportQueueCapacity;
+  }
+
+  /**
+   * How many times the reactive client retries idempotent reads after a 429, a 5xx or an I/O error.
+   */
+  public int getRetryAttempts() {
+    return retryAttempts;
+  }
+
+  public void setRetryAttempts(int retryAttempts) {
+    this.retryAttempts = retryAttempts;
+  }
+
+  /**
+   * Initial backoff between reactive retries; doubles (with jitter) on every attempt.
+   */
+  public Duration getRetryBackoff() {
+    return retryBackoff;
+  }
+
+  public void setRetryBackoff(Duration retryBackoff) {
+    this.retryBackoff = retryBackoff;
+  }
+}
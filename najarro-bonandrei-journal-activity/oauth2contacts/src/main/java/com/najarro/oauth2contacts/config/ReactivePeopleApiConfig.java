@@ -0,0 +1,54 @@
+package com.najarro.oauth2contacts.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * WebClient for the reactive People API client, only created when
+ * {@code contacts.people-api.client=reactive}. It reuses the {@code contacts.http.*} pool and
+ * timeout settings of the blocking client.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "contacts.people-api", name = "client", havingValue = "reactive")
+public class ReactivePeopleApiConfig {
+
+  /**
+   * Connection pages are buffered before they are parsed; 1000 people with metadata is well under 2 MB.
+   */
+  private static final int MAX_RESPONSE_BYTES = 16 * 1024 * 1024;
+
+  /**
+   * Built from Boot's WebClient.Builder so requests are observed (http.client.requests plus trace
+   * propagation). Negotiates HTTP/2 over TLS where the server supports it and asks for gzip.
+   */
+  @Bean
+  public WebClient peopleApiWebClient(WebClient.Builder builder, HttpClientProperties properties) {
+    ConnectionProvider connectionProvider = ConnectionProvider.builder("people-api")
+            .maxConnections(properties.getMaxConnectionsPerRoute())
+            .pendingAcquireTimeout(properties.getConnectionRequestTimeout())
+            .maxIdleTime(properties.getIdleEviction())
+            .maxLifeTime(properties.getTimeToLive())
+            .evictInBackground(properties.getIdleEviction())
+            .build();
+
+    HttpClient httpClient = HttpClient.create(connectionProvider)
+            .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+            .responseTimeout(properties.getResponseTimeout())
+            .compress(true);
+
+    return builder
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .defaultHeader(HttpHeaders.USER_AGENT, properties.getUserAgent())
+            .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(MAX_RESPONSE_BYTES))
+            .build();
+  }
+}
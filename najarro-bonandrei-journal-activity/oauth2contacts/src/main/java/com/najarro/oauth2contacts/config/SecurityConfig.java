@@ -1,23 +1,40 @@
 package com.najarro.oauth2contacts.config;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusScrapeEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.security.core.session.SessionRegistryImpl;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.session.HttpSessionEventPublisher;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
   @Bean
-  public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+  public SecurityFilterChain securityFilterChain(HttpSecurity http, SessionRegistry sessionRegistry) throws Exception {
     return http
             .authorizeHttpRequests(authorizeRequest -> authorizeRequest
                     .requestMatchers("/", "error").permitAll()
+                    .requestMatchers(EndpointRequest.to(HealthEndpoint.class, PrometheusScrapeEndpoint.class)).permitAll()
                     .requestMatchers("/home").authenticated()
                     .requestMatchers("/contact-form", "/save-contact").authenticated()
                     .anyRequest().authenticated())
@@ -31,14 +48,87 @@ public class SecurityConfig {
             .logout(logout -> logout
                     .logoutSuccessUrl("/")
                     .permitAll()
-            )  
+            )
+            // Registers every signed-in session, so the background sync knows whose contacts to keep warm
+            .sessionManagement(session -> session
+                    .maximumSessions(-1)
+                    .sessionRegistry(sessionRegistry)
+            )
             .build();
   }
 
+  /**
+   * Live sessions by principal, read by {@code ContactSyncScheduler}.
+   */
+  @Bean
+  public SessionRegistry sessionRegistry() {
+    return new SessionRegistryImpl();
+  }
+
+  /**
+   * Publishes session expiry and logout to the {@link SessionRegistry}, which drops the session.
+   */
   @Bean
-  public RestTemplate restTemplate(){
-    CloseableHttpClient httpClient = HttpClients.createDefault();
-    HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
-    return new RestTemplate(requestFactory);
+  public HttpSessionEventPublisher httpSessionEventPublisher() {
+    return new HttpSessionEventPublisher();
+  }
+
+  /**
+   * Pooled HTTP client shared by every People API call.
+   * Connections to people.googleapis.com are kept alive and reused, so requests don't pay
+   * a TCP and TLS handshake each time. Content compression is on by default in HttpClient 5
+   * (Accept-Encoding: gzip, deflate plus transparent decoding); the User-Agent carries "gzip"
+   * because Google only compresses responses for clients that advertise it there too.
+   */
+  @Bean
+  public CloseableHttpClient peopleApiHttpClient(HttpClientProperties properties) {
+    PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(properties.getMaxConnectionsTotal())
+            .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                    .setConnectTimeout(timeout(properties.getConnectTimeout()))
+                    .setSocketTimeout(timeout(properties.getResponseTimeout()))
+                    .setTimeToLive(timeValue(properties.getTimeToLive()))
+                    .setValidateAfterInactivity(timeValue(properties.getValidateAfterInactivity()))
+                    .build())
+            .setDefaultSocketConfig(SocketConfig.custom()
+                    .setSoKeepAlive(true)
+                    .setTcpNoDelay(true)
+                    .build())
+            .build();
+
+    RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectionRequestTimeout(timeout(properties.getConnectionRequestTimeout()))
+            .setResponseTimeout(timeout(properties.getResponseTimeout()))
+            .setConnectionKeepAlive(timeValue(properties.getKeepAlive()))
+            .build();
+
+    return HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .setUserAgent(properties.getUserAgent())
+            .evictExpiredConnections()
+            .evictIdleConnections(timeValue(properties.getIdleEviction()))
+            .build();
+  }
+
+  /**
+   * The observation registry makes every exchange emit http.client.requests and a client span
+   * whose trace context is propagated on the outgoing request headers.
+   */
+  @Bean
+  public RestTemplate restTemplate(CloseableHttpClient peopleApiHttpClient, ObservationRegistry observationRegistry){
+    HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(peopleApiHttpClient);
+    RestTemplate restTemplate = new RestTemplate(requestFactory);
+    restTemplate.setObservationRegistry(observationRegistry);
+    return restTemplate;
+  }
+
+  private static Timeout timeout(Duration duration) {
+    return Timeout.ofMilliseconds(duration.toMillis());
+  }
+
+  private static TimeValue timeValue(Duration duration) {
+    return TimeValue.ofMilliseconds(duration.toMillis());
   }
 }
@@ -0,0 +1,98 @@
+package com.najarro.oauth2contacts.config;
+
+import com.najarro.oauth2contacts.service.AesGcm;
+import com.najarro.oauth2contacts.service.InMemorySharedStore;
+import com.najarro.oauth2contacts.service.RedisSharedStore;
+import com.najarro.oauth2contacts.service.SharedAuthorizedClientService;
+import com.najarro.oauth2contacts.service.SharedContactSnapshots;
+import com.najarro.oauth2contacts.service.SharedSessionRepository;
+import com.najarro.oauth2contacts.service.SharedStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+
+import java.time.Duration;
+
+/**
+ * Moves the state that would otherwise tie a user to one node into the {@link SharedStore}, so
+ * that nodes can run behind a plain round-robin balancer: the HTTP session (through Spring
+ * Session), the OAuth2 authorized clients, and the contact snapshots behind each node's
+ * {@code ContactCache}. Only active with {@code contacts.shared-store.enabled=true}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "contacts.shared-store", name = "enabled", havingValue = "true")
+@EnableSpringHttpSession
+public class SharedStoreConfig {
+
+  @Bean
+  @ConditionalOnProperty(prefix = "contacts.shared-store", name = "type", havingValue = "local", matchIfMissing = true)
+  public SharedStore inMemorySharedStore() {
+    return new InMemorySharedStore();
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "contacts.shared-store", name = "type", havingValue = "redis")
+  public RedisMessageListenerContainer sharedStoreListeners(RedisConnectionFactory connectionFactory) {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    return container;
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "contacts.shared-store", name = "type", havingValue = "redis")
+  public SharedStore redisSharedStore(RedisConnectionFactory connectionFactory, RedisMessageListenerContainer sharedStoreListeners) {
+    return new RedisSharedStore(connectionFactory, sharedStoreListeners);
+  }
+
+  /**
+   * Encrypts the authorized clients (refresh tokens included) and contact snapshots before they
+   * leave the node, so the store never holds them in the clear.
+   */
+  @Bean
+  public AesGcm sharedStoreCipher(SharedStoreProperties properties) {
+    if (properties.getKey() == null || properties.getKey().isBlank()) {
+      if (properties.getType() == SharedStoreProperties.Type.REDIS) {
+        throw new IllegalStateException("contacts.shared-store.key is required with contacts.shared-store.type=redis");
+      }
+      // The in-process store never outlives this JVM
+      return AesGcm.withRandomKey();
+    }
+    return AesGcm.fromBase64(properties.getKey(), "contacts.shared-store.key");
+  }
+
+  /**
+   * Replaces the container's sessions; the timeout is still {@code server.servlet.session.timeout}.
+   */
+  @Bean
+  public SharedSessionRepository sessionRepository(SharedStore sharedStore, SharedStoreProperties properties,
+                                                   ServerProperties serverProperties, ApplicationEventPublisher eventPublisher) {
+    Duration timeout = serverProperties.getServlet().getSession().getTimeout();
+    return new SharedSessionRepository(sharedStore, properties.getKeyPrefix(),
+        timeout != null ? timeout : Duration.ofMinutes(30), eventPublisher);
+  }
+
+  /**
+   * Takes the place of Spring Boot's in-memory service, which the authorized client repository
+   * used by the login and by {@code @RegisteredOAuth2AuthorizedClient} then delegates to.
+   */
+  @Bean
+  public OAuth2AuthorizedClientService authorizedClientService(SharedStore sharedStore, SharedStoreProperties properties,
+                                                               ClientRegistrationRepository clientRegistrations,
+                                                               AesGcm sharedStoreCipher) {
+    return new SharedAuthorizedClientService(sharedStore, properties.getKeyPrefix(),
+        properties.getAuthorizedClientTtl(), clientRegistrations, sharedStoreCipher);
+  }
+
+  @Bean
+  public SharedContactSnapshots sharedContactSnapshots(SharedStore sharedStore, SharedStoreProperties properties,
+                                                       ContactCacheProperties cacheProperties, AesGcm sharedStoreCipher) {
+    return new SharedContactSnapshots(sharedStore, properties.getKeyPrefix(), cacheProperties.getTtl(), sharedStoreCipher);
+  }
+}
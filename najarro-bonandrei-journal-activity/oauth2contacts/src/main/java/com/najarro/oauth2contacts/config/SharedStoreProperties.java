@@ -0,0 +1,105 @@
+package com.najarro.oauth2contacts.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the tier shared by all nodes: sessions, OAuth2 authorized clients and contact snapshots.
+ * Bound from the {@code contacts.shared-store.*} keys in application.properties.
+ */
+@ConfigurationProperties(prefix = "contacts.shared-store")
+public class SharedStoreProperties {
+
+  public enum Type { LOCAL, REDIS }
+
+  private boolean enabled = false;
+  private Type type = Type.LOCAL;
+  private String keyPrefix = "oauth2contacts:";
+  private Duration flushInterval = Duration.ofSeconds(1);
+  private Duration authorizedClientTtl = Duration.ofHours(24);
+  private Duration sessionCleanupInterval = Duration.ofSeconds(60);
+  private String key;
+
+  /**
+   * Whether sessions, authorized clients and contact snapshots go to the shared store. Needed to run
+   * more than one node without sticky sessions.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * {@code local} keeps the store in this JVM (a single node, or tests); {@code redis} uses the
+   * server configured with {@code spring.data.redis.*}.
+   */
+  public Type getType() {
+    return type;
+  }
+
+  public void setType(Type type) {
+    this.type = type;
+  }
+
+  /**
+   * Prepended to every key and channel name, so several deployments can share one server.
+   */
+  public String getKeyPrefix() {
+    return keyPrefix;
+  }
+
+  public void setKeyPrefix(String keyPrefix) {
+    this.keyPrefix = keyPrefix;
+  }
+
+  /**
+   * How often contact snapshots that changed on this node are shared; also how long other nodes
+   * may serve their older copy.
+   */
+  public Duration getFlushInterval() {
+    return flushInterval;
+  }
+
+  public void setFlushInterval(Duration flushInterval) {
+    this.flushInterval = flushInterval;
+  }
+
+  /**
+   * How long an authorized client is kept after it was last saved.
+   */
+  public Duration getAuthorizedClientTtl() {
+    return authorizedClientTtl;
+  }
+
+  public void setAuthorizedClientTtl(Duration authorizedClientTtl) {
+    this.authorizedClientTtl = authorizedClientTtl;
+  }
+
+  /**
+   * How often each node checks the sessions it has seen for expiry, to tell its session registry.
+   */
+  public Duration getSessionCleanupInterval() {
+    return sessionCleanupInterval;
+  }
+
+  public void setSessionCleanupInterval(Duration sessionCleanupInterval) {
+    this.sessionCleanupInterval = sessionCleanupInterval;
+  }
+
+  /**
+   * Base64 encoded AES key (128 or 256 bit, e.g. {@code openssl rand -base64 32}) that authorized
+   * clients and contact snapshots are encrypted with before they go to the store. The same on
+   * every node, and required with {@code type=redis}; the in-process store uses a random one.
+   */
+  public String getKey() {
+    return key;
+  }
+
+  public void setKey(String key) {
+    this.key = key;
+  }
+}
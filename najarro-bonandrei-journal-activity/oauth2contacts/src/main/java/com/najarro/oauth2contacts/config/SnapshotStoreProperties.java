@@ -0,0 +1,65 @@
+package com.najarro.oauth2contacts.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for the on-disk copy of the per-user contact cache that survives a restart.
+ * Bound from the {@code contacts.snapshot-store.*} keys in application.properties.
+ */
+@ConfigurationProperties(prefix = "contacts.snapshot-store")
+public class SnapshotStoreProperties {
+
+  private boolean enabled = false;
+  private Path directory = Path.of("data", "snapshots");
+  private String key;
+  private Duration flushInterval = Duration.ofSeconds(60);
+
+  /**
+   * Whether cached contacts are written to disk and read back after a restart. Needs {@link #getKey()}.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Where the snapshot files are kept; one file per user. Should be local to the instance.
+   */
+  public Path getDirectory() {
+    return directory;
+  }
+
+  public void setDirectory(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Base64 encoded 128 or 256 bit AES key the files are encrypted with. Changing it makes the
+   * existing files unreadable, which only costs a full load per user.
+   */
+  public String getKey() {
+    return key;
+  }
+
+  public void setKey(String key) {
+    this.key = key;
+  }
+
+  /**
+   * How often snapshots that changed since they were last written are written again. Snapshots
+   * are also written on shutdown.
+   */
+  public Duration getFlushInterval() {
+    return flushInterval;
+  }
+
+  public void setFlushInterval(Duration flushInterval) {
+    this.flushInterval = flushInterval;
+  }
+}
@@ -0,0 +1,37 @@
+package com.najarro.oauth2contacts.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Runs Spring MVC async requests, i.e. the streamed {@code /contacts/export} downloads, on
+ * {@link PeopleApiConfig#mvcAsyncExecutor}. The executors in {@link PeopleApiConfig} make Boot back
+ * off its {@code applicationTaskExecutor}, which would leave MVC on a {@code SimpleAsyncTaskExecutor}
+ * that starts a new thread for every download.
+ */
+@Configuration
+public class WebAsyncConfig implements WebMvcConfigurer {
+
+  private final AsyncTaskExecutor mvcAsyncExecutor;
+  private final WebMvcProperties mvcProperties;
+
+  public WebAsyncConfig(@Qualifier("mvcAsyncExecutor") AsyncTaskExecutor mvcAsyncExecutor, WebMvcProperties mvcProperties) {
+    this.mvcAsyncExecutor = mvcAsyncExecutor;
+    this.mvcProperties = mvcProperties;
+  }
+
+  @Override
+  public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+    configurer.setTaskExecutor(mvcAsyncExecutor);
+    Duration timeout = mvcProperties.getAsync().getRequestTimeout();
+    if (timeout != null) {
+      configurer.setDefaultTimeout(timeout.toMillis());
+    }
+  }
+}
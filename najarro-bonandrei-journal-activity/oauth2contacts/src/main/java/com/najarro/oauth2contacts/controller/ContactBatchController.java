@@ -0,0 +1,99 @@
+package com.najarro.oauth2contacts.controller;
+
+import com.najarro.oauth2contacts.model.Contact;
+import com.najarro.oauth2contacts.service.BatchResult;
+import com.najarro.oauth2contacts.service.ContactBatchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.annotation.RegisteredOAuth2AuthorizedClient;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.util.List;
+
+/**
+ * Bulk contact operations backed by the People API batch endpoints.
+ * Delete is driven by the multi-select on the contacts page; create and update take and return
+ * JSON for scripted bulk maintenance.
+ */
+@Controller
+public class ContactBatchController {
+
+    private static final Logger log = LoggerFactory.getLogger(ContactBatchController.class);
+
+    private final ContactBatchService batchService;
+
+    public ContactBatchController(ContactBatchService batchService) {
+        this.batchService = batchService;
+    }
+
+    /**
+     * Deletes the contacts selected on the contacts page.
+     *
+     * @param resourceNames The resourceNames of the selected contacts.
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token.
+     * @param redirectAttributes Used for passing flash attributes after redirect.
+     * @return A redirect URL to the contacts list.
+     */
+    @PostMapping("/batch-delete-contacts")
+    public String batchDeleteContacts(@RequestParam(required = false) List<String> resourceNames,
+                                      @RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient,
+                                      RedirectAttributes redirectAttributes) {
+        if (resourceNames == null || resourceNames.isEmpty()) {
+            redirectAttributes.addFlashAttribute("infoMessage", "No contacts selected.");
+            return "redirect:/contacts";
+        }
+        BatchResult result = batchService.deleteContacts(
+                authorizedClient.getPrincipalName(),
+                authorizedClient.getAccessToken().getTokenValue(),
+                resourceNames);
+        if (result.getSucceeded() > 0) {
+            redirectAttributes.addFlashAttribute("successMessage", "Deleted " + result.getSucceeded() + " contact(s).");
+        }
+        if (result.getFailed() > 0) {
+            redirectAttributes.addFlashAttribute("errorMessage",
+                    "Could not delete " + result.getFailed() + " contact(s): " + String.join("; ", result.getErrors()));
+            log.warn("API Error (Batch delete): {}", result.getErrors());
+        }
+        return "redirect:/contacts";
+    }
+
+    /**
+     * Creates the contacts in the request body.
+     *
+     * @param contacts The contacts to create.
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token.
+     * @return The created contacts and any errors.
+     */
+    @PostMapping("/batch-create-contacts")
+    @ResponseBody
+    public BatchResult batchCreateContacts(@RequestBody List<Contact> contacts,
+                                           @RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient) {
+        return batchService.createContacts(
+                authorizedClient.getPrincipalName(),
+                authorizedClient.getAccessToken().getTokenValue(),
+                contacts);
+    }
+
+    /**
+     * Updates the contacts in the request body; each must carry its resourceName and etag.
+     *
+     * @param contacts The contacts to update.
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token.
+     * @return The updated contacts and any errors.
+     */
+    @PostMapping("/batch-update-contacts")
+    @ResponseBody
+    public BatchResult batchUpdateContacts(@RequestBody List<Contact> contacts,
+                                           @RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient) {
+        return batchService.updateContacts(
+                authorizedClient.getPrincipalName(),
+                authorizedClient.getAccessToken().getTokenValue(),
+                contacts);
+    }
+}
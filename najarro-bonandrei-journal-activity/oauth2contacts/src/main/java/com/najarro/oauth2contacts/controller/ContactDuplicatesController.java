@@ -0,0 +1,119 @@
+package com.najarro.oauth2contacts.controller;
+
+import com.najarro.oauth2contacts.service.ContactService;
+import com.najarro.oauth2contacts.service.DuplicateGroup;
+import com.najarro.oauth2contacts.service.PeopleApiUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.annotation.RegisteredOAuth2AuthorizedClient;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.util.List;
+
+/**
+ * Lists likely duplicates among the signed-in user's contacts, found in their cached snapshot, and
+ * merges a group of them into one contact.
+ */
+@Controller
+public class ContactDuplicatesController {
+
+    private static final Logger log = LoggerFactory.getLogger(ContactDuplicatesController.class);
+
+    private final ContactService contactService;
+
+    public ContactDuplicatesController(ContactService contactService) {
+        this.contactService = contactService;
+    }
+
+    /**
+     * Renders the groups of likely duplicates, each with a merge form.
+     *
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token for Google.
+     * @param oauth2User The authenticated OAuth2User representing the Google user.
+     * @param model The Model object to pass data to the Thymeleaf template.
+     * @return The duplicates template.
+     */
+    @GetMapping("/contacts/duplicates")
+    public String duplicates(@RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient,
+                             @AuthenticationPrincipal OAuth2User oauth2User,
+                             Model model) {
+        model.addAttribute("userName", oauth2User.getAttribute("name"));
+        model.addAttribute("userEmail", oauth2User.getAttribute("email"));
+        try {
+            model.addAttribute("groups", contactService.findDuplicates(
+                    authorizedClient.getPrincipalName(),
+                    authorizedClient.getAccessToken().getTokenValue()));
+        } catch (PeopleApiUnavailableException | HttpClientErrorException.TooManyRequests | HttpServerErrorException e) {
+            model.addAttribute("errorMessage", "Google Contacts is temporarily unavailable. Please try again shortly.");
+            log.warn("API Error (Duplicates)", e);
+            model.addAttribute("groups", List.of());
+        }
+        return "duplicates";
+    }
+
+    /**
+     * JSON variant of the duplicates list, for scripts.
+     *
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token for Google.
+     * @return The groups of likely duplicates, largest first.
+     */
+    @GetMapping(value = "/contacts/duplicates", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<DuplicateGroup> duplicatesJson(@RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient) {
+        return contactService.findDuplicates(
+                authorizedClient.getPrincipalName(),
+                authorizedClient.getAccessToken().getTokenValue());
+    }
+
+    /**
+     * Merges the selected duplicates into the contact chosen to be kept, and deletes them.
+     *
+     * @param survivor The resourceName of the contact to keep.
+     * @param resourceNames The resourceNames of the group's contacts to merge into it.
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token.
+     * @param redirectAttributes Used for passing flash attributes after redirect.
+     * @return A redirect URL to the duplicates list.
+     */
+    @PostMapping("/merge-contacts")
+    public String mergeContacts(@RequestParam String survivor,
+                                @RequestParam(required = false) List<String> resourceNames,
+                                @RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient,
+                                RedirectAttributes redirectAttributes) {
+        List<String> duplicates = resourceNames != null
+                ? resourceNames.stream().filter(name -> !name.equals(survivor)).toList()
+                : List.of();
+        if (duplicates.isEmpty()) {
+            redirectAttributes.addFlashAttribute("infoMessage", "Select at least one other contact to merge.");
+            return "redirect:/contacts/duplicates";
+        }
+        try {
+            contactService.mergeContacts(
+                    authorizedClient.getPrincipalName(),
+                    authorizedClient.getAccessToken().getTokenValue(),
+                    survivor,
+                    duplicates);
+            redirectAttributes.addFlashAttribute("successMessage", "Merged " + (duplicates.size() + 1) + " contacts into one.");
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        } catch (HttpClientErrorException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "API Error merging contacts: " + e.getResponseBodyAsString());
+            log.warn("API Error (Merge): {}", e.getResponseBodyAsString(), e);
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "An unexpected error occurred during the merge: " + e.getMessage());
+            log.error("Unexpected Error (Merge)", e);
+        }
+        return "redirect:/contacts/duplicates";
+    }
+}
@@ -0,0 +1,33 @@
+package com.najarro.oauth2contacts.controller;
+
+import com.najarro.oauth2contacts.service.ContactEvents;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.annotation.RegisteredOAuth2AuthorizedClient;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Event stream the contacts page listens on for row-level changes (see {@link ContactEvents}).
+ */
+@Controller
+public class ContactEventsController {
+
+    private final ContactEvents contactEvents;
+
+    public ContactEventsController(ContactEvents contactEvents) {
+        this.contactEvents = contactEvents;
+    }
+
+    /**
+     * Opens the signed-in user's stream of "contact" events, each carrying a ContactDelta as JSON.
+     *
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token for Google.
+     * @return The Server-Sent Events stream.
+     */
+    @GetMapping(value = "/contacts/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient) {
+        return contactEvents.subscribe(authorizedClient.getPrincipalName());
+    }
+}
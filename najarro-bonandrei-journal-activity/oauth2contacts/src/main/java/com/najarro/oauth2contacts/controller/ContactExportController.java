@@ -0,0 +1,73 @@
+package com.najarro.oauth2contacts.controller;
+
+import com.najarro.oauth2contacts.model.Contact;
+import com.najarro.oauth2contacts.service.ContactExportFormat;
+import com.najarro.oauth2contacts.service.ContactService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.annotation.RegisteredOAuth2AuthorizedClient;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Downloads the signed-in user's whole address book as CSV, vCard or NDJSON.
+ * The file is written to the response as the contacts are read from the People API, on an async
+ * request thread, so even a 20k contact export is never held in memory as a whole.
+ */
+@Controller
+public class ContactExportController {
+
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
+    private final ContactService contactService;
+
+    public ContactExportController(ContactService contactService) {
+        this.contactService = contactService;
+    }
+
+    /**
+     * Streams the export.
+     *
+     * @param format csv, vcf or ndjson.
+     * @param gzip Whether to compress the file; the download is then named e.g. contacts.csv.gz.
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token for Google.
+     * @return The file as an attachment, or 400 for an unknown format.
+     */
+    @GetMapping("/contacts/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "csv") String format,
+                                                        @RequestParam(defaultValue = "false") boolean gzip,
+                                                        @RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient) {
+        ContactExportFormat exportFormat = ContactExportFormat.fromParam(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        // Fetched here, on the request thread, so that a failing first page is an ordinary error response
+        Iterable<Contact> contacts = contactService.exportContacts(
+                authorizedClient.getPrincipalName(),
+                authorizedClient.getAccessToken().getTokenValue());
+
+        String fileName = "contacts." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+                exportFormat.write(contacts, compressed);
+                compressed.finish();
+            } else {
+                exportFormat.write(contacts, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip
+                        ? MediaType.parseMediaType("application/gzip")
+                        : MediaType.parseMediaType(exportFormat.getMediaType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+}
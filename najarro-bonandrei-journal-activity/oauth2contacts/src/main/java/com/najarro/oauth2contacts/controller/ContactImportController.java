@@ -0,0 +1,114 @@
+package com.najarro.oauth2contacts.controller;
+
+import com.najarro.oauth2contacts.service.ContactImportService;
+import com.najarro.oauth2contacts.service.ImportProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.annotation.RegisteredOAuth2AuthorizedClient;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.io.IOException;
+
+/**
+ * Bulk import of contacts from an uploaded CSV or vCard file. The upload starts a background
+ * import and redirects to a page that polls its progress.
+ */
+@Controller
+public class ContactImportController {
+
+    private static final Logger log = LoggerFactory.getLogger(ContactImportController.class);
+
+    private final ContactImportService importService;
+
+    public ContactImportController(ContactImportService importService) {
+        this.importService = importService;
+    }
+
+    /**
+     * Starts importing the uploaded file.
+     *
+     * @param file A .csv (this app's export or Google Contacts' CSV) or .vcf file.
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token.
+     * @param redirectAttributes Used for passing flash attributes after redirect.
+     * @return A redirect to the import's progress page, or back to the contacts list on error.
+     */
+    @PostMapping("/contacts/import")
+    public String importContacts(@RequestParam("file") MultipartFile file,
+                                 @RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient,
+                                 RedirectAttributes redirectAttributes) {
+        if (file.isEmpty()) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Choose a .csv or .vcf file to import.");
+            return "redirect:/contacts";
+        }
+        try {
+            ImportProgress progress = importService.startImport(
+                    authorizedClient.getPrincipalName(),
+                    authorizedClient.getAccessToken().getTokenValue(),
+                    file);
+            return "redirect:/contacts/import/" + progress.getId();
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage() + ".");
+        } catch (IOException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Could not read the upload: " + e.getMessage());
+            log.warn("Could not read an import upload", e);
+        } catch (TaskRejectedException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "The importer is busy with other uploads. Please try again in a few minutes.");
+        }
+        return "redirect:/contacts";
+    }
+
+    /**
+     * Shows an import's progress; the page polls {@link #importProgressJson} until it is done.
+     *
+     * @param id The import id.
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token.
+     * @param oauth2User The authenticated OAuth2User representing the Google user.
+     * @param model The Model object to pass data to the Thymeleaf template.
+     * @param redirectAttributes Used for passing flash attributes after redirect.
+     * @return The import template, or a redirect to the contacts list if the import is unknown.
+     */
+    @GetMapping("/contacts/import/{id}")
+    public String importProgress(@PathVariable String id,
+                                 @RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient,
+                                 @AuthenticationPrincipal OAuth2User oauth2User,
+                                 Model model,
+                                 RedirectAttributes redirectAttributes) {
+        ImportProgress progress = importService.getProgress(authorizedClient.getPrincipalName(), id);
+        if (progress == null) {
+            redirectAttributes.addFlashAttribute("errorMessage", "That import is no longer available.");
+            return "redirect:/contacts";
+        }
+        model.addAttribute("userName", oauth2User.getAttribute("name"));
+        model.addAttribute("progress", progress);
+        return "contact_import";
+    }
+
+    /**
+     * JSON progress of an import, for polling.
+     *
+     * @param id The import id.
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token.
+     * @return The progress, or 404 if the import is unknown.
+     */
+    @GetMapping(value = "/contacts/import/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<ImportProgress> importProgressJson(@PathVariable String id,
+                                                             @RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient) {
+        ImportProgress progress = importService.getProgress(authorizedClient.getPrincipalName(), id);
+        return progress != null ? ResponseEntity.ok(progress) : ResponseEntity.notFound().build();
+    }
+}
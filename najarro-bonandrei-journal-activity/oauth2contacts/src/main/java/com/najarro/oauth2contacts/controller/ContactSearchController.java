@@ -0,0 +1,102 @@
+package com.najarro.oauth2contacts.controller;
+
+import com.najarro.oauth2contacts.service.ContactService;
+import com.najarro.oauth2contacts.service.PeopleApiUnavailableException;
+import com.najarro.oauth2contacts.service.SearchPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.annotation.RegisteredOAuth2AuthorizedClient;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.util.List;
+
+/**
+ * Searches the signed-in user's contacts from the in-memory index of their cached snapshot,
+ * instead of a People API searchContacts round trip per query.
+ */
+@Controller
+public class ContactSearchController {
+
+    private static final Logger log = LoggerFactory.getLogger(ContactSearchController.class);
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private final ContactService contactService;
+
+    public ContactSearchController(ContactService contactService) {
+        this.contactService = contactService;
+    }
+
+    /**
+     * Renders the matching contacts in the contacts page, with paging links.
+     *
+     * @param q The search text; matched by prefix (or fuzzily) against names, emails and phone numbers.
+     * @param page Zero-based page number.
+     * @param size Page size, at most 200.
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token for Google.
+     * @param oauth2User The authenticated OAuth2User representing the Google user.
+     * @param model The Model object to pass data to the Thymeleaf template.
+     * @return The contacts template.
+     */
+    @GetMapping("/contacts/search")
+    public String search(@RequestParam(defaultValue = "") String q,
+                         @RequestParam(defaultValue = "0") int page,
+                         @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                         @RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient,
+                         @AuthenticationPrincipal OAuth2User oauth2User,
+                         Model model) {
+        if (q.isBlank()) {
+            return "redirect:/contacts";
+        }
+        model.addAttribute("userName", oauth2User.getAttribute("name"));
+        model.addAttribute("userEmail", oauth2User.getAttribute("email"));
+        try {
+            SearchPage results = searchPage(authorizedClient, q, page, size);
+            model.addAttribute("search", results);
+            model.addAttribute("contacts", results.getContacts());
+        } catch (PeopleApiUnavailableException | HttpClientErrorException.TooManyRequests | HttpServerErrorException e) {
+            model.addAttribute("errorMessage", "Google Contacts is temporarily unavailable. Please try again shortly.");
+            log.warn("API Error (Search)", e);
+            model.addAttribute("contacts", List.of());
+        }
+        return "contacts";
+    }
+
+    /**
+     * JSON variant of the search, for scripts and type-ahead.
+     *
+     * @param q The search text.
+     * @param page Zero-based page number.
+     * @param size Page size, at most 200.
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token for Google.
+     * @return The requested page of matches and the total number of matches.
+     */
+    @GetMapping(value = "/contacts/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public SearchPage searchJson(@RequestParam(defaultValue = "") String q,
+                                 @RequestParam(defaultValue = "0") int page,
+                                 @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                                 @RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient) {
+        return searchPage(authorizedClient, q, page, size);
+    }
+
+    private SearchPage searchPage(OAuth2AuthorizedClient authorizedClient, String q, int page, int size) {
+        return contactService.searchContacts(
+                authorizedClient.getPrincipalName(),
+                authorizedClient.getAccessToken().getTokenValue(),
+                q,
+                Math.max(0, page),
+                Math.max(1, Math.min(MAX_PAGE_SIZE, size)));
+    }
+}
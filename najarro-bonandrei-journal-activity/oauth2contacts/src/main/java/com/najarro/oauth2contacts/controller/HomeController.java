@@ -0,0 +1,56 @@
+package com.najarro.oauth2contacts.controller;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+
+/**
+ * Login and home pages. These don't touch the People API, so they are served the same way
+ * whichever People API client ({@code contacts.people-api.client}) is active.
+ */
+@Controller
+public class HomeController {
+
+    /**
+     * Handles the root URL and the custom /login endpoint.
+     * If the user is not authenticated, it provides a link to initiate Google OAuth login.
+     *
+     * @return The name of the Thymeleaf template for the home/login page.
+     */
+    @GetMapping
+    public String login() {
+        // Get the current authentication object from the SecurityContext
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        // Check if the user is authenticated (not anonymousUser and not null)
+        // Spring Security often uses "anonymousUser" for unauthenticated requests
+        if (authentication != null && authentication.isAuthenticated() &&
+            !"anonymousUser".equals(authentication.getPrincipal())) {
+            // User is authenticated, redirect to the home page
+            return "redirect:/home";
+        } else {
+            // User is not authenticated, show the login page
+            return "index"; // This will map to src/main/resources/templates/index.html
+        }
+    }
+
+    /**
+     * Handles the home page for authenticated users.
+     * Displays user information and a button to view contacts.
+     *
+     * @param oauth2User The authenticated OAuth2User representing the Google user.
+     * @param model The Model object to pass data to the Thymeleaf template.
+     * @return The name of the Thymeleaf template for the home page.
+     */
+    @GetMapping("/home")
+    public String home(@AuthenticationPrincipal OAuth2User oauth2User, Model model) {
+        System.out.println("User: " + oauth2User);
+        model.addAttribute("userName", oauth2User.getAttribute("name"));
+        model.addAttribute("userEmail", oauth2User.getAttribute("email"));
+        return "home"; // This will map to src/main/resources/templates/home.html
+    }
+}
@@ -0,0 +1,279 @@
+package com.najarro.oauth2contacts.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.najarro.oauth2contacts.model.Contact;
+import com.najarro.oauth2contacts.service.ContactPage;
+import com.najarro.oauth2contacts.service.ContactPayloads;
+import com.najarro.oauth2contacts.service.ContactSort;
+import com.najarro.oauth2contacts.service.ReactiveContactService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.annotation.RegisteredOAuth2AuthorizedClient;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Same endpoints as {@link GoogleContactsController}, backed by the non-blocking People API client.
+ * Handlers return a Mono, so Spring MVC completes them asynchronously and no request thread
+ * is held while a People API call is in flight.
+ */
+@Controller
+@ConditionalOnProperty(prefix = "contacts.people-api", name = "client", havingValue = "reactive")
+public class ReactiveGoogleContactsController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveGoogleContactsController.class);
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private final ReactiveContactService contactService;
+    private final ObjectMapper objectMapper;
+
+    public ReactiveGoogleContactsController(ReactiveContactService contactService) {
+        this.contactService = contactService;
+        this.objectMapper = new ObjectMapper();
+    }
+
+    /**
+     * Displays the form for adding a new contact or editing an existing one.
+     *
+     * @param resourceName Optional. The resourceName of the contact to edit. If null, it's an add operation.
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token.
+     * @param model The Model object to pass data to the Thymeleaf template.
+     * @param redirectAttributes Used for passing flash attributes after redirect.
+     * @return The name of the Thymeleaf template for the contact form.
+     */
+    @GetMapping("/contact-form")
+    public Mono<String> showContactForm(@RequestParam(required = false) String resourceName,
+                                        @RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient,
+                                        Model model,
+                                        RedirectAttributes redirectAttributes) {
+
+        model.addAttribute("contact", new Contact());
+        model.addAttribute("mode", "add");
+
+        if (resourceName == null || resourceName.isEmpty()) {
+            return Mono.just("contact_form");
+        }
+        return contactService.getContact(
+                        authorizedClient.getPrincipalName(),
+                        authorizedClient.getAccessToken().getTokenValue(),
+                        resourceName)
+                .map(existingContact -> {
+                    model.addAttribute("contact", existingContact);
+                    model.addAttribute("mode", "edit");
+                    return "contact_form";
+                })
+                .defaultIfEmpty("contact_form")
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    redirectAttributes.addFlashAttribute("errorMessage", "Contact not found for editing.");
+                    return Mono.just("redirect:/contacts");
+                })
+                .onErrorResume(e -> {
+                    redirectAttributes.addFlashAttribute("errorMessage", "Error fetching contact for editing: " + e.getMessage());
+                    return Mono.just("redirect:/contacts");
+                });
+    }
+
+    /**
+     * Handles the submission of the contact form (add or edit).
+     *
+     * @param contact The Contact object populated from the form.
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token.
+     * @param redirectAttributes Used for passing flash attributes after redirect.
+     * @return A redirect URL to the contacts list.
+     */
+    @PostMapping("/save-contact")
+    public Mono<String> saveContact(@ModelAttribute Contact contact,
+                                    @RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient,
+                                    RedirectAttributes redirectAttributes) {
+        String principalName = authorizedClient.getPrincipalName();
+        String accessToken = authorizedClient.getAccessToken().getTokenValue();
+
+        boolean create = contact.getResourceName() == null || contact.getResourceName().isEmpty();
+        // An edit only sends (and masks) the fields that differ from the etag-matched original
+        Map<String, Object> person = create
+                ? ContactPayloads.toPerson(contact)
+                : contactService.toUpdatePerson(principalName, contact);
+        String updatePersonFields = ContactPayloads.updatePersonFields(person);
+        if (!create && updatePersonFields.isEmpty()) {
+            redirectAttributes.addFlashAttribute("infoMessage", "No changes detected for contact.");
+            return Mono.just("redirect:/contacts");
+        }
+        String jsonBody;
+        try {
+            jsonBody = objectMapper.writeValueAsString(person);
+        } catch (JsonProcessingException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "An unexpected error occurred: " + e.getMessage());
+            return Mono.just("redirect:/contacts");
+        }
+
+        Mono<String> successMessage;
+        if (create) {
+            successMessage = contactService.createContact(principalName, accessToken, jsonBody)
+                    .thenReturn("Contact added successfully!");
+        } else {
+            successMessage = contactService.updateContact(principalName, accessToken,
+                            contact.getResourceName(), updatePersonFields, jsonBody)
+                    .thenReturn("Contact updated successfully!");
+        }
+
+        return successMessage
+                .doOnNext(message -> redirectAttributes.addFlashAttribute("successMessage", message))
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    redirectAttributes.addFlashAttribute("errorMessage", "API Error: " + e.getResponseBodyAsString());
+                    log.warn("API Error: {}", e.getResponseBodyAsString(), e);
+                    return Mono.empty();
+                })
+                .onErrorResume(e -> {
+                    redirectAttributes.addFlashAttribute("errorMessage", "An unexpected error occurred: " + e.getMessage());
+                    log.error("Unexpected Error", e);
+                    return Mono.empty();
+                })
+                .thenReturn("redirect:/contacts");
+    }
+
+    /**
+     * Fetches and displays one page of the user's Google Contacts; the rest is loaded by the
+     * page's infinite scroll from {@link #getContactsJson}.
+     *
+     * @param page Zero-based page number.
+     * @param size Page size, at most 200.
+     * @param sort name or email; anything else sorts by name.
+     * @param dir asc or desc.
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token for Google.
+     * @param oauth2User The authenticated OAuth2User representing the Google user.
+     * @param model The Model object to pass data to the Thymeleaf template.
+     * @return The name of the Thymeleaf template to display contacts.
+     */
+    @GetMapping("/contacts")
+    public Mono<String> getContacts(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "name") String sort,
+            @RequestParam(defaultValue = "asc") String dir,
+            @RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient,
+            @AuthenticationPrincipal OAuth2User oauth2User,
+            Model model) {
+
+        model.addAttribute("userName", oauth2User.getAttribute("name"));
+        model.addAttribute("userEmail", oauth2User.getAttribute("email"));
+
+        return contactPage(authorizedClient, page, size, sort, dir)
+                .map(contacts -> {
+                    model.addAttribute("page", contacts);
+                    model.addAttribute("contacts", contacts.getContacts());
+                    return "contacts";
+                });
+    }
+
+    /**
+     * JSON variant of the contacts list, for the contacts page's infinite scroll.
+     *
+     * @param page Zero-based page number.
+     * @param size Page size, at most 200.
+     * @param sort name or email; anything else sorts by name.
+     * @param dir asc or desc.
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token for Google.
+     * @return The requested page and the total number of contacts.
+     */
+    @GetMapping(value = "/contacts", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public Mono<ContactPage> getContactsJson(@RequestParam(defaultValue = "0") int page,
+                                             @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                                             @RequestParam(defaultValue = "name") String sort,
+                                             @RequestParam(defaultValue = "asc") String dir,
+                                             @RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient) {
+        return contactPage(authorizedClient, page, size, sort, dir);
+    }
+
+    private Mono<ContactPage> contactPage(OAuth2AuthorizedClient authorizedClient, int page, int size, String sort, String dir) {
+        ContactSort contactSort = ContactSort.fromParam(sort);
+        return contactService.listContacts(
+                authorizedClient.getPrincipalName(),
+                authorizedClient.getAccessToken().getTokenValue(),
+                contactSort != null ? contactSort : ContactSort.NAME,
+                "desc".equalsIgnoreCase(dir),
+                Math.max(0, page),
+                Math.max(1, Math.min(MAX_PAGE_SIZE, size)));
+    }
+
+    /**
+     * Handles the deletion of a contact.
+     *
+     * @param resourceName The resourceName of the contact to delete.
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token.
+     * @param redirectAttributes Used for passing flash attributes after redirect.
+     * @return A redirect URL to the contacts list.
+     */
+    @PostMapping("/delete-contact")
+    public Mono<String> deleteContact(@RequestParam String resourceName,
+                                      @RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient,
+                                      RedirectAttributes redirectAttributes) {
+        return contactService.deleteContact(
+                        authorizedClient.getPrincipalName(),
+                        authorizedClient.getAccessToken().getTokenValue(),
+                        resourceName)
+                .doOnSuccess(ignored -> redirectAttributes.addFlashAttribute("successMessage", "Contact deleted successfully!"))
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    redirectAttributes.addFlashAttribute("errorMessage", "Contact not found for deletion.");
+                    log.warn("API Error (Delete - Not Found): {}", e.getResponseBodyAsString());
+                    return Mono.empty();
+                })
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    redirectAttributes.addFlashAttribute("errorMessage", "API Error deleting contact: " + e.getResponseBodyAsString());
+                    log.warn("API Error (Delete): {}", e.getResponseBodyAsString(), e);
+                    return Mono.empty();
+                })
+                .onErrorResume(e -> {
+                    redirectAttributes.addFlashAttribute("errorMessage", "An unexpected error occurred during deletion: " + e.getMessage());
+                    log.error("Unexpected Error (Delete)", e);
+                    return Mono.empty();
+                })
+                .thenReturn("redirect:/contacts");
+    }
+
+    /**
+     * Deletes a contact for the contacts page's in-place delete; the row is removed through the
+     * contact event stream instead of a redirect.
+     *
+     * @param resourceName The resourceName of the contact to delete.
+     * @param authorizedClient The OAuth2AuthorizedClient containing the access token.
+     * @return 204 when deleted, otherwise the error status with a message.
+     */
+    @PostMapping(value = "/delete-contact", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public Mono<ResponseEntity<Map<String, String>>> deleteContactJson(@RequestParam String resourceName,
+                                                                       @RegisteredOAuth2AuthorizedClient("google") OAuth2AuthorizedClient authorizedClient) {
+        return contactService.deleteContact(
+                        authorizedClient.getPrincipalName(),
+                        authorizedClient.getAccessToken().getTokenValue(),
+                        resourceName)
+                .then(Mono.just(ResponseEntity.noContent().<Map<String, String>>build()))
+                .onErrorResume(WebClientResponseException.NotFound.class, e ->
+                        Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Contact not found for deletion."))))
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    log.warn("API Error (Delete): {}", e.getResponseBodyAsString(), e);
+                    return Mono.just(ResponseEntity.status(e.getStatusCode())
+                            .body(Map.of("error", "API Error deleting contact: " + e.getResponseBodyAsString())));
+                });
+    }
+}
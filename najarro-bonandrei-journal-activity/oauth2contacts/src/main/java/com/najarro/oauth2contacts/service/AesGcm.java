@@ -0,0 +1,100 @@
+package com.najarro.oauth2contacts.service;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * AES-GCM encryption for everything that leaves the JVM with contacts or tokens in it: the
+ * {@link ContactSnapshotStore} files and the values in the {@link SharedStore}. Every value gets a
+ * random 96 bit IV, and is authenticated together with associated data naming whose it is, so a
+ * value that was tampered with, encrypted with another key or copied under another user's key
+ * fails to decrypt instead of being served.
+ */
+public final class AesGcm {
+
+    public static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+
+    private AesGcm(byte[] key) {
+        this.key = new SecretKeySpec(key, "AES");
+    }
+
+    /**
+     * @param base64Key A base64 encoded 128 or 256 bit key.
+     * @param property The setting the key came from, named in the error if it isn't valid.
+     */
+    public static AesGcm fromBase64(String base64Key, String property) {
+        byte[] keyBytes = base64Key != null ? Base64.getDecoder().decode(base64Key.trim()) : new byte[0];
+        if (keyBytes.length != 16 && keyBytes.length != 32) {
+            throw new IllegalStateException(property + " must be a base64 encoded 128 or 256 bit key");
+        }
+        return new AesGcm(keyBytes);
+    }
+
+    /**
+     * @return An instance with a random 256 bit key, for values that never outlive this JVM.
+     */
+    public static AesGcm withRandomKey() {
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        return new AesGcm(keyBytes);
+    }
+
+    /**
+     * Encrypts a value as {@code IV | ciphertext and tag}.
+     *
+     * @param associatedData Authenticated with the value but not stored, e.g. the principal name.
+     */
+    public byte[] seal(byte[] plain, String associatedData) {
+        byte[] iv = newIv();
+        try {
+            Cipher cipher = cipher(Cipher.ENCRYPT_MODE, iv, associatedData.getBytes(StandardCharsets.UTF_8));
+            byte[] sealed = Arrays.copyOf(iv, IV_LENGTH + cipher.getOutputSize(plain.length));
+            cipher.doFinal(plain, 0, plain.length, sealed, IV_LENGTH);
+            return sealed;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Can't encrypt with AES-GCM", e);
+        }
+    }
+
+    /**
+     * Decrypts a value written by {@link #seal}.
+     *
+     * @throws GeneralSecurityException If it was not sealed with this key and associated data, or was changed since.
+     */
+    public byte[] open(byte[] sealed, String associatedData) throws GeneralSecurityException {
+        if (sealed.length < IV_LENGTH) {
+            throw new GeneralSecurityException("Sealed value is too short");
+        }
+        Cipher cipher = cipher(Cipher.DECRYPT_MODE, Arrays.copyOf(sealed, IV_LENGTH),
+                associatedData.getBytes(StandardCharsets.UTF_8));
+        return cipher.doFinal(sealed, IV_LENGTH, sealed.length - IV_LENGTH);
+    }
+
+    public byte[] newIv() {
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        return iv;
+    }
+
+    /**
+     * A cipher for callers that lay out their own IV and header, like the snapshot files.
+     */
+    public Cipher cipher(int mode, byte[] iv, byte[]... associatedData) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(mode, key, new GCMParameterSpec(TAG_BITS, iv));
+        for (byte[] data : associatedData) {
+            cipher.updateAAD(data);
+        }
+        return cipher;
+    }
+}
@@ -0,0 +1,78 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a batch create, update or delete, merged across all the chunks it was sent in.
+ * A chunk can fail as a whole (the call itself was rejected) or per person (the call succeeded
+ * but individual entries carry an error status).
+ */
+public class BatchResult {
+
+    private final int succeeded;
+    private final int failed;
+    private final List<Contact> contacts;
+    private final List<String> errors;
+
+    public BatchResult(int succeeded, int failed, List<Contact> contacts, List<String> errors) {
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.contacts = contacts != null ? contacts : Collections.emptyList();
+        this.errors = errors != null ? errors : Collections.emptyList();
+    }
+
+    /**
+     * A result with the people the API returned and the per-person errors it reported.
+     */
+    public static BatchResult of(List<Contact> contacts, List<String> errors) {
+        return new BatchResult(contacts.size(), errors.size(), contacts, errors);
+    }
+
+    public static BatchResult deleted(int count) {
+        return new BatchResult(count, 0, null, null);
+    }
+
+    /**
+     * A chunk whose call failed outright; none of its entries were applied.
+     */
+    public static BatchResult failed(int count, String error) {
+        return new BatchResult(0, count, null, List.of(error));
+    }
+
+    public static BatchResult merge(List<BatchResult> results) {
+        int succeeded = 0;
+        int failed = 0;
+        List<Contact> contacts = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (BatchResult result : results) {
+            succeeded += result.succeeded;
+            failed += result.failed;
+            contacts.addAll(result.contacts);
+            errors.addAll(result.errors);
+        }
+        return new BatchResult(succeeded, failed, contacts, errors);
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * The created or updated people as returned by the API (with their new etags); empty for deletes.
+     */
+    public List<Contact> getContacts() {
+        return contacts;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,63 @@
+package com.najarro.oauth2contacts.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Reads what {@link BinaryWriter} wrote. Malformed input fails with an
+ * {@link IllegalArgumentException} or a {@link java.nio.BufferUnderflowException}.
+ */
+final class BinaryReader {
+
+    private final ByteBuffer buffer;
+
+    BinaryReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    BinaryReader(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    int varint() {
+        long value = varlong();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Corrupt length " + value);
+        }
+        return (int) value;
+    }
+
+    long varlong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupt varint");
+    }
+
+    String string() {
+        int length = varint();
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    Instant instant() {
+        long value = varlong();
+        return value > 0 ? Instant.ofEpochMilli(value - 1) : null;
+    }
+
+    byte[] bytes() {
+        byte[] bytes = new byte[varint()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,56 @@
+package com.najarro.oauth2contacts.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Compact binary encoding shared by the stored and shared copies of cached state: counts and
+ * numbers are varints, strings their UTF-8 length plus one (0 for null) followed by the bytes,
+ * and instants epoch milliseconds plus one (0 for null). Read back with {@link BinaryReader}.
+ */
+final class BinaryWriter {
+
+    private final ByteArrayOutputStream out;
+
+    BinaryWriter(int initialSize) {
+        this.out = new ByteArrayOutputStream(initialSize);
+    }
+
+    BinaryWriter varint(int value) {
+        return varlong(value);
+    }
+
+    BinaryWriter varlong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+        return this;
+    }
+
+    BinaryWriter string(String value) {
+        if (value == null) {
+            return varint(0);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        varint(bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+        return this;
+    }
+
+    BinaryWriter instant(Instant value) {
+        return varlong(value != null ? value.toEpochMilli() + 1 : 0);
+    }
+
+    BinaryWriter bytes(byte[] value) {
+        varint(value.length);
+        out.write(value, 0, value.length);
+        return this;
+    }
+
+    byte[] toByteArray() {
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,69 @@
+package com.najarro.oauth2contacts.service;
+
+/**
+ * Consecutive-failure circuit breaker. Opens after failureThreshold failed calls in a row, rejects
+ * calls while open, and after openNanos lets a single trial call through (half-open) whose outcome
+ * closes it again or re-opens it.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    CircuitBreaker(int failureThreshold, long openNanos) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openNanos;
+    }
+
+    /**
+     * @return True if a call may be made now. While half-open only the first caller gets through.
+     */
+    synchronized boolean tryAcquire(long nowNanos) {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && nowNanos - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    synchronized void onFailure(long nowNanos) {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = nowNanos;
+        }
+    }
+
+    /**
+     * Frees the half-open trial slot when the trial call was not made after all.
+     */
+    synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+        }
+    }
+
+    /**
+     * @return True if {@link #tryAcquire} would turn a call away now (open, or half-open with its trial in flight).
+     */
+    synchronized boolean isRejecting(long nowNanos) {
+        return state == State.HALF_OPEN || state == State.OPEN && nowNanos - openedAt < openNanos;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
@@ -0,0 +1,54 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a people/me/connections response, already mapped to {@link Contact}s.
+ * Also carries the resourceNames reported as deleted (incremental syncs only) and the tokens
+ * needed to continue paging.
+ */
+public class ConnectionsPage {
+
+    private final List<Contact> contacts;
+    private final List<String> deletedResourceNames;
+    private final String nextPageToken;
+    private final String nextSyncToken;
+
+    public ConnectionsPage(List<Contact> contacts, String nextPageToken) {
+        this(contacts, null, nextPageToken, null);
+    }
+
+    public ConnectionsPage(List<Contact> contacts, List<String> deletedResourceNames,
+                           String nextPageToken, String nextSyncToken) {
+        this.contacts = contacts != null ? contacts : Collections.emptyList();
+        this.deletedResourceNames = deletedResourceNames != null ? deletedResourceNames : Collections.emptyList();
+        this.nextPageToken = nextPageToken;
+        this.nextSyncToken = nextSyncToken;
+    }
+
+    public List<Contact> getContacts() {
+        return contacts;
+    }
+
+    public List<String> getDeletedResourceNames() {
+        return deletedResourceNames;
+    }
+
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    /**
+     * Only present on the last page of a listing made with requestSyncToken=true.
+     */
+    public String getNextSyncToken() {
+        return nextSyncToken;
+    }
+
+    public boolean hasNextPage() {
+        return nextPageToken != null && !nextPageToken.isEmpty();
+    }
+}
@@ -0,0 +1,217 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.config.PeopleApiProperties;
+import com.najarro.oauth2contacts.model.Contact;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bulk create, update and delete on top of the People API batch endpoints.
+ * Input is split into chunks of the most each endpoint accepts, the chunks are sent with at most
+ * {@code contacts.people-api.batch-parallelism} calls in flight, chunks still unsent after
+ * {@code contacts.people-api.batch-timeout} are reported as failed, and the results are written
+ * through to the user's cached contacts the same way {@link ContactService} does for single contacts.
+ */
+@Service
+public class ContactBatchService {
+
+    private final PeopleApiClient peopleApiClient;
+    private final ContactCache contactCache;
+    private final PersonCache personCache;
+    private final Executor executor;
+    private final PeopleApiProperties properties;
+
+    public ContactBatchService(PeopleApiClient peopleApiClient,
+                               ContactCache contactCache,
+                               PersonCache personCache,
+                               @Qualifier("peopleApiExecutor") Executor executor,
+                               PeopleApiProperties properties) {
+        this.peopleApiClient = peopleApiClient;
+        this.contactCache = contactCache;
+        this.personCache = personCache;
+        this.executor = executor;
+        this.properties = properties;
+    }
+
+    /**
+     * Creates the given contacts.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param contacts The contacts to create; resourceName and etag are ignored.
+     * @return The created contacts and any errors.
+     */
+    public BatchResult createContacts(String principalName, String accessToken, List<Contact> contacts) {
+        List<Map<String, Object>> persons = new ArrayList<>(contacts.size());
+        for (Contact contact : contacts) {
+            Map<String, Object> person = ContactPayloads.toPerson(contact);
+            person.remove("etag");
+            persons.add(person);
+        }
+        BatchResult result = run(chunks(persons, PeopleApiClient.MAX_BATCH_MUTATE_SIZE,
+                chunk -> peopleApiClient.batchCreateContacts(principalName, accessToken, chunk)));
+        writeThrough(principalName, result.getContacts());
+        return result;
+    }
+
+    /**
+     * Updates the given contacts. Each must carry the resourceName and etag it was read with.
+     * Contacts are grouped by their update mask, since a batch call applies one mask to all of them.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param contacts The contacts to update.
+     * @return The updated contacts (with their new etags) and any errors.
+     */
+    public BatchResult updateContacts(String principalName, String accessToken, List<Contact> contacts) {
+        Map<String, List<Contact>> byMask = new LinkedHashMap<>();
+        List<BatchResult> rejected = new ArrayList<>();
+        for (Contact contact : contacts) {
+            if (contact.getResourceName() == null || contact.getResourceName().isEmpty()
+                    || contact.getEtag() == null || contact.getEtag().isEmpty()) {
+                rejected.add(BatchResult.failed(1, "resourceName and etag are required for an update"));
+                continue;
+            }
+            String mask = ContactPayloads.updatePersonFields(ContactPayloads.toPerson(contact));
+            byMask.computeIfAbsent(mask, key -> new ArrayList<>()).add(contact);
+        }
+
+        List<Chunk> calls = new ArrayList<>();
+        byMask.forEach((mask, group) -> calls.addAll(chunks(group, PeopleApiClient.MAX_BATCH_MUTATE_SIZE, chunk -> {
+            Map<String, Map<String, Object>> persons = new LinkedHashMap<>();
+            for (Contact contact : chunk) {
+                persons.put(contact.getResourceName(), ContactPayloads.toPerson(contact));
+            }
+            return peopleApiClient.batchUpdateContacts(principalName, accessToken, persons, mask);
+        })));
+
+        BatchResult result = run(calls);
+        writeThrough(principalName, result.getContacts());
+        rejected.add(result);
+        return BatchResult.merge(rejected);
+    }
+
+    /**
+     * Deletes the given contacts. Duplicate resourceNames are only sent once.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param resourceNames The resourceNames of the contacts to delete.
+     * @return How many were deleted, and the errors of the chunks that were not.
+     */
+    public BatchResult deleteContacts(String principalName, String accessToken, List<String> resourceNames) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(resourceNames));
+        return run(chunks(distinct, PeopleApiClient.MAX_BATCH_DELETE_SIZE, chunk -> {
+            peopleApiClient.batchDeleteContacts(principalName, accessToken, chunk);
+            evict(principalName, chunk);
+            return BatchResult.deleted(chunk.size());
+        }));
+    }
+
+    /**
+     * Splits the items into calls of at most chunkSize items each. A call that fails outright is
+     * turned into a failed result for its chunk, so one bad chunk doesn't lose the others.
+     */
+    private static <T> List<Chunk> chunks(List<T> items, int chunkSize, Function<List<T>, BatchResult> call) {
+        List<Chunk> calls = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            List<T> chunk = items.subList(from, Math.min(items.size(), from + chunkSize));
+            calls.add(new Chunk(chunk.size(), () -> {
+                try {
+                    return call.apply(chunk);
+                } catch (HttpStatusCodeException e) {
+                    return BatchResult.failed(chunk.size(), e.getStatusCode() + ": " + e.getResponseBodyAsString());
+                } catch (RestClientException | UncheckedIOException | PeopleApiUnavailableException e) {
+                    return BatchResult.failed(chunk.size(), e.getMessage());
+                }
+            }));
+        }
+        return calls;
+    }
+
+    /**
+     * Runs the calls on the People API executor, at most batch-parallelism of them at a time. Each of
+     * that many workers takes the next unsent chunk until none are left, so the request thread never
+     * waits for a free slot; it only waits, up to batch-timeout, for the whole batch. Chunks without a
+     * result by then (unsent, or still in flight) are reported as failed and no longer sent.
+     */
+    private BatchResult run(List<Chunk> calls) {
+        if (calls.size() == 1) {
+            return calls.get(0).call().get();
+        }
+        AtomicReferenceArray<BatchResult> results = new AtomicReferenceArray<>(calls.size());
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < calls.size() && !cancelled.get(); i = next.getAndIncrement()) {
+                Chunk chunk = calls.get(i);
+                try {
+                    results.set(i, chunk.call().get());
+                } catch (RuntimeException e) {
+                    results.set(i, BatchResult.failed(chunk.size(), e.getMessage()));
+                }
+            }
+        };
+
+        int workers = Math.min(properties.getBatchParallelism(), calls.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(workers);
+        try {
+            for (int i = 0; i < workers; i++) {
+                futures.add(CompletableFuture.runAsync(worker, executor));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .get(properties.getBatchTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException | ExecutionException | RejectedExecutionException e) {
+            // Whatever finished is kept below; the rest is reported as failed.
+        } finally {
+            cancelled.set(true);
+        }
+
+        List<BatchResult> merged = new ArrayList<>(calls.size());
+        for (int i = 0; i < calls.size(); i++) {
+            BatchResult result = results.get(i);
+            merged.add(result != null ? result
+                    : BatchResult.failed(calls.get(i).size(), "Not completed within " + properties.getBatchTimeout()));
+        }
+        return BatchResult.merge(merged);
+    }
+
+    private void writeThrough(String principalName, List<Contact> contacts) {
+        for (Contact contact : contacts) {
+            personCache.evict(principalName, contact.getResourceName());
+        }
+        contactCache.writeThrough(principalName, contacts, List.of());
+    }
+
+    private void evict(String principalName, List<String> resourceNames) {
+        for (String resourceName : resourceNames) {
+            personCache.evict(principalName, resourceName);
+        }
+        contactCache.writeThrough(principalName, List.of(), resourceNames);
+    }
+
+    private record Chunk(int size, Supplier<BatchResult> call) {
+    }
+}
@@ -0,0 +1,288 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.config.ContactCacheProperties;
+import com.najarro.oauth2contacts.model.Contact;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Per-user contact cache keyed by the OAuth2 principal name.
+ * Bounded to {@code contacts.cache.max-users} entries with least-recently-used eviction, and
+ * entries that have not been read for {@code contacts.cache.ttl} are dropped on access.
+ * <p>
+ * With the {@link ContactSnapshotStore} enabled, snapshots that changed are written to disk every
+ * {@code contacts.snapshot-store.flush-interval} and on shutdown, and a miss is served from disk
+ * when there is a stored copy, so users stay warm across restarts and evictions.
+ * <p>
+ * With the shared store enabled, this cache is the node's near cache in front of the
+ * {@link SharedContactSnapshots}: a miss is served from the shared copy before the disk, changed
+ * snapshots are shared every {@code contacts.shared-store.flush-interval}, and a snapshot another
+ * node shared replaces the local copy on its next read. Changes made here in the meantime are on
+ * Google already, so the next incremental sync brings them back.
+ */
+@Component
+public class ContactCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ContactCache.class);
+
+    private final ContactCacheProperties properties;
+    private final Clock clock;
+    private final ContactSnapshotStore store;
+    private final SharedContactSnapshots shared;
+    private final LinkedHashMap<String, Entry> entries;
+    private volatile BiConsumer<String, ContactDelta> changeListener;
+    private long invalidations;
+
+    @Autowired
+    public ContactCache(ContactCacheProperties properties, ContactSnapshotStore store,
+                        ObjectProvider<SharedContactSnapshots> shared) {
+        this(properties, Clock.systemUTC(), store, shared.getIfAvailable());
+    }
+
+    ContactCache(ContactCacheProperties properties, Clock clock) {
+        this(properties, clock, null, null);
+    }
+
+    ContactCache(ContactCacheProperties properties, Clock clock, ContactSnapshotStore store,
+                 SharedContactSnapshots shared) {
+        this.properties = properties;
+        this.clock = clock;
+        this.store = store != null && store.isEnabled() ? store : null;
+        this.shared = shared;
+        // Access-ordered so that the eldest entry is always the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > properties.getMaxUsers();
+            }
+        };
+        if (shared != null) {
+            shared.onRemoteChange(this::drop);
+        }
+    }
+
+    /**
+     * @param principalName The OAuth2 principal name of the user.
+     * @return The user's snapshot, or null if none is cached (or shared or stored) or it has expired.
+     */
+    public ContactSnapshot get(String principalName) {
+        long seen;
+        synchronized (this) {
+            Entry entry = entries.get(principalName);
+            if (entry != null) {
+                Instant now = clock.instant();
+                if (!entry.lastAccess.plus(properties.getTtl()).isBefore(now)) {
+                    entry.lastAccess = now;
+                    return entry.snapshot;
+                }
+                entries.remove(principalName);
+            }
+            if (shared == null && store == null) {
+                return null;
+            }
+            seen = invalidations;
+        }
+        // Read outside the lock; either copy is only older than the cached one it was written from
+        ContactSnapshot restored = shared != null ? shared.load(principalName) : null;
+        boolean fromShared = restored != null;
+        if (restored == null && store != null) {
+            restored = store.load(principalName);
+        }
+        if (restored == null) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(principalName);
+            if (entry != null) {
+                return entry.snapshot;
+            }
+            if (invalidations != seen) {
+                return null;
+            }
+            entry = put(principalName, restored, clock.instant());
+            if (fromShared) {
+                entry.sharedVersion = restored.getVersion();
+            } else {
+                entry.writtenVersion = restored.getVersion();
+            }
+            return restored;
+        }
+    }
+
+    /**
+     * Caches a user's snapshot. Changes made to it from now on are reported to the change listener.
+     */
+    public synchronized void put(String principalName, ContactSnapshot snapshot) {
+        put(principalName, snapshot, clock.instant());
+    }
+
+    private Entry put(String principalName, ContactSnapshot snapshot, Instant now) {
+        snapshot.setListener(delta -> {
+            BiConsumer<String, ContactDelta> listener = changeListener;
+            if (listener != null) {
+                listener.accept(principalName, delta);
+            }
+        });
+        Entry entry = new Entry(snapshot, now);
+        entries.put(principalName, entry);
+        return entry;
+    }
+
+    /**
+     * Sets the callback told about every change to a cached snapshot, with the principal name of its user.
+     */
+    public void onChange(BiConsumer<String, ContactDelta> listener) {
+        this.changeListener = listener;
+    }
+
+    /**
+     * Applies a local write to the user's cached contacts, if they are cached: the contacts the
+     * People API returned replace the cached copies and the deleted ones are dropped.
+     * The snapshot's syncedAt is left as it is, so the next incremental sync still falls due on
+     * schedule and picks up what changed on Google or on other devices in the meantime.
+     */
+    public void writeThrough(String principalName, Collection<Contact> written, Collection<String> deleted) {
+        ContactSnapshot snapshot = get(principalName);
+        if (snapshot == null) {
+            return;
+        }
+        for (Contact contact : written) {
+            snapshot.put(contact);
+        }
+        for (String resourceName : deleted) {
+            snapshot.remove(resourceName);
+        }
+    }
+
+    /**
+     * Drops the user's snapshot, and its stored copy, so that the next read loads it in full.
+     */
+    public void invalidate(String principalName) {
+        synchronized (this) {
+            Entry entry = entries.remove(principalName);
+            if (entry != null) {
+                entry.invalidated = true;
+            }
+            invalidations++;
+        }
+        if (store != null) {
+            store.delete(principalName);
+        }
+        if (shared != null) {
+            shared.delete(principalName);
+        }
+    }
+
+    /**
+     * Drops the local copy of a snapshot another node changed; the next read takes the shared one.
+     */
+    private synchronized void drop(String principalName) {
+        entries.remove(principalName);
+        invalidations++;
+    }
+
+    /**
+     * Writes every cached snapshot that changed since it was last written (or restored) to the
+     * {@link ContactSnapshotStore}. Snapshots still loading have no syncToken and are skipped.
+     */
+    @Scheduled(fixedDelayString = "${contacts.snapshot-store.flush-interval:60s}")
+    @PreDestroy
+    public void flush() {
+        if (store == null) {
+            return;
+        }
+        for (Map.Entry<String, Entry> cached : entries()) {
+            Entry entry = cached.getValue();
+            if (isWritable(entry, entry.writtenVersion)) {
+                try {
+                    entry.writtenVersion = store.save(cached.getKey(), entry.snapshot);
+                    if (entry.invalidated) {
+                        // Invalidated while it was being written
+                        store.delete(cached.getKey());
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Contact snapshot of {} not written", cached.getKey(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Shares every cached snapshot that changed since it was last shared (or read from the
+     * {@link SharedContactSnapshots}), which drops the other nodes' copies.
+     */
+    @Scheduled(fixedDelayString = "${contacts.shared-store.flush-interval:1s}")
+    public void share() {
+        if (shared == null) {
+            return;
+        }
+        for (Map.Entry<String, Entry> cached : entries()) {
+            Entry entry = cached.getValue();
+            if (isWritable(entry, entry.sharedVersion)) {
+                try {
+                    entry.sharedVersion = shared.save(cached.getKey(), entry.snapshot);
+                    if (entry.invalidated) {
+                        shared.delete(cached.getKey());
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Contact snapshot of {} not shared", cached.getKey(), e);
+                }
+            }
+        }
+    }
+
+    private synchronized List<Map.Entry<String, Entry>> entries() {
+        List<Map.Entry<String, Entry>> cached = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            cached.add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+        return cached;
+    }
+
+    private static boolean isWritable(Entry entry, long writtenVersion) {
+        return !entry.invalidated && entry.snapshot.getSyncToken() != null && entry.snapshot.getVersion() != writtenVersion;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return True when the snapshot has not been synchronized within {@code contacts.cache.sync-interval}.
+     */
+    public boolean isDueForSync(ContactSnapshot snapshot) {
+        Instant syncedAt = snapshot.getSyncedAt();
+        return syncedAt == null || syncedAt.plus(properties.getSyncInterval()).isBefore(clock.instant());
+    }
+
+    public Instant now() {
+        return clock.instant();
+    }
+
+    private static final class Entry {
+        private final ContactSnapshot snapshot;
+        private Instant lastAccess;
+        private volatile long writtenVersion = -1;
+        private volatile long sharedVersion = -1;
+        private volatile boolean invalidated;
+
+        private Entry(ContactSnapshot snapshot, Instant lastAccess) {
+            this.snapshot = snapshot;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
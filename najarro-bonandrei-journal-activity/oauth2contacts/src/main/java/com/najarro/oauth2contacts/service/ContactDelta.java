@@ -0,0 +1,17 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+/**
+ * A row-level change to a user's cached contacts, pushed to their open contacts pages.
+ *
+ * @param type What happened to the contact.
+ * @param resourceName The contact's resourceName.
+ * @param contact The contact as it is now; null when it was deleted.
+ */
+public record ContactDelta(Type type, String resourceName, Contact contact) {
+
+    public enum Type {
+        ADDED, UPDATED, DELETED
+    }
+}
@@ -0,0 +1,437 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds contacts that are likely the same person, and merges them.
+ * <p>
+ * Contacts are never compared pair by pair across the whole address book. Each is reduced to
+ * blocking keys and only contacts sharing a key are joined, through a hash map per key type:
+ * <ul>
+ *   <li>every email address, lower-cased (and for Gmail without dots and "+tags");</li>
+ *   <li>every phone number in E.164 form, assuming the default calling code for numbers without one;</li>
+ *   <li>the full name with its words in sorted order, so swapped first and last names still match;</li>
+ *   <li>the first two letters of the first name with either the first or the last two letters of
+ *   the last name. Only within these small blocks are names compared, and a pair matches when both
+ *   its first and its last names are within the Jaro-Winkler threshold ("Jon"/"John",
+ *   "Smyth"/"Smith").</li>
+ * </ul>
+ * Matches are merged transitively with a union-find, so the whole pass is linear in the number of
+ * contacts plus the (bounded) block comparisons.
+ */
+public final class ContactDuplicates {
+
+    static final String EMAIL = "email";
+    static final String PHONE = "phone";
+    static final String NAME = "name";
+    private static final String[] REASONS = {EMAIL, PHONE, NAME};
+    private static final int BY_EMAIL = 0;
+    private static final int BY_PHONE = 1;
+    private static final int BY_NAME = 2;
+    private static final int MIN_PHONE_DIGITS = 7;
+    private static final int FIRST_NAME_PREFIX = 2;
+    private static final int LAST_NAME_AFFIX = 2;
+
+    private final String defaultCountryCode;
+    private final double nameSimilarity;
+    private final int maxBlockSize;
+
+    public ContactDuplicates(String defaultCountryCode, double nameSimilarity, int maxBlockSize) {
+        this.defaultCountryCode = digitsOf(defaultCountryCode);
+        this.nameSimilarity = nameSimilarity;
+        this.maxBlockSize = maxBlockSize;
+    }
+
+    /**
+     * @param contacts The user's contacts.
+     * @return The groups of two or more likely duplicates, largest first.
+     */
+    public List<DuplicateGroup> find(List<Contact> contacts) {
+        int size = contacts.size();
+        Groups groups = new Groups(size);
+        Map<String, Integer> byEmail = HashMap.newHashMap(size);
+        Map<String, Integer> byPhone = HashMap.newHashMap(size);
+        Map<String, Integer> byName = HashMap.newHashMap(size);
+        // Every contact is in two blocks; each block is a chain through nextInBlock, starting at the
+        // entry held in blocks, where entry 2i + pass stands for contact i in that pass
+        Map<String, Integer> blocks = HashMap.newHashMap(2 * size);
+        int[] nextInBlock = new int[2 * size];
+        String[] firstNames = new String[size];
+        String[] lastNames = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            Contact contact = contacts.get(i);
+            if (contact.getEmailAddresses() != null) {
+                for (Contact.EmailAddress email : contact.getEmailAddresses()) {
+                    join(groups, byEmail, emailKey(email.getValue()), i, BY_EMAIL);
+                }
+            }
+            if (contact.getPhoneNumbers() != null) {
+                for (Contact.PhoneNumber phone : contact.getPhoneNumbers()) {
+                    join(groups, byPhone, phoneKey(phone.getValue()), i, BY_PHONE);
+                }
+            }
+            String first = namePart(contact.getFirstName());
+            String last = namePart(contact.getLastName());
+            join(groups, byName, nameKey(first, last), i, BY_NAME);
+            if (!first.isEmpty() && !last.isEmpty()) {
+                firstNames[i] = first;
+                lastNames[i] = last;
+                // Two passes, so a typo in the last name still leaves the pair sharing one of them
+                String initials = first.substring(0, Math.min(FIRST_NAME_PREFIX, first.length()));
+                int cut = Math.min(LAST_NAME_AFFIX, last.length());
+                link(blocks, nextInBlock, initials + '<' + last.substring(0, cut), 2 * i);
+                link(blocks, nextInBlock, initials + '>' + last.substring(last.length() - cut), 2 * i + 1);
+            }
+        }
+
+        for (int head : blocks.values()) {
+            if (nextInBlock[head] < 0 || !fitsBlock(nextInBlock, head)) {
+                continue;
+            }
+            for (int a = head; a >= 0; a = nextInBlock[a]) {
+                int i = a / 2;
+                for (int b = nextInBlock[a]; b >= 0; b = nextInBlock[b]) {
+                    int j = b / 2;
+                    if (groups.root(i) != groups.root(j)
+                            && jaroWinkler(firstNames[i], firstNames[j]) >= nameSimilarity
+                            && jaroWinkler(lastNames[i], lastNames[j]) >= nameSimilarity) {
+                        groups.union(i, j, BY_NAME);
+                    }
+                }
+            }
+        }
+
+        Map<Integer, List<Contact>> members = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            int root = groups.root(i);
+            if (groups.size[root] > 1) {
+                members.computeIfAbsent(root, key -> new ArrayList<>(groups.size[root])).add(contacts.get(i));
+            }
+        }
+        List<DuplicateGroup> result = new ArrayList<>(members.size());
+        members.forEach((root, group) -> {
+            group.sort(Comparator.comparingInt(ContactDuplicates::completeness).reversed());
+            List<String> reasons = new ArrayList<>(REASONS.length);
+            for (int reason = 0; reason < REASONS.length; reason++) {
+                if ((groups.reasons[root] & (1 << reason)) != 0) {
+                    reasons.add(REASONS[reason]);
+                }
+            }
+            result.add(new DuplicateGroup(List.copyOf(group), List.copyOf(reasons)));
+        });
+        result.sort(Comparator.comparingInt((DuplicateGroup group) -> group.getContacts().size()).reversed());
+        return result;
+    }
+
+    /**
+     * Folds the duplicates into the survivor: a survivor without a name takes that of the first
+     * duplicate with one, and emails and phone numbers it doesn't already have (compared by their
+     * normalized form) are appended in order. The survivor itself is left unchanged.
+     *
+     * @return A copy of the survivor, with its resourceName and etag, holding the merged fields.
+     */
+    public Contact merge(Contact survivor, List<Contact> duplicates) {
+        Contact merged = new Contact();
+        merged.setResourceName(survivor.getResourceName());
+        merged.setEtag(survivor.getEtag());
+        merged.setFirstName(survivor.getFirstName());
+        merged.setLastName(survivor.getLastName());
+        List<Contact.EmailAddress> emails = survivor.getEmailAddresses() != null
+                ? new ArrayList<>(survivor.getEmailAddresses()) : new ArrayList<>();
+        List<Contact.PhoneNumber> phones = survivor.getPhoneNumbers() != null
+                ? new ArrayList<>(survivor.getPhoneNumbers()) : new ArrayList<>();
+
+        Set<String> emailKeys = new HashSet<>();
+        for (Contact.EmailAddress email : emails) {
+            emailKeys.add(emailKey(email.getValue()));
+        }
+        Set<String> phoneKeys = new HashSet<>();
+        for (Contact.PhoneNumber phone : phones) {
+            phoneKeys.add(mergeKey(phone.getValue()));
+        }
+
+        for (Contact duplicate : duplicates) {
+            if (isEmpty(merged.getFirstName()) && isEmpty(merged.getLastName())) {
+                merged.setFirstName(duplicate.getFirstName());
+                merged.setLastName(duplicate.getLastName());
+            }
+            if (duplicate.getEmailAddresses() != null) {
+                for (Contact.EmailAddress email : duplicate.getEmailAddresses()) {
+                    String key = emailKey(email.getValue());
+                    if (key != null && emailKeys.add(key)) {
+                        emails.add(email);
+                    }
+                }
+            }
+            if (duplicate.getPhoneNumbers() != null) {
+                for (Contact.PhoneNumber phone : duplicate.getPhoneNumbers()) {
+                    String key = mergeKey(phone.getValue());
+                    if (key != null && phoneKeys.add(key)) {
+                        phones.add(phone);
+                    }
+                }
+            }
+        }
+        merged.setEmailAddresses(emails);
+        merged.setPhoneNumbers(phones);
+        return merged;
+    }
+
+    /**
+     * @return The address lower-cased, with Gmail's ignored dots and "+tag" dropped; null if blank.
+     */
+    static String emailKey(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String email = value.strip().toLowerCase(Locale.ROOT);
+        int at = email.lastIndexOf('@');
+        if (at > 0) {
+            String domain = email.substring(at + 1);
+            if (domain.equals("gmail.com") || domain.equals("googlemail.com")) {
+                String local = email.substring(0, at);
+                int tag = local.indexOf('+');
+                if (tag > 0) {
+                    local = local.substring(0, tag);
+                }
+                email = local.replace(".", "") + "@gmail.com";
+            }
+        }
+        return email;
+    }
+
+    /**
+     * @return The number in E.164 form (+ and up to 15 digits), or null if it has too few digits
+     * to identify anyone.
+     */
+    String phoneKey(String value) {
+        if (value == null) {
+            return null;
+        }
+        String digits = digitsOf(value);
+        if (digits.length() < MIN_PHONE_DIGITS) {
+            return null;
+        }
+        String number;
+        if (value.strip().startsWith("+")) {
+            number = digits;
+        } else if (digits.startsWith("00")) {
+            number = digits.substring(2);
+        } else if (digits.startsWith("0")) {
+            // National trunk prefix
+            number = defaultCountryCode + digits.substring(1);
+        } else if (digits.length() == defaultCountryCode.length() + 10 && digits.startsWith(defaultCountryCode)) {
+            // Already dialled with the calling code, as in 1 555 555 1234
+            number = digits;
+        } else {
+            number = defaultCountryCode + digits;
+        }
+        return number.length() <= 15 ? "+" + number : null;
+    }
+
+    /**
+     * @return The words of the normalized full name in sorted order; null without a name.
+     */
+    private static String nameKey(String first, String last) {
+        String name = (first + ' ' + last).strip();
+        return name.isEmpty() ? null : sortedWords(name);
+    }
+
+    private String mergeKey(String phone) {
+        String key = phoneKey(phone);
+        return key != null ? key : phone != null && !phone.isBlank() ? phone.strip() : null;
+    }
+
+    private static void link(Map<String, Integer> blocks, int[] nextInBlock, String key, int entry) {
+        Integer head = blocks.put(key, entry);
+        nextInBlock[entry] = head != null ? head : -1;
+    }
+
+    private boolean fitsBlock(int[] nextInBlock, int head) {
+        int count = 0;
+        for (int entry = head; entry >= 0; entry = nextInBlock[entry]) {
+            if (++count > maxBlockSize) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void join(Groups groups, Map<String, Integer> seen, String key, int index, int reason) {
+        if (key == null) {
+            return;
+        }
+        Integer first = seen.putIfAbsent(key, index);
+        if (first != null && first != index) {
+            groups.union(first, index, reason);
+        }
+    }
+
+    /**
+     * How much of a contact is filled in; the most complete contact of a group is kept by default.
+     */
+    private static int completeness(Contact contact) {
+        int score = (isEmpty(contact.getFirstName()) ? 0 : 1) + (isEmpty(contact.getLastName()) ? 0 : 1);
+        score += contact.getEmailAddresses() != null ? contact.getEmailAddresses().size() : 0;
+        score += contact.getPhoneNumbers() != null ? contact.getPhoneNumbers().size() : 0;
+        return score;
+    }
+
+    /**
+     * @return The value without accents, punctuation or case, single-spaced; empty for null.
+     */
+    private static String namePart(String value) {
+        if (value == null) {
+            return "";
+        }
+        // Most names are plain ASCII and need no Unicode decomposition
+        String normalized = isAscii(value) ? value.toLowerCase(Locale.ROOT) : ContactIndex.normalize(value);
+        StringBuilder part = new StringBuilder(normalized.length());
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                part.append(c);
+            } else if (!part.isEmpty() && part.charAt(part.length() - 1) != ' ') {
+                part.append(' ');
+            }
+        }
+        return part.toString().strip();
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String sortedWords(String name) {
+        if (name.indexOf(' ') < 0) {
+            return name;
+        }
+        String[] words = name.split(" ");
+        Arrays.sort(words);
+        return String.join(" ", words);
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    private static String digitsOf(String value) {
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    /**
+     * Jaro-Winkler similarity: 1 for equal strings, with a bonus for a common prefix of up to four
+     * characters, which suits names where typos tend to come late.
+     */
+    static double jaroWinkler(String a, String b) {
+        if (a.equals(b)) {
+            return 1;
+        }
+        int window = Math.max(0, Math.max(a.length(), b.length()) / 2 - 1);
+        boolean[] matchedA = new boolean[a.length()];
+        boolean[] matchedB = new boolean[b.length()];
+        int matches = 0;
+        for (int i = 0; i < a.length(); i++) {
+            int from = Math.max(0, i - window);
+            int to = Math.min(b.length() - 1, i + window);
+            for (int j = from; j <= to; j++) {
+                if (!matchedB[j] && a.charAt(i) == b.charAt(j)) {
+                    matchedA[i] = true;
+                    matchedB[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0;
+        }
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < a.length(); i++) {
+            if (matchedA[i]) {
+                while (!matchedB[j]) {
+                    j++;
+                }
+                if (a.charAt(i) != b.charAt(j)) {
+                    transpositions++;
+                }
+                j++;
+            }
+        }
+        double m = matches;
+        double jaro = (m / a.length() + m / b.length() + (m - transpositions / 2.0) / m) / 3;
+        int prefix = 0;
+        while (prefix < Math.min(4, Math.min(a.length(), b.length())) && a.charAt(prefix) == b.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * 0.1 * (1 - jaro);
+    }
+
+    /**
+     * Union-find over contact positions, with path halving and union by size, that also collects
+     * the reasons each group was joined on.
+     */
+    private static final class Groups {
+        private final int[] parent;
+        private final int[] size;
+        private final int[] reasons;
+
+        private Groups(int count) {
+            parent = new int[count];
+            size = new int[count];
+            reasons = new int[count];
+            for (int i = 0; i < count; i++) {
+                parent[i] = i;
+                size[i] = 1;
+            }
+        }
+
+        private int root(int i) {
+            while (parent[i] != i) {
+                parent[i] = parent[parent[i]];
+                i = parent[i];
+            }
+            return i;
+        }
+
+        private void union(int a, int b, int reason) {
+            int rootA = root(a);
+            int rootB = root(b);
+            if (rootA != rootB) {
+                if (size[rootA] < size[rootB]) {
+                    int swap = rootA;
+                    rootA = rootB;
+                    rootB = swap;
+                }
+                parent[rootB] = rootA;
+                size[rootA] += size[rootB];
+                reasons[rootA] |= reasons[rootB];
+            }
+            reasons[rootA] |= 1 << reason;
+        }
+    }
+}
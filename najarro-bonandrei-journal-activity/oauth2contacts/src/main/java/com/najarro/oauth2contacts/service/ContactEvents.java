@@ -0,0 +1,150 @@
+package com.najarro.oauth2contacts.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes row-level changes of a user's cached contacts to their open contacts pages over
+ * Server-Sent Events, so a write or a background sync patches the table in place instead of
+ * the page re-rendering it. Every change to a snapshot in the {@link ContactCache} is published,
+ * whether it came from this application's write path or from Google through a background sync
+ * ({@link ContactSyncScheduler}).
+ * <p>
+ * Publishing only queues the change for each page; the pages are written to on the
+ * {@code contactEventsExecutor}, so a slow connection never holds up the thread that made the
+ * change. A page that falls more than {@value #MAX_PENDING} changes behind has its stream ended;
+ * it reconnects and renders afresh.
+ */
+@Component
+public class ContactEvents {
+
+    /**
+     * Pages reconnect on their own once an event stream times out.
+     */
+    private static final Duration TIMEOUT = Duration.ofMinutes(30);
+
+    private static final int MAX_PENDING = 256;
+
+    private final Map<String, List<Page>> subscriptions = new ConcurrentHashMap<>();
+    private final Executor executor;
+
+    public ContactEvents(ContactCache contactCache, @Qualifier("contactEventsExecutor") Executor executor) {
+        this.executor = executor;
+        contactCache.onChange(this::publish);
+    }
+
+    /**
+     * Opens an event stream for one page of the user.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @return The emitter to return from the controller.
+     */
+    public SseEmitter subscribe(String principalName) {
+        return subscribe(principalName, new SseEmitter(TIMEOUT.toMillis()));
+    }
+
+    SseEmitter subscribe(String principalName, SseEmitter emitter) {
+        Page page = new Page(principalName, emitter);
+        subscriptions.computeIfAbsent(principalName, key -> new CopyOnWriteArrayList<>()).add(page);
+        Runnable unsubscribe = () -> unsubscribe(page);
+        page.emitter.onCompletion(unsubscribe);
+        page.emitter.onTimeout(unsubscribe);
+        page.emitter.onError(error -> unsubscribe.run());
+        return page.emitter;
+    }
+
+    /**
+     * Queues a change for every open page of the user. Never blocks on a page's connection.
+     */
+    public void publish(String principalName, ContactDelta delta) {
+        List<Page> pages = subscriptions.get(principalName);
+        if (pages == null) {
+            return;
+        }
+        for (Page page : pages) {
+            page.offer(delta);
+        }
+    }
+
+    public int size() {
+        return subscriptions.values().stream().mapToInt(List::size).sum();
+    }
+
+    private void unsubscribe(Page page) {
+        subscriptions.computeIfPresent(page.principalName, (key, pages) -> {
+            pages.remove(page);
+            return pages.isEmpty() ? null : pages;
+        });
+    }
+
+    /**
+     * One open page: its emitter and the changes not yet written to it, which at most one task
+     * at a time writes out in order.
+     */
+    private final class Page {
+
+        private final String principalName;
+        private final SseEmitter emitter;
+        private final Queue<ContactDelta> pending = new ArrayBlockingQueue<>(MAX_PENDING);
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        Page(String principalName, SseEmitter emitter) {
+            this.principalName = principalName;
+            this.emitter = emitter;
+        }
+
+        void offer(ContactDelta delta) {
+            if (!pending.offer(delta)) {
+                // Too far behind to catch up; the page reconnects and renders afresh
+                drop();
+                emitter.complete();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                    drop();
+                    emitter.complete();
+                }
+            }
+        }
+
+        private void drain() {
+            do {
+                ContactDelta delta;
+                while ((delta = pending.poll()) != null) {
+                    try {
+                        emitter.send(SseEmitter.event().name("contact").data(delta, MediaType.APPLICATION_JSON));
+                    } catch (IOException | IllegalStateException e) {
+                        // The page went away; Spring calls onError/onCompletion, which unsubscribes it too
+                        drop();
+                        return;
+                    }
+                }
+                draining.set(false);
+                // A change queued after the last poll but before the flag was cleared is picked up here
+            } while (!pending.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private void drop() {
+            unsubscribe(this);
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.najarro.oauth2contacts.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * File formats a user's contacts can be exported in. Each format writes contacts one at a time as
+ * they are iterated, so an export never holds more than the {@link Iterable} itself does.
+ * <ul>
+ *   <li>{@link #CSV}: one row per contact. Multiple emails or phone numbers share a cell, separated
+ *   by " ::: " as in Google Contacts' own CSV export, with their types in the column next to it.</li>
+ *   <li>{@link #VCF}: vCard 3.0, one card per contact, readable by most address books.</li>
+ *   <li>{@link #NDJSON}: one JSON {@link Contact} per line, in the shape the batch endpoints accept.</li>
+ * </ul>
+ */
+public enum ContactExportFormat {
+
+    CSV("csv", "text/csv") {
+        @Override
+        public void write(Iterable<Contact> contacts, OutputStream out) throws IOException {
+            Writer writer = writer(out);
+            writer.write(CSV_HEADER);
+            for (Contact contact : contacts) {
+                writeCsvRow(writer,
+                        contact.getResourceName(),
+                        contact.getFirstName(),
+                        contact.getLastName(),
+                        joined(contact.getEmailAddresses(), Contact.EmailAddress::getValue),
+                        joined(contact.getEmailAddresses(), Contact.EmailAddress::getType),
+                        joined(contact.getPhoneNumbers(), Contact.PhoneNumber::getValue),
+                        joined(contact.getPhoneNumbers(), Contact.PhoneNumber::getType));
+            }
+            writer.flush();
+        }
+    },
+
+    VCF("vcf", "text/vcard") {
+        @Override
+        public void write(Iterable<Contact> contacts, OutputStream out) throws IOException {
+            Writer writer = writer(out);
+            for (Contact contact : contacts) {
+                writeVCardLine(writer, "BEGIN:VCARD");
+                writeVCardLine(writer, "VERSION:3.0");
+                writeVCardLine(writer, "N:" + vCardText(contact.getLastName()) + ";" + vCardText(contact.getFirstName()) + ";;;");
+                String fullName = contact.getFullName();
+                writeVCardLine(writer, "FN:" + vCardText(fullName != null ? fullName : contact.getFirstEmailAddress()));
+                if (contact.getEmailAddresses() != null) {
+                    for (Contact.EmailAddress email : contact.getEmailAddresses()) {
+                        if (email.getValue() != null && !email.getValue().isBlank()) {
+                            writeVCardLine(writer, "EMAIL" + vCardType(email.getType()) + ":" + vCardText(email.getValue()));
+                        }
+                    }
+                }
+                if (contact.getPhoneNumbers() != null) {
+                    for (Contact.PhoneNumber phone : contact.getPhoneNumbers()) {
+                        if (phone.getValue() != null && !phone.getValue().isBlank()) {
+                            writeVCardLine(writer, "TEL" + vCardType(phone.getType()) + ":" + vCardText(phone.getValue()));
+                        }
+                    }
+                }
+                if (contact.getResourceName() != null) {
+                    writeVCardLine(writer, "UID:" + vCardText(contact.getResourceName()));
+                }
+                writeVCardLine(writer, "END:VCARD");
+            }
+            writer.flush();
+        }
+    },
+
+    NDJSON("ndjson", "application/x-ndjson") {
+        @Override
+        public void write(Iterable<Contact> contacts, OutputStream out) throws IOException {
+            JsonGenerator generator = JSON.createGenerator(out, JsonEncoding.UTF8);
+            // One object per line instead of the default single space between root values
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            for (Contact contact : contacts) {
+                writeJson(generator, contact);
+            }
+            generator.writeRaw('\n');
+            generator.flush();
+        }
+    };
+
+    /**
+     * Separator between several values in one CSV cell, as used by Google Contacts.
+     */
+    public static final String CSV_VALUE_SEPARATOR = " ::: ";
+    static final String CSV_HEADER = "Resource Name,Given Name,Family Name,E-mail,E-mail Type,Phone,Phone Type\r\n";
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final int VCARD_LINE_LENGTH = 75;
+
+    private final String extension;
+    private final String mediaType;
+
+    ContactExportFormat(String extension, String mediaType) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Writes the contacts to the stream as they are iterated. The stream is flushed but not closed.
+     */
+    public abstract void write(Iterable<Contact> contacts, OutputStream out) throws IOException;
+
+    /**
+     * @param value A format name or file extension, in any case.
+     * @return The matching format, or null if there is none.
+     */
+    public static ContactExportFormat fromParam(String value) {
+        for (ContactExportFormat format : values()) {
+            if (format.extension.equals(value.toLowerCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    private static Writer writer(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    private static <T> String joined(List<T> items, Function<T, String> field) {
+        if (items == null || items.isEmpty()) {
+            return null;
+        }
+        StringBuilder joined = new StringBuilder();
+        for (T item : items) {
+            if (!joined.isEmpty()) {
+                joined.append(CSV_VALUE_SEPARATOR);
+            }
+            String value = field.apply(item);
+            joined.append(value != null ? value : "");
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Writes one RFC 4180 row, quoting only the fields that need it.
+     */
+    private static void writeCsvRow(Writer writer, String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String field = fields[i];
+            if (field == null || field.isEmpty()) {
+                continue;
+            }
+            if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(field.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(field);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Writes a content line, folded at 75 characters as vCard requires.
+     */
+    private static void writeVCardLine(Writer writer, String line) throws IOException {
+        int start = 0;
+        while (line.length() - start > VCARD_LINE_LENGTH) {
+            int end = start + VCARD_LINE_LENGTH;
+            if (Character.isHighSurrogate(line.charAt(end - 1))) {
+                end--;
+            }
+            writer.write(line, start, end - start);
+            writer.write("\r\n ");
+            start = end;
+        }
+        writer.write(line, start, line.length() - start);
+        writer.write("\r\n");
+    }
+
+    private static String vCardText(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\")
+                .replace(",", "\\,")
+                .replace(";", "\\;")
+                .replace("\r\n", "\\n")
+                .replace("\n", "\\n");
+    }
+
+    private static String vCardType(String type) {
+        if (type == null || type.isBlank()) {
+            return "";
+        }
+        return ";TYPE=" + type.replaceAll("[^A-Za-z0-9-]", "").toUpperCase(Locale.ROOT);
+    }
+
+    private static void writeJson(JsonGenerator generator, Contact contact) throws IOException {
+        generator.writeStartObject();
+        writeStringField(generator, "resourceName", contact.getResourceName());
+        writeStringField(generator, "etag", contact.getEtag());
+        writeStringField(generator, "firstName", contact.getFirstName());
+        writeStringField(generator, "lastName", contact.getLastName());
+        if (contact.getEmailAddresses() != null) {
+            generator.writeArrayFieldStart("emailAddresses");
+            for (Contact.EmailAddress email : contact.getEmailAddresses()) {
+                generator.writeStartObject();
+                writeStringField(generator, "value", email.getValue());
+                writeStringField(generator, "type", email.getType());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        if (contact.getPhoneNumbers() != null) {
+            generator.writeArrayFieldStart("phoneNumbers");
+            for (Contact.PhoneNumber phone : contact.getPhoneNumbers()) {
+                generator.writeStartObject();
+                writeStringField(generator, "value", phone.getValue());
+                writeStringField(generator, "type", phone.getType());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeStringField(JsonGenerator generator, String name, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads contacts from an uploaded CSV or vCard file one record at a time, so an import never holds
+ * the whole file in memory. Records are mapped to {@link Contact} as they are, without validation;
+ * {@link ContactImportService} validates and normalizes them.
+ */
+abstract class ContactImportReader implements Iterator<Contact>, Closeable {
+
+    private final BufferedReader reader;
+    private Contact next;
+    private boolean done;
+
+    private ContactImportReader(InputStream in) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param format CSV or VCF; the formats {@link ContactExportFormat} writes, plus Google Contacts'
+     *               CSV columns ("Given Name", "E-mail 1 - Value", ...).
+     */
+    static ContactImportReader open(InputStream in, ContactExportFormat format) {
+        return switch (format) {
+            case CSV -> new Csv(in);
+            case VCF -> new VCard(in);
+            default -> throw new IllegalArgumentException("Contacts can't be imported from " + format.getExtension());
+        };
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return The contact, or null at the end of the file.
+     */
+    abstract Contact read(BufferedReader reader) throws IOException;
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            try {
+                next = read(reader);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            done = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public Contact next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Contact contact = next;
+        next = null;
+        return contact;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static void addEmail(Contact contact, String value, String type) {
+        Contact.EmailAddress email = new Contact.EmailAddress();
+        email.setValue(value);
+        email.setType(type);
+        if (contact.getEmailAddresses() == null) {
+            contact.setEmailAddresses(new ArrayList<>());
+        }
+        contact.getEmailAddresses().add(email);
+    }
+
+    private static void addPhone(Contact contact, String value, String type) {
+        Contact.PhoneNumber phone = new Contact.PhoneNumber();
+        phone.setValue(value);
+        phone.setType(type);
+        if (contact.getPhoneNumbers() == null) {
+            contact.setPhoneNumbers(new ArrayList<>());
+        }
+        contact.getPhoneNumbers().add(phone);
+    }
+
+    /**
+     * RFC 4180 CSV with a header row. Quoted fields may span lines. Several values in one cell are
+     * separated by " ::: ", with their types at the same position in the matching type column.
+     */
+    private static final class Csv extends ContactImportReader {
+
+        private static final Pattern NUMBERED = Pattern.compile("(e-?mail|phone) (\\d+) - (value|type)");
+
+        private Columns columns;
+
+        private Csv(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        Contact read(BufferedReader reader) throws IOException {
+            if (columns == null) {
+                List<String> header = readRecord(reader);
+                if (header == null) {
+                    return null;
+                }
+                columns = new Columns(header);
+            }
+            List<String> record;
+            do {
+                record = readRecord(reader);
+                if (record == null) {
+                    return null;
+                }
+            } while (record.size() == 1 && record.get(0).isBlank());
+
+            Contact contact = new Contact();
+            contact.setFirstName(field(record, columns.firstName));
+            contact.setLastName(field(record, columns.lastName));
+            String name = field(record, columns.name);
+            if (contact.getFirstName() == null && contact.getLastName() == null && name != null) {
+                int space = name.trim().lastIndexOf(' ');
+                contact.setFirstName(space > 0 ? name.trim().substring(0, space) : name.trim());
+                contact.setLastName(space > 0 ? name.trim().substring(space + 1) : null);
+            }
+            for (int[] pair : columns.emails) {
+                readValues(record, pair, (value, type) -> addEmail(contact, value, type));
+            }
+            for (int[] pair : columns.phones) {
+                readValues(record, pair, (value, type) -> addPhone(contact, value, type));
+            }
+            return contact;
+        }
+
+        private interface ValueConsumer {
+            void accept(String value, String type);
+        }
+
+        private static void readValues(List<String> record, int[] pair, ValueConsumer consumer) {
+            String values = field(record, pair[0]);
+            if (values == null) {
+                return;
+            }
+            String types = field(record, pair[1]);
+            String[] splitValues = values.split(Pattern.quote(ContactExportFormat.CSV_VALUE_SEPARATOR.trim()), -1);
+            String[] splitTypes = types != null ? types.split(Pattern.quote(ContactExportFormat.CSV_VALUE_SEPARATOR.trim()), -1) : new String[0];
+            for (int i = 0; i < splitValues.length; i++) {
+                String type = i < splitTypes.length ? splitTypes[i].trim() : null;
+                consumer.accept(splitValues[i].trim(), type == null || type.isEmpty() ? null : type);
+            }
+        }
+
+        private static String field(List<String> record, int column) {
+            if (column < 0 || column >= record.size()) {
+                return null;
+            }
+            String value = record.get(column);
+            return value.isBlank() ? null : value;
+        }
+
+        /**
+         * Reads one record, or returns null at the end of the input.
+         */
+        private static List<String> readRecord(BufferedReader reader) throws IOException {
+            int c = reader.read();
+            if (c < 0) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (c >= 0) {
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int following = reader.read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (following >= 0) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        reader.mark(1);
+                        if (reader.read() != '\n') {
+                            reader.reset();
+                        }
+                    }
+                    break;
+                } else if (c != '\uFEFF' || !fields.isEmpty() || !field.isEmpty()) {
+                    // A byte order mark is dropped at the start of the file
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        /**
+         * Positions of the columns the importer understands, by header name (case-insensitive).
+         * Email and phone columns are pairs of {value, type} positions, -1 where absent.
+         */
+        private static final class Columns {
+
+            private int firstName = -1;
+            private int lastName = -1;
+            private int name = -1;
+            private final List<int[]> emails = new ArrayList<>();
+            private final List<int[]> phones = new ArrayList<>();
+
+            private Columns(List<String> header) {
+                int[] email = {-1, -1};
+                int[] phone = {-1, -1};
+                List<String> names = new ArrayList<>();
+                for (String column : header) {
+                    names.add(column.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+                }
+                for (int i = 0; i < names.size(); i++) {
+                    String column = names.get(i);
+                    switch (column) {
+                        case "given name", "first name" -> firstName = i;
+                        case "family name", "last name" -> lastName = i;
+                        case "name", "full name" -> name = i;
+                        case "e-mail", "email", "e-mail address", "email address" -> email[0] = i;
+                        case "e-mail type", "email type" -> email[1] = i;
+                        case "phone", "phone number", "telephone" -> phone[0] = i;
+                        case "phone type" -> phone[1] = i;
+                        default -> {
+                            Matcher numbered = NUMBERED.matcher(column);
+                            if (numbered.matches()) {
+                                List<int[]> pairs = numbered.group(1).equals("phone") ? phones : emails;
+                                int[] pair = numberedPair(pairs, Integer.parseInt(numbered.group(2)));
+                                pair[numbered.group(3).equals("value") ? 0 : 1] = i;
+                            }
+                        }
+                    }
+                }
+                if (email[0] >= 0) {
+                    emails.add(0, email);
+                }
+                if (phone[0] >= 0) {
+                    phones.add(0, phone);
+                }
+                emails.removeIf(pair -> pair[0] < 0);
+                phones.removeIf(pair -> pair[0] < 0);
+            }
+
+            /**
+             * The pair for "E-mail n - ...", grown as needed. The third slot holds n.
+             */
+            private static int[] numberedPair(List<int[]> pairs, int number) {
+                for (int[] pair : pairs) {
+                    if (pair[2] == number) {
+                        return pair;
+                    }
+                }
+                int[] pair = {-1, -1, number};
+                pairs.add(pair);
+                return pair;
+            }
+        }
+    }
+
+    /**
+     * vCard 2.1, 3.0 and 4.0: N, FN, EMAIL and TEL of each card; other properties are ignored.
+     */
+    private static final class VCard extends ContactImportReader {
+
+        private String pending;
+
+        private VCard(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        Contact read(BufferedReader reader) throws IOException {
+            Contact contact = null;
+            String fullName = null;
+            String line;
+            while ((line = readUnfolded(reader)) != null) {
+                int colon = line.indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+                String[] nameAndParams = line.substring(0, colon).split(";");
+                String property = nameAndParams[0].toUpperCase(Locale.ROOT);
+                // Grouped properties such as "item1.EMAIL"
+                property = property.substring(property.lastIndexOf('.') + 1);
+                String value = line.substring(colon + 1);
+
+                if (property.equals("BEGIN") && value.trim().equalsIgnoreCase("VCARD")) {
+                    contact = new Contact();
+                    fullName = null;
+                } else if (contact == null) {
+                    continue;
+                } else if (property.equals("END") && value.trim().equalsIgnoreCase("VCARD")) {
+                    if (contact.getFirstName() == null && contact.getLastName() == null && fullName != null) {
+                        int space = fullName.lastIndexOf(' ');
+                        contact.setFirstName(space > 0 ? fullName.substring(0, space) : fullName);
+                        contact.setLastName(space > 0 ? fullName.substring(space + 1) : null);
+                    }
+                    return contact;
+                } else if (property.equals("N")) {
+                    List<String> parts = splitComponents(value);
+                    contact.setLastName(blankToNull(parts.size() > 0 ? parts.get(0) : null));
+                    contact.setFirstName(blankToNull(parts.size() > 1 ? parts.get(1) : null));
+                } else if (property.equals("FN")) {
+                    fullName = blankToNull(unescape(value));
+                } else if (property.equals("EMAIL")) {
+                    addEmail(contact, unescape(value).trim(), type(nameAndParams));
+                } else if (property.equals("TEL")) {
+                    addPhone(contact, unescape(value).trim(), type(nameAndParams));
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Reads a content line, joining the continuation lines (starting with a space or tab) that
+         * long lines are folded into.
+         */
+        private String readUnfolded(BufferedReader reader) throws IOException {
+            String line = pending != null ? pending : reader.readLine();
+            pending = null;
+            if (line == null) {
+                return null;
+            }
+            StringBuilder unfolded = new StringBuilder(line);
+            String next;
+            while ((next = reader.readLine()) != null) {
+                if (!next.isEmpty() && (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+                    unfolded.append(next, 1, next.length());
+                } else {
+                    pending = next;
+                    break;
+                }
+            }
+            return unfolded.toString();
+        }
+
+        /**
+         * The first TYPE of a property, lower-cased, skipping the generic ones ("internet", "pref", "voice").
+         * Accepts both "TYPE=HOME,WORK" and vCard 2.1's bare "HOME".
+         */
+        private static String type(String[] nameAndParams) {
+            for (int i = 1; i < nameAndParams.length; i++) {
+                String param = nameAndParams[i];
+                int equals = param.indexOf('=');
+                if (equals >= 0 && !param.substring(0, equals).equalsIgnoreCase("TYPE")) {
+                    continue;
+                }
+                for (String type : param.substring(equals + 1).replace("\"", "").split(",")) {
+                    String normalized = type.trim().toLowerCase(Locale.ROOT);
+                    switch (normalized) {
+                        case "", "internet", "pref", "voice", "x400" -> {
+                        }
+                        case "cell" -> {
+                            return "mobile";
+                        }
+                        default -> {
+                            return normalized;
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Splits a structured value at unescaped semicolons and unescapes the components.
+         */
+        private static List<String> splitComponents(String value) {
+            List<String> components = new ArrayList<>();
+            StringBuilder component = new StringBuilder();
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\\' && i + 1 < value.length()) {
+                    component.append(c).append(value.charAt(++i));
+                } else if (c == ';') {
+                    components.add(unescape(component.toString()));
+                    component.setLength(0);
+                } else {
+                    component.append(c);
+                }
+            }
+            components.add(unescape(component.toString()));
+            return components;
+        }
+
+        private static String unescape(String value) {
+            StringBuilder unescaped = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\\' && i + 1 < value.length()) {
+                    char escaped = value.charAt(++i);
+                    unescaped.append(escaped == 'n' || escaped == 'N' ? '\n' : escaped);
+                } else {
+                    unescaped.append(c);
+                }
+            }
+            return unescaped.toString();
+        }
+
+        private static String blankToNull(String value) {
+            return value == null || value.isBlank() ? null : value.trim();
+        }
+    }
+}
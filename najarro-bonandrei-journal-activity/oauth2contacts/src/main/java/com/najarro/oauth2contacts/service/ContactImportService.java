@@ -0,0 +1,279 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.config.PeopleApiProperties;
+import com.najarro.oauth2contacts.model.Contact;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * Imports contacts from an uploaded CSV or vCard file in the background.
+ * <p>
+ * The file is parsed one record at a time with {@link ContactImportReader}. Each record is
+ * validated and normalized, and skipped if one of its email addresses or phone numbers already
+ * belongs to an existing contact or to an earlier record. The rest are created through
+ * {@link ContactBatchService} in groups of batch-parallelism full batchCreate chunks, so at most
+ * that many calls are in flight and only one group of records is held in memory.
+ * <p>
+ * Progress is kept per import in an {@link ImportProgress} for an hour after it finishes.
+ */
+@Service
+public class ContactImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ContactImportService.class);
+
+    private static final Duration RETENTION = Duration.ofHours(1);
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+    private static final int MIN_PHONE_DIGITS = 3;
+    private static final int PHONE_KEY_DIGITS = 10;
+
+    private final ContactService contactService;
+    private final ContactBatchService batchService;
+    private final Executor executor;
+    private final PeopleApiProperties properties;
+    private final Map<String, ImportProgress> imports = new ConcurrentHashMap<>();
+    private final Clock clock = Clock.systemUTC();
+
+    public ContactImportService(ContactService contactService,
+                                ContactBatchService batchService,
+                                @Qualifier("contactImportExecutor") Executor executor,
+                                PeopleApiProperties properties) {
+        this.contactService = contactService;
+        this.batchService = batchService;
+        this.executor = executor;
+        this.properties = properties;
+    }
+
+    /**
+     * Accepts an upload and starts importing it. The upload is copied to a temporary file first,
+     * since the multipart data is gone once the request completes.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param file The uploaded .csv or .vcf file.
+     * @return The progress of the import, which keeps being updated.
+     * @throws IllegalArgumentException If the file is neither CSV nor vCard.
+     * @throws RejectedExecutionException If as many imports as allowed are already running and waiting.
+     */
+    public ImportProgress startImport(String principalName, String accessToken, MultipartFile file) throws IOException {
+        ContactExportFormat format = formatOf(file.getOriginalFilename(), file.getContentType());
+        if (format == null) {
+            throw new IllegalArgumentException("Upload a .csv or .vcf file");
+        }
+        evictFinished();
+
+        Path upload = Files.createTempFile("contact-import-", "." + format.getExtension());
+        try {
+            file.transferTo(upload);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(upload);
+            throw e;
+        }
+        ImportProgress progress = new ImportProgress(UUID.randomUUID().toString(), principalName, file.getOriginalFilename());
+        imports.put(progress.getId(), progress);
+        try {
+            executor.execute(() -> run(progress, accessToken, upload, format));
+        } catch (RejectedExecutionException e) {
+            imports.remove(progress.getId());
+            Files.deleteIfExists(upload);
+            throw e;
+        }
+        return progress;
+    }
+
+    /**
+     * @return The import's progress, or null if it is unknown, expired or belongs to another user.
+     */
+    public ImportProgress getProgress(String principalName, String importId) {
+        ImportProgress progress = imports.get(importId);
+        return progress != null && progress.principalName().equals(principalName) ? progress : null;
+    }
+
+    private void run(ImportProgress progress, String accessToken, Path upload, ContactExportFormat format) {
+        String principalName = progress.principalName();
+        int groupSize = PeopleApiClient.MAX_BATCH_MUTATE_SIZE * properties.getBatchParallelism();
+        try (InputStream in = Files.newInputStream(upload);
+             ContactImportReader reader = ContactImportReader.open(in, format)) {
+            Set<String> seen = existingKeys(principalName, accessToken);
+            List<Contact> group = new ArrayList<>(groupSize);
+            while (reader.hasNext()) {
+                Contact contact = reader.next();
+                progress.recordRead();
+                String error = normalize(contact);
+                if (error != null) {
+                    progress.recordInvalid("Record " + progress.getRead() + ": " + error);
+                    continue;
+                }
+                List<String> keys = keys(contact);
+                if (keys.stream().anyMatch(seen::contains)) {
+                    progress.recordDuplicate();
+                    continue;
+                }
+                seen.addAll(keys);
+                group.add(contact);
+                if (group.size() == groupSize) {
+                    progress.recordBatch(batchService.createContacts(principalName, accessToken, group));
+                    group = new ArrayList<>(groupSize);
+                }
+            }
+            if (!group.isEmpty()) {
+                progress.recordBatch(batchService.createContacts(principalName, accessToken, group));
+            }
+            progress.complete(clock.instant());
+        } catch (IOException | UncheckedIOException e) {
+            progress.fail("Could not read the file: " + e.getMessage(), clock.instant());
+        } catch (RuntimeException e) {
+            progress.fail("Import stopped: " + e.getMessage(), clock.instant());
+            log.warn("Import {} stopped", progress.getId(), e);
+        } finally {
+            try {
+                Files.deleteIfExists(upload);
+            } catch (IOException e) {
+                log.warn("Could not delete import upload {}", upload, e);
+            }
+        }
+    }
+
+    /**
+     * Dedupe keys of the user's current contacts; loads them into the cache if they aren't yet.
+     */
+    private Set<String> existingKeys(String principalName, String accessToken) {
+        Set<String> keys = new HashSet<>();
+        for (Contact contact : contactService.listContacts(principalName, accessToken)) {
+            keys.addAll(keys(contact));
+        }
+        return keys;
+    }
+
+    /**
+     * Trims every field, lower-cases types, drops empty entries and checks what remains.
+     *
+     * @return Why the record can't be imported, or null if it can.
+     */
+    static String normalize(Contact contact) {
+        contact.setResourceName(null);
+        contact.setEtag(null);
+        contact.setFirstName(trimToNull(contact.getFirstName()));
+        contact.setLastName(trimToNull(contact.getLastName()));
+
+        List<Contact.EmailAddress> emails = new ArrayList<>();
+        if (contact.getEmailAddresses() != null) {
+            for (Contact.EmailAddress email : contact.getEmailAddresses()) {
+                String value = trimToNull(email.getValue());
+                if (value == null) {
+                    continue;
+                }
+                if (!EMAIL.matcher(value).matches()) {
+                    return "invalid email address \"" + value + "\"";
+                }
+                email.setValue(value);
+                email.setType(lowerCaseType(email.getType()));
+                emails.add(email);
+            }
+        }
+        List<Contact.PhoneNumber> phones = new ArrayList<>();
+        if (contact.getPhoneNumbers() != null) {
+            for (Contact.PhoneNumber phone : contact.getPhoneNumbers()) {
+                String value = trimToNull(phone.getValue());
+                if (value == null) {
+                    continue;
+                }
+                if (digitsOf(value).length() < MIN_PHONE_DIGITS) {
+                    return "invalid phone number \"" + value + "\"";
+                }
+                phone.setValue(value);
+                phone.setType(lowerCaseType(phone.getType()));
+                phones.add(phone);
+            }
+        }
+        contact.setEmailAddresses(emails.isEmpty() ? null : emails);
+        contact.setPhoneNumbers(phones.isEmpty() ? null : phones);
+
+        if (contact.getFirstName() == null && contact.getLastName() == null && emails.isEmpty() && phones.isEmpty()) {
+            return "no name, email address or phone number";
+        }
+        return null;
+    }
+
+    /**
+     * Emails compare case-insensitively; phone numbers by their last ten digits, so that
+     * "+1 555 555 1234" and "(555) 555-1234" are the same number.
+     */
+    static List<String> keys(Contact contact) {
+        List<String> keys = new ArrayList<>();
+        if (contact.getEmailAddresses() != null) {
+            for (Contact.EmailAddress email : contact.getEmailAddresses()) {
+                if (email.getValue() != null && !email.getValue().isBlank()) {
+                    keys.add("email:" + email.getValue().trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        if (contact.getPhoneNumbers() != null) {
+            for (Contact.PhoneNumber phone : contact.getPhoneNumbers()) {
+                String digits = phone.getValue() != null ? digitsOf(phone.getValue()) : "";
+                if (digits.length() >= MIN_PHONE_DIGITS) {
+                    keys.add("phone:" + digits.substring(Math.max(0, digits.length() - PHONE_KEY_DIGITS)));
+                }
+            }
+        }
+        return keys;
+    }
+
+    static ContactExportFormat formatOf(String fileName, String contentType) {
+        String name = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+        if (name.endsWith(".csv") || "text/csv".equals(contentType)) {
+            return ContactExportFormat.CSV;
+        }
+        if (name.endsWith(".vcf") || name.endsWith(".vcard")
+                || "text/vcard".equals(contentType) || "text/x-vcard".equals(contentType)) {
+            return ContactExportFormat.VCF;
+        }
+        return null;
+    }
+
+    private void evictFinished() {
+        Instant cutoff = clock.instant().minus(RETENTION);
+        imports.values().removeIf(progress -> progress.finishedAt() != null && progress.finishedAt().isBefore(cutoff));
+    }
+
+    private static String trimToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static String lowerCaseType(String type) {
+        return type == null || type.isBlank() ? null : type.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String digitsOf(String value) {
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+}
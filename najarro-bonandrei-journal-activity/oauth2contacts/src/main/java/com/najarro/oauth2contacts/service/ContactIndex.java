@@ -0,0 +1,320 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory search index over one user's contacts.
+ * <p>
+ * Every contact is broken into normalized terms: first and last name, each email address (whole,
+ * local part and domain labels) and the digits of each phone number, including every suffix of at
+ * least {@value #MIN_PHONE_SUFFIX} digits so that "5551234" finds "+1 (555) 555-1234".
+ * The terms are kept in a sorted map, so a prefix lookup is a range scan (the same complexity as a
+ * trie walk). Terms are also indexed by their trigrams; a token with no prefix hits falls back to
+ * the terms sharing a trigram with it that are within a small edit distance, which tolerates
+ * typos such as "lovleace".
+ * <p>
+ * Not thread-safe; {@link ContactSnapshot} guards it with its own lock.
+ */
+final class ContactIndex {
+
+    private static final int GRAM = 3;
+    private static final int MIN_PHONE_SUFFIX = 4;
+    private static final int EXACT = 3;
+    private static final int PREFIX = 2;
+    private static final int FUZZY = 1;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[\\s,;]+");
+    private static final Pattern PHONE = Pattern.compile("[+\\d\\s().-]*\\d[\\d\\s().-]*");
+
+    private final NavigableMap<String, Set<String>> postings = new TreeMap<>();
+    private final Map<String, Set<String>> termsByGram = new HashMap<>();
+    private final Map<String, Set<String>> termsByResource = new HashMap<>();
+
+    void add(Contact contact) {
+        String resourceName = contact.getResourceName();
+        remove(resourceName);
+        Set<String> terms = terms(contact);
+        termsByResource.put(resourceName, terms);
+        for (String term : terms) {
+            Set<String> resources = postings.get(term);
+            if (resources == null) {
+                resources = new HashSet<>(2);
+                postings.put(term, resources);
+                for (String gram : grams(term)) {
+                    termsByGram.computeIfAbsent(gram, key -> new HashSet<>()).add(term);
+                }
+            }
+            resources.add(resourceName);
+        }
+    }
+
+    void remove(String resourceName) {
+        Set<String> terms = termsByResource.remove(resourceName);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Set<String> resources = postings.get(term);
+            resources.remove(resourceName);
+            if (resources.isEmpty()) {
+                postings.remove(term);
+                for (String gram : grams(term)) {
+                    Set<String> gramTerms = termsByGram.get(gram);
+                    gramTerms.remove(term);
+                    if (gramTerms.isEmpty()) {
+                        termsByGram.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Matches every whitespace separated token of the query (a contact must match all of them).
+     * Only the longest, usually most selective, token is looked up in the index; the candidates it
+     * yields are then checked against the other tokens through their own terms, so a broad token
+     * such as "555" never has to be expanded over the whole index.
+     *
+     * @return Matching resourceNames with their score; higher is a better match.
+     */
+    Map<String, Integer> search(String query) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalize(query))) {
+            if (!token.isEmpty()) {
+                String digits = phoneDigits(token);
+                tokens.add(digits != null && !digits.isEmpty() ? digits : token);
+            }
+        }
+        if (tokens.isEmpty()) {
+            return new HashMap<>();
+        }
+        tokens.sort(Comparator.comparingInt(String::length).reversed());
+
+        Map<String, Integer> scores = match(tokens.get(0));
+        for (String token : tokens.subList(1, tokens.size())) {
+            Iterator<Map.Entry<String, Integer>> candidates = scores.entrySet().iterator();
+            while (candidates.hasNext()) {
+                Map.Entry<String, Integer> candidate = candidates.next();
+                int score = score(termsByResource.get(candidate.getKey()), token);
+                if (score == 0) {
+                    candidates.remove();
+                } else {
+                    candidate.setValue(candidate.getValue() + score);
+                }
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        return scores;
+    }
+
+    int size() {
+        return termsByResource.size();
+    }
+
+    private Map<String, Integer> match(String token) {
+        Map<String, Integer> matches = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : postings.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+            int score = entry.getKey().equals(token) ? EXACT : PREFIX;
+            for (String resourceName : entry.getValue()) {
+                matches.merge(resourceName, score, Math::max);
+            }
+        }
+        if (matches.isEmpty() && token.length() >= GRAM) {
+            for (String term : similarTerms(token)) {
+                for (String resourceName : postings.get(term)) {
+                    matches.putIfAbsent(resourceName, FUZZY);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Scores one contact's terms against a token the same way {@link #match(String)} does for the
+     * whole index: exact, then prefix, then (for tokens of three or more characters) fuzzy.
+     *
+     * @return The best score, or 0 if no term matches.
+     */
+    private static int score(Set<String> terms, String token) {
+        int best = 0;
+        for (String term : terms) {
+            if (term.equals(token)) {
+                return EXACT;
+            }
+            if (term.startsWith(token)) {
+                best = PREFIX;
+            }
+        }
+        if (best == 0 && token.length() >= GRAM) {
+            for (String term : terms) {
+                if (isSimilar(token, term)) {
+                    return FUZZY;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Terms sharing at least one trigram with the token that are within a small edit distance of it
+     * (one edit for short tokens, two otherwise), either as a whole or in their leading characters,
+     * so a mistyped prefix still matches.
+     */
+    private List<String> similarTerms(String token) {
+        Set<String> candidates = new HashSet<>();
+        for (String gram : grams(token)) {
+            Set<String> terms = termsByGram.get(gram);
+            if (terms != null) {
+                candidates.addAll(terms);
+            }
+        }
+        List<String> similar = new ArrayList<>();
+        for (String term : candidates) {
+            if (isSimilar(token, term)) {
+                similar.add(term);
+            }
+        }
+        return similar;
+    }
+
+    private static boolean isSimilar(String token, String term) {
+        int maxEdits = token.length() <= 4 ? 1 : 2;
+        String head = term.length() > token.length() ? term.substring(0, token.length()) : term;
+        return editDistance(token, head, maxEdits) <= maxEdits
+                || (head != term && editDistance(token, term, maxEdits) <= maxEdits);
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein plus adjacent transpositions), giving up
+     * with max + 1 as soon as it is clear the distance exceeds max.
+     */
+    static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distance = Math.min(distance, previous2[j - 2] + 1);
+                }
+                current[j] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    private static Set<String> terms(Contact contact) {
+        Set<String> terms = new LinkedHashSet<>();
+        addWords(terms, contact.getFirstName());
+        addWords(terms, contact.getLastName());
+        if (contact.getEmailAddresses() != null) {
+            for (Contact.EmailAddress email : contact.getEmailAddresses()) {
+                if (email.getValue() == null || email.getValue().isBlank()) {
+                    continue;
+                }
+                String value = normalize(email.getValue()).trim();
+                terms.add(value);
+                int at = value.indexOf('@');
+                if (at > 0) {
+                    terms.add(value.substring(0, at));
+                    for (String label : value.substring(at + 1).split("\\.")) {
+                        if (!label.isEmpty()) {
+                            terms.add(label);
+                        }
+                    }
+                }
+            }
+        }
+        if (contact.getPhoneNumbers() != null) {
+            for (Contact.PhoneNumber phone : contact.getPhoneNumbers()) {
+                String digits = phone.getValue() != null ? digitsOf(phone.getValue()) : "";
+                for (int i = 0; i <= digits.length() - MIN_PHONE_SUFFIX; i++) {
+                    terms.add(digits.substring(i));
+                }
+                if (!digits.isEmpty() && digits.length() < MIN_PHONE_SUFFIX) {
+                    terms.add(digits);
+                }
+            }
+        }
+        return terms;
+    }
+
+    private static void addWords(Set<String> terms, String value) {
+        if (value == null) {
+            return;
+        }
+        for (String word : SEPARATORS.split(normalize(value))) {
+            if (!word.isEmpty()) {
+                terms.add(word);
+            }
+        }
+    }
+
+    private static Set<String> grams(String term) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= term.length(); i++) {
+            grams.add(term.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    /**
+     * Lower-cases and strips accents, so "José" is found by "jose".
+     */
+    static String normalize(String value) {
+        return DIACRITICS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return The digits of a token that looks like (part of) a phone number, otherwise null.
+     */
+    private static String phoneDigits(String token) {
+        return PHONE.matcher(token).matches() ? digitsOf(token) : null;
+    }
+
+    private static String digitsOf(String value) {
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+}
@@ -0,0 +1,354 @@
+package com.najarro.oauth2contacts.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps Google People API Person JSON straight onto the {@link Contact} model.
+ * The payload is read token by token with a streaming {@link JsonParser}, so no intermediate
+ * Map/List tree is built for the (mostly ignored) parts of each Person; fields the application
+ * does not use, such as photos or source metadata, are skipped without being materialized.
+ */
+public final class ContactMapper {
+
+    private ContactMapper() {
+    }
+
+    /**
+     * Maps a single Person object to a Contact.
+     * Used for the responses of get, createContact and updateContact.
+     *
+     * @param parser A parser positioned before (or on) the Person's START_OBJECT.
+     * @return A populated Contact object, or null if the body was empty.
+     */
+    public static Contact mapApiToContact(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken() != null ? parser.currentToken() : parser.nextToken();
+        if (token != JsonToken.START_OBJECT) {
+            return null;
+        }
+        return readPerson(parser, null);
+    }
+
+    /**
+     * Maps a single Person object requested with the metadata field, keeping the etag of its
+     * CONTACT source as the version to revalidate it with.
+     *
+     * @param parser A parser positioned before (or on) the Person's START_OBJECT.
+     * @return The contact and its version; the contact is null if the body was empty.
+     */
+    public static PersonVersion readPersonVersion(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken() != null ? parser.currentToken() : parser.nextToken();
+        if (token != JsonToken.START_OBJECT) {
+            return new PersonVersion(null, null);
+        }
+        Metadata metadata = new Metadata();
+        Contact contact = readPerson(parser, null, metadata);
+        return new PersonVersion(contact, metadata.contactSourceEtag);
+    }
+
+    /**
+     * Maps a people/me/connections response to a page of Contacts.
+     * People flagged with metadata.deleted (only returned by incremental syncs) are not mapped;
+     * their resourceNames are collected separately.
+     *
+     * @param parser A parser positioned before the response's START_OBJECT.
+     * @return The mapped page, with its continuation tokens.
+     */
+    public static ConnectionsPage readConnectionsPage(JsonParser parser) throws IOException {
+        List<Contact> contacts = new ArrayList<>();
+        List<String> deletedResourceNames = new ArrayList<>(0);
+        String nextPageToken = null;
+        String nextSyncToken = null;
+
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return new ConnectionsPage(contacts, null);
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "connections" -> {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        Contact contact = readPerson(parser, deletedResourceNames);
+                        if (contact != null) {
+                            contacts.add(contact);
+                        }
+                    }
+                }
+                case "nextPageToken" -> nextPageToken = parser.getValueAsString();
+                case "nextSyncToken" -> nextSyncToken = parser.getValueAsString();
+                default -> parser.skipChildren();
+            }
+        }
+        return new ConnectionsPage(contacts, deletedResourceNames, nextPageToken, nextSyncToken);
+    }
+
+    /**
+     * Maps a people:batchCreateContacts response.
+     *
+     * @param parser A parser positioned before the response's START_OBJECT.
+     * @return The created people and the errors reported for the entries that were not created.
+     */
+    public static BatchResult readBatchCreateResponse(JsonParser parser) throws IOException {
+        List<Contact> contacts = new ArrayList<>();
+        List<String> errors = new ArrayList<>(0);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return BatchResult.of(contacts, errors);
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("createdPeople".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    readPersonResponse(parser, null, contacts, errors);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return BatchResult.of(contacts, errors);
+    }
+
+    /**
+     * Maps a people:batchUpdateContacts response, whose updateResult is keyed by resourceName.
+     *
+     * @param parser A parser positioned before the response's START_OBJECT.
+     * @return The updated people and the errors reported for the entries that were not updated.
+     */
+    public static BatchResult readBatchUpdateResponse(JsonParser parser) throws IOException {
+        List<Contact> contacts = new ArrayList<>();
+        List<String> errors = new ArrayList<>(0);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return BatchResult.of(contacts, errors);
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("updateResult".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String resourceName = parser.currentName();
+                    parser.nextToken();
+                    readPersonResponse(parser, resourceName, contacts, errors);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return BatchResult.of(contacts, errors);
+    }
+
+    /**
+     * Reads one PersonResponse (person plus status); the parser must be on its START_OBJECT.
+     */
+    private static void readPersonResponse(JsonParser parser, String resourceName,
+                                           List<Contact> contacts, List<String> errors) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        Contact person = null;
+        String message = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "person" -> person = parser.currentToken() == JsonToken.START_OBJECT ? readPerson(parser, null) : null;
+                case "requestedResourceName" -> resourceName = parser.getValueAsString();
+                case "status" -> message = readStatusMessage(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        if (person != null) {
+            contacts.add(person);
+        } else {
+            errors.add((resourceName != null ? resourceName + ": " : "") + (message != null ? message : "no person returned"));
+        }
+    }
+
+    private static String readStatusMessage(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String message = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("message".equals(field)) {
+                message = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Reads one Person object; the parser must be on its START_OBJECT.
+     *
+     * @param deletedResourceNames Receives the resourceName if the person is flagged as deleted; may be null.
+     * @return The contact, or null if it was flagged as deleted.
+     */
+    private static Contact readPerson(JsonParser parser, List<String> deletedResourceNames) throws IOException {
+        return readPerson(parser, deletedResourceNames, new Metadata());
+    }
+
+    private static Contact readPerson(JsonParser parser, List<String> deletedResourceNames, Metadata metadata) throws IOException {
+        Contact contact = new Contact();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "resourceName" -> contact.setResourceName(parser.getValueAsString());
+                case "etag" -> contact.setEtag(parser.getValueAsString());
+                case "names" -> readNames(parser, contact);
+                case "emailAddresses" -> contact.setEmailAddresses(readEmailAddresses(parser));
+                case "phoneNumbers" -> contact.setPhoneNumbers(readPhoneNumbers(parser));
+                case "metadata" -> readMetadata(parser, metadata);
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (metadata.deleted && deletedResourceNames != null) {
+            deletedResourceNames.add(contact.getResourceName());
+            return null;
+        }
+        return contact;
+    }
+
+    /**
+     * Uses the first name entry that has a givenName or a familyName (Google lists several
+     * when a contact is linked to a profile).
+     */
+    private static void readNames(JsonParser parser, Contact contact) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        boolean found = false;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String givenName = null;
+            String familyName = null;
+            boolean hasName = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "givenName" -> {
+                        givenName = parser.getValueAsString();
+                        hasName = true;
+                    }
+                    case "familyName" -> {
+                        familyName = parser.getValueAsString();
+                        hasName = true;
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            if (!found && hasName) {
+                contact.setFirstName(givenName);
+                contact.setLastName(familyName);
+                found = true;
+            }
+        }
+    }
+
+    private static List<Contact.EmailAddress> readEmailAddresses(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        List<Contact.EmailAddress> emails = null;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Contact.EmailAddress email = new Contact.EmailAddress();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "value" -> email.setValue(parser.getValueAsString());
+                    case "type" -> email.setType(parser.getValueAsString()); // Also map type
+                    default -> parser.skipChildren();
+                }
+            }
+            if (emails == null) {
+                emails = new ArrayList<>(2);
+            }
+            emails.add(email);
+        }
+        return emails;
+    }
+
+    private static List<Contact.PhoneNumber> readPhoneNumbers(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        List<Contact.PhoneNumber> phones = null;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Contact.PhoneNumber phone = new Contact.PhoneNumber();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "value" -> phone.setValue(parser.getValueAsString());
+                    case "type" -> phone.setType(parser.getValueAsString()); // Also map type
+                    default -> parser.skipChildren();
+                }
+            }
+            if (phones == null) {
+                phones = new ArrayList<>(2);
+            }
+            phones.add(phone);
+        }
+        return phones;
+    }
+
+    /**
+     * What the application reads from a Person's metadata. Incremental syncs return people removed
+     * since the last sync with metadata.deleted set; the CONTACT source's etag changes whenever the
+     * contact itself does, whatever fields were requested.
+     */
+    private static final class Metadata {
+        private boolean deleted;
+        private String contactSourceEtag;
+    }
+
+    private static void readMetadata(JsonParser parser, Metadata metadata) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("deleted".equals(field)) {
+                metadata.deleted = parser.getValueAsBoolean();
+            } else if ("sources".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    String type = null;
+                    String etag = null;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String sourceField = parser.currentName();
+                        parser.nextToken();
+                        switch (sourceField) {
+                            case "type" -> type = parser.getValueAsString();
+                            case "etag" -> etag = parser.getValueAsString();
+                            default -> parser.skipChildren();
+                        }
+                    }
+                    if ("CONTACT".equals(type) && metadata.contactSourceEtag == null) {
+                        metadata.contactSourceEtag = etag;
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of a user's contacts in a given order, as rendered by /contacts and returned to the
+ * page's infinite scroll.
+ */
+public class ContactPage {
+
+    private final List<Contact> contacts;
+    private final String sort;
+    private final boolean descending;
+    private final int page;
+    private final int size;
+    private final int total;
+
+    public ContactPage(List<Contact> contacts, String sort, boolean descending, int page, int size, int total) {
+        this.contacts = contacts;
+        this.sort = sort;
+        this.descending = descending;
+        this.page = page;
+        this.size = size;
+        this.total = total;
+    }
+
+    /**
+     * Cuts one page out of the full list, which is in ascending order; a descending page is cut
+     * from the end instead of reversing the whole list.
+     *
+     * @param page Zero-based page number; pages past the end are empty.
+     */
+    public static ContactPage of(List<Contact> ascending, ContactSort sort, boolean descending, int page, int size) {
+        int total = ascending.size();
+        int from = (int) Math.min((long) page * size, total);
+        int to = Math.min(from + size, total);
+        List<Contact> contacts;
+        if (descending) {
+            contacts = new ArrayList<>(to - from);
+            for (int i = total - 1 - from; i >= total - to; i--) {
+                contacts.add(ascending.get(i));
+            }
+            contacts = List.copyOf(contacts);
+        } else {
+            contacts = List.copyOf(ascending.subList(from, to));
+        }
+        return new ContactPage(contacts, sort.getParam(), descending, page, size, total);
+    }
+
+    public List<Contact> getContacts() {
+        return contacts;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getTotalPages() {
+        return (total + size - 1) / size;
+    }
+
+    public boolean hasPrevious() {
+        return page > 0;
+    }
+
+    public boolean hasNext() {
+        return (long) (page + 1) * size < total;
+    }
+}
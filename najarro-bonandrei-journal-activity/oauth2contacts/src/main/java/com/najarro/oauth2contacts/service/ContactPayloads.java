@@ -0,0 +1,166 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Builds People API request payloads from the {@link Contact} submitted by the contact form.
+ */
+public final class ContactPayloads {
+
+    private ContactPayloads() {
+    }
+
+    /**
+     * Builds the Person object sent to createContact and updateContact.
+     * Empty names, email addresses and phone numbers are left out; the etag is included when
+     * present so that updates are rejected if the contact changed since it was read.
+     *
+     * @param contact The Contact object populated from the form.
+     * @return The Person payload, ready to be serialized to JSON.
+     */
+    public static Map<String, Object> toPerson(Contact contact) {
+        Map<String, Object> person = new HashMap<>();
+
+        if (contact.getEtag() != null && !contact.getEtag().isEmpty()) {
+            person.put("etag", contact.getEtag());
+        }
+
+        List<Map<String, String>> names = new ArrayList<>();
+        if (contact.getFirstName() != null && !contact.getFirstName().isEmpty()) {
+            Map<String, String> name = new HashMap<>();
+            name.put("givenName", contact.getFirstName());
+            if (contact.getLastName() != null && !contact.getLastName().isEmpty()) {
+                name.put("familyName", contact.getLastName());
+            }
+            names.add(name);
+        } else if (contact.getLastName() != null && !contact.getLastName().isEmpty()) {
+            // If only last name is provided, still include it
+            Map<String, String> name = new HashMap<>();
+            name.put("familyName", contact.getLastName());
+            names.add(name);
+        }
+        person.put("names", names);
+
+        List<Map<String, String>> emailAddresses = new ArrayList<>();
+        if (contact.getEmailAddresses() != null) {
+            for (Contact.EmailAddress email : contact.getEmailAddresses()) {
+                // Only add email to list if its value is not empty
+                if (email.getValue() != null && !email.getValue().isEmpty()) {
+                    Map<String, String> emailMap = new HashMap<>();
+                    emailMap.put("value", email.getValue());
+                    if (email.getType() != null && !email.getType().isEmpty()) {
+                         emailMap.put("type", email.getType()); // Include type if provided
+                    }
+                    emailAddresses.add(emailMap);
+                }
+            }
+        }
+        person.put("emailAddresses", emailAddresses);
+
+        List<Map<String, String>> phoneNumbers = new ArrayList<>();
+        if (contact.getPhoneNumbers() != null) {
+            for (Contact.PhoneNumber phone : contact.getPhoneNumbers()) {
+                if (phone.getValue() != null && !phone.getValue().isEmpty()) {
+                    Map<String, String> phoneMap = new HashMap<>();
+                    phoneMap.put("value", phone.getValue());
+                    if (phone.getType() != null && !phone.getType().isEmpty()) {
+                        phoneMap.put("type", phone.getType()); // Include type if provided
+                    }
+                    phoneNumbers.add(phoneMap);
+                }
+            }
+        }
+        person.put("phoneNumbers", phoneNumbers);
+
+        return person;
+    }
+
+    /**
+     * Builds the Person payload for an update, with only the fields that differ from the original.
+     * Fields are compared the way they would be sent, so a reordered or re-typed email counts as a
+     * change while an untouched one doesn't.
+     *
+     * @param original The contact as last read or written with the same etag, or null if unknown;
+     *                 every field is then sent.
+     * @param submitted The edited contact.
+     * @return The payload; without any of names, emailAddresses or phoneNumbers if nothing changed.
+     */
+    public static Map<String, Object> toUpdatePerson(Contact original, Contact submitted) {
+        Map<String, Object> person = toPerson(submitted);
+        if (original != null) {
+            Map<String, Object> unchanged = toPerson(original);
+            for (String field : List.of("names", "emailAddresses", "phoneNumbers")) {
+                if (Objects.equals(person.get(field), unchanged.get(field))) {
+                    person.remove(field);
+                }
+            }
+        }
+        return person;
+    }
+
+    /**
+     * Builds the updatePersonFields mask for an updateContact call from the fields present in the payload.
+     *
+     * @param person The Person payload built by {@link #toPerson(Contact)}.
+     * @return The comma separated field mask; empty if there is nothing to update.
+     */
+    public static String updatePersonFields(Map<String, Object> person) {
+        List<String> updateMaskFields = new ArrayList<>();
+        if (person.containsKey("names")) updateMaskFields.add("names"); // Check if names were actually provided in the payload
+        if (person.containsKey("emailAddresses")) updateMaskFields.add("emailAddresses");
+        if (person.containsKey("phoneNumbers")) updateMaskFields.add("phoneNumbers");
+        return String.join(",", updateMaskFields);
+    }
+
+    /**
+     * Builds a people:batchCreateContacts request.
+     *
+     * @param persons Person payloads built by {@link #toPerson(Contact)}; at most 200.
+     * @param readMask The fields to return for each created person.
+     * @return The request body, ready to be serialized to JSON.
+     */
+    public static Map<String, Object> batchCreateRequest(List<Map<String, Object>> persons, String readMask) {
+        List<Map<String, Object>> contacts = new ArrayList<>(persons.size());
+        for (Map<String, Object> person : persons) {
+            contacts.add(Map.of("contactPerson", person));
+        }
+        Map<String, Object> request = new HashMap<>();
+        request.put("contacts", contacts);
+        request.put("readMask", readMask);
+        return request;
+    }
+
+    /**
+     * Builds a people:batchUpdateContacts request. Every person must carry its etag and the
+     * update mask applies to all of them.
+     *
+     * @param personsByResourceName Person payloads keyed by resourceName; at most 200.
+     * @param updateMask The fields being replaced on every person.
+     * @param readMask The fields to return for each updated person.
+     * @return The request body, ready to be serialized to JSON.
+     */
+    public static Map<String, Object> batchUpdateRequest(Map<String, Map<String, Object>> personsByResourceName,
+                                                         String updateMask, String readMask) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("contacts", personsByResourceName);
+        request.put("updateMask", updateMask);
+        request.put("readMask", readMask);
+        return request;
+    }
+
+    /**
+     * Builds a people:batchDeleteContacts request.
+     *
+     * @param resourceNames The contacts to delete; at most 500.
+     * @return The request body, ready to be serialized to JSON.
+     */
+    public static Map<String, Object> batchDeleteRequest(List<String> resourceNames) {
+        return Map.of("resourceNames", resourceNames);
+    }
+}
@@ -0,0 +1,475 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.config.ContactSyncProperties;
+import com.najarro.oauth2contacts.config.DuplicateProperties;
+import com.najarro.oauth2contacts.model.Contact;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientException;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves a user's contacts from the per-user {@link ContactCache}, going to the People API
+ * only for the initial load and for incremental syncs once the cached copy is due for one.
+ */
+@Service
+public class ContactService {
+
+    private final PeopleApiClient peopleApiClient;
+    private final ContactCache contactCache;
+    private final PersonCache personCache;
+    private final ContactSyncProperties syncProperties;
+    private final ContactDuplicates duplicates;
+
+    public ContactService(PeopleApiClient peopleApiClient, ContactCache contactCache, PersonCache personCache,
+                          ContactSyncProperties syncProperties, DuplicateProperties duplicateProperties) {
+        this.peopleApiClient = peopleApiClient;
+        this.contactCache = contactCache;
+        this.personCache = personCache;
+        this.syncProperties = syncProperties;
+        this.duplicates = new ContactDuplicates(duplicateProperties.getDefaultCountryCode(),
+                duplicateProperties.getNameSimilarity(), duplicateProperties.getMaxBlockSize());
+    }
+
+    /**
+     * Returns the user's contacts.
+     * A cache hit is served locally. With the background sync on, {@link ContactSyncScheduler}
+     * keeps it current and it is served as is; otherwise it gets an incremental sync first once the
+     * sync interval has passed (and is served as is if Google is unavailable).
+     * On a miss the contacts are streamed straight from the People API and cached as they are rendered.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @return The contacts; either a cached list or a single-use {@link ContactStream}.
+     */
+    public Iterable<Contact> listContacts(String principalName, String accessToken) {
+        ContactSnapshot snapshot = contactCache.get(principalName);
+        if (snapshot == null || snapshot.getSyncToken() == null) {
+            return loadAll(principalName, accessToken);
+        }
+        if (!syncProperties.isEnabled() && contactCache.isDueForSync(snapshot)) {
+            try {
+                sync(principalName, snapshot, accessToken);
+            } catch (SyncTokenExpiredException e) {
+                contactCache.invalidate(principalName);
+                return loadAll(principalName, accessToken);
+            } catch (RuntimeException e) {
+                if (!isUpstreamUnavailable(e)) {
+                    throw e;
+                }
+                // Serve the cached copy while Google is unavailable; the next read tries the sync again
+            }
+        }
+        return snapshot.getContacts();
+    }
+
+    /**
+     * Brings the user's cached contacts up to date for the background sync: with an incremental
+     * sync when they are cached, and by loading them in full when they are not (or the syncToken
+     * has expired), so that the user's next read is a local one. Changes to a cached copy reach
+     * open contacts pages through {@link ContactEvents}.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @return True if the contacts were loaded in full, false if an incremental sync was enough.
+     */
+    public boolean refresh(String principalName, String accessToken) {
+        ContactSnapshot snapshot = contactCache.get(principalName);
+        if (snapshot != null && snapshot.getSyncToken() != null) {
+            try {
+                sync(principalName, snapshot, accessToken);
+                return false;
+            } catch (SyncTokenExpiredException e) {
+                contactCache.invalidate(principalName);
+            }
+        }
+        // Draining the listing is what publishes the loaded snapshot to the cache
+        for (Contact ignored : loadAll(principalName, accessToken)) {
+        }
+        return true;
+    }
+
+    /**
+     * Returns one page of the user's contacts, sorted over the whole set. The sorted order is
+     * kept in the snapshot, so only the first page after a change sorts; a cold cache is loaded
+     * in full first.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param sort The order.
+     * @param descending Whether to reverse it.
+     * @param page Zero-based page number.
+     * @param size Page size.
+     * @return The requested page.
+     */
+    public ContactPage listContacts(String principalName, String accessToken, ContactSort sort, boolean descending,
+                                    int page, int size) {
+        return ContactPage.of(loadedSnapshot(principalName, accessToken).getContacts(sort), sort, descending, page, size);
+    }
+
+    /**
+     * Searches the user's cached contacts with the snapshot's in-memory index.
+     * A cold cache is loaded in full first, so the People API is only called for the initial load
+     * and for syncs, never per query.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param query The search text; matched against names, email addresses and phone numbers.
+     * @param page Zero-based page number.
+     * @param size Page size.
+     * @return The requested page of ranked matches.
+     */
+    public SearchPage searchContacts(String principalName, String accessToken, String query, int page, int size) {
+        return SearchPage.of(query, loadedSnapshot(principalName, accessToken).search(query), page, size);
+    }
+
+    /**
+     * Finds likely duplicates among the user's cached contacts with {@link ContactDuplicates}; the
+     * groups are kept with the snapshot until it next changes. A cold cache is loaded in full
+     * first, as for a search.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @return The groups of likely duplicates, largest first.
+     */
+    public List<DuplicateGroup> findDuplicates(String principalName, String accessToken) {
+        return loadedSnapshot(principalName, accessToken).getDuplicates(duplicates);
+    }
+
+    /**
+     * Merges duplicates into the contact that is kept, with as few calls as possible: one
+     * updateContact carrying only the fields the duplicates add, then one deleteContact, or a
+     * batchDeleteContacts for several duplicates. The update goes first and checks the survivor's
+     * etag, so nothing is deleted if the survivor changed since it was read. If the duplicates add
+     * nothing to the cached survivor, it is read again first and the merge redone against that, so
+     * that what they add to a survivor changed since is not lost either.
+     * If the deletes fail, the user's cached contacts are reloaded on the next read, since some of
+     * them may have been deleted.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param survivorName The resourceName of the contact to keep.
+     * @param duplicateNames The resourceNames of the contacts folded into it and deleted.
+     * @return The kept contact as it is after the merge.
+     * @throws IllegalArgumentException If any of the contacts isn't among the user's contacts.
+     */
+    public Contact mergeContacts(String principalName, String accessToken, String survivorName,
+                                 List<String> duplicateNames) {
+        ContactSnapshot snapshot = loadedSnapshot(principalName, accessToken);
+        Contact survivor = snapshot.get(survivorName);
+        if (survivor == null) {
+            throw new IllegalArgumentException("Contact not found: " + survivorName);
+        }
+        List<String> deleted = new ArrayList<>(new LinkedHashSet<>(duplicateNames));
+        deleted.remove(survivorName);
+        if (deleted.size() > PeopleApiClient.MAX_BATCH_DELETE_SIZE) {
+            throw new IllegalArgumentException("At most " + PeopleApiClient.MAX_BATCH_DELETE_SIZE + " contacts can be merged at once");
+        }
+        List<Contact> others = new ArrayList<>(deleted.size());
+        for (String resourceName : deleted) {
+            Contact other = snapshot.get(resourceName);
+            if (other == null) {
+                throw new IllegalArgumentException("Contact not found: " + resourceName);
+            }
+            others.add(other);
+        }
+
+        Map<String, Object> person = ContactPayloads.toUpdatePerson(survivor, duplicates.merge(survivor, others));
+        Contact merged = survivor;
+        if (ContactPayloads.updatePersonFields(person).isEmpty() && !deleted.isEmpty()) {
+            // No etag-checked update to guard the deletes: revalidate the survivor against Google
+            Contact current = peopleApiClient.getPersonVersion(principalName, accessToken, survivorName).contact();
+            if (current == null) {
+                throw new IllegalArgumentException("Contact not found: " + survivorName);
+            }
+            personCache.evict(principalName, survivorName);
+            contactCache.writeThrough(principalName, List.of(current), List.of());
+            person = ContactPayloads.toUpdatePerson(current, duplicates.merge(current, others));
+            merged = current;
+        }
+        if (!ContactPayloads.updatePersonFields(person).isEmpty()) {
+            merged = writeThrough(principalName, peopleApiClient.updateContact(principalName, accessToken, survivorName, person));
+        }
+        if (deleted.size() == 1) {
+            deleteContact(principalName, accessToken, deleted.get(0));
+        } else if (!deleted.isEmpty()) {
+            try {
+                peopleApiClient.batchDeleteContacts(principalName, accessToken, deleted);
+            } catch (RestClientException | UncheckedIOException | PeopleApiUnavailableException e) {
+                for (String resourceName : deleted) {
+                    personCache.evict(principalName, resourceName);
+                }
+                contactCache.invalidate(principalName);
+                throw e;
+            }
+            for (String resourceName : deleted) {
+                evict(principalName, resourceName);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * The user's cached snapshot with every contact in it, for reads that need the whole set at once.
+     * A cold load is drained, which is what publishes it to the cache, and the cached snapshot is
+     * returned, so that what is found or resolved in it is what later reads and writes see.
+     */
+    private ContactSnapshot loadedSnapshot(String principalName, String accessToken) {
+        Iterable<Contact> contacts = listContacts(principalName, accessToken);
+        if (!(contacts instanceof ContactStream)) {
+            ContactSnapshot snapshot = contactCache.get(principalName);
+            if (snapshot != null) {
+                return snapshot;
+            }
+        }
+        List<Contact> loaded = new ArrayList<>();
+        for (Contact contact : contacts) {
+            loaded.add(contact);
+        }
+        ContactSnapshot snapshot = contactCache.get(principalName);
+        if (snapshot == null) {
+            // Caching is disabled (max-users of 0 or a zero ttl): index the listing just for this call
+            snapshot = new ContactSnapshot();
+            for (Contact contact : loaded) {
+                snapshot.put(contact);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the user's contacts for an export.
+     * A cached copy that is within its sync interval is used as is. Otherwise the contacts are
+     * streamed from the People API page by page and not cached, so a large export holds at most
+     * two pages in memory.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @return The contacts; either a cached list or a single-use {@link ContactStream}.
+     */
+    public Iterable<Contact> exportContacts(String principalName, String accessToken) {
+        ContactSnapshot snapshot = contactCache.get(principalName);
+        if (snapshot != null && snapshot.getSyncToken() != null && !contactCache.isDueForSync(snapshot)) {
+            return snapshot.getContacts();
+        }
+        return peopleApiClient.streamConnections(principalName, accessToken, ContactStream.Listener.NONE);
+    }
+
+    /**
+     * Returns a single contact for editing, with as little upstream work as possible:
+     * <ol>
+     *   <li>With the user's contacts cached, the cached copy (with the etag from the last read or
+     *   write) is served; once the snapshot is due for one, after an incremental sync, which is a
+     *   single small request when little has changed.</li>
+     *   <li>Otherwise from the {@link PersonCache}: as is within the sync interval, and after a
+     *   metadata-only read confirms its version is still current after that.</li>
+     *   <li>Only then is the person read in full, and cached for the next edit.</li>
+     * </ol>
+     * A cached copy is also served when the read fails because Google is unavailable.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param resourceName The resourceName of the contact.
+     * @return The contact, or null if the API returned no body.
+     */
+    public Contact getContact(String principalName, String accessToken, String resourceName) {
+        ContactSnapshot snapshot = contactCache.get(principalName);
+        if (snapshot != null && snapshot.getSyncToken() != null) {
+            boolean current = true;
+            if (contactCache.isDueForSync(snapshot)) {
+                try {
+                    sync(principalName, snapshot, accessToken);
+                } catch (SyncTokenExpiredException e) {
+                    contactCache.invalidate(principalName);
+                    snapshot = null;
+                    current = false;
+                } catch (RuntimeException e) {
+                    if (!isUpstreamUnavailable(e)) {
+                        throw e;
+                    }
+                    // Serve the cached copy while Google is unavailable
+                }
+            }
+            Contact cached = current ? snapshot.get(resourceName) : null;
+            if (cached != null && cached.getEtag() != null) {
+                return cached;
+            }
+        }
+
+        PersonCache.Entry entry = personCache.get(principalName, resourceName);
+        if (entry != null) {
+            if (personCache.isFresh(entry)) {
+                return entry.getContact();
+            }
+            try {
+                if (entry.getVersion().equals(peopleApiClient.getPersonVersionOnly(principalName, accessToken, resourceName))) {
+                    personCache.revalidated(principalName, entry);
+                    return entry.getContact();
+                }
+            } catch (RuntimeException e) {
+                if (!isUpstreamUnavailable(e)) {
+                    throw e;
+                }
+                return entry.getContact();
+            }
+        }
+
+        PersonVersion person;
+        try {
+            person = peopleApiClient.getPersonVersion(principalName, accessToken, resourceName);
+        } catch (RuntimeException e) {
+            Contact cached = snapshot != null ? snapshot.get(resourceName) : null;
+            if (cached == null || !isUpstreamUnavailable(e)) {
+                throw e;
+            }
+            return cached;
+        }
+        Contact contact = person.contact();
+        if (contact != null) {
+            personCache.put(principalName, person);
+            if (snapshot != null) {
+                snapshot.put(contact);
+            }
+        }
+        return contact;
+    }
+
+    /**
+     * Creates a contact and adds the returned Person to the user's cached contacts.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param jsonBody The Person to create, serialized as JSON.
+     * @return The created contact as returned by the API.
+     */
+    public Contact createContact(String principalName, String accessToken, String jsonBody) {
+        return writeThrough(principalName, peopleApiClient.createContact(principalName, accessToken, jsonBody));
+    }
+
+    /**
+     * Builds the Person payload for saving an edited contact with only the fields that changed,
+     * diffed against the cached copy if it still has the etag the edit form was loaded with.
+     * Without one every field is sent, as the etag check upstream then decides.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param contact The submitted contact, with its resourceName and etag.
+     * @return The payload for {@link ContactPayloads#updatePersonFields(Map)}; it has no fields to
+     *         update if nothing changed.
+     */
+    public Map<String, Object> toUpdatePerson(String principalName, Contact contact) {
+        ContactSnapshot snapshot = contactCache.get(principalName);
+        Contact original = snapshot != null ? snapshot.get(contact.getResourceName()) : null;
+        if (original != null && (contact.getEtag() == null || !contact.getEtag().equals(original.getEtag()))) {
+            original = null;
+        }
+        return ContactPayloads.toUpdatePerson(original, contact);
+    }
+
+    /**
+     * Updates a contact and replaces the cached copy with the returned Person, including its new etag.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param resourceName The resourceName of the contact to update.
+     * @param updatePersonFields Comma separated field mask of the fields being replaced.
+     * @param jsonBody The Person payload, serialized as JSON.
+     * @return The updated contact as returned by the API.
+     */
+    public Contact updateContact(String principalName, String accessToken, String resourceName,
+                                 String updatePersonFields, String jsonBody) {
+        return writeThrough(principalName,
+                peopleApiClient.updateContact(principalName, accessToken, resourceName, updatePersonFields, jsonBody));
+    }
+
+    /**
+     * Deletes a contact and drops it from the user's cached contacts.
+     * A 404 also drops it, since the contact is gone either way.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param resourceName The resourceName of the contact to delete.
+     */
+    public void deleteContact(String principalName, String accessToken, String resourceName) {
+        try {
+            peopleApiClient.deleteContact(principalName, accessToken, resourceName);
+        } catch (HttpClientErrorException.NotFound e) {
+            evict(principalName, resourceName);
+            throw e;
+        }
+        evict(principalName, resourceName);
+    }
+
+    /**
+     * True for failures that say nothing about the cached data being wrong: the governor refused
+     * the call, or Google stayed over quota or unavailable through the retries.
+     */
+    static boolean isUpstreamUnavailable(RuntimeException e) {
+        return e instanceof PeopleApiUnavailableException
+                || e instanceof HttpClientErrorException.TooManyRequests
+                || e instanceof HttpServerErrorException;
+    }
+
+    private Contact writeThrough(String principalName, Contact contact) {
+        if (contact == null) {
+            // Without the returned Person the cached copy can't be patched, so force a reload
+            contactCache.invalidate(principalName);
+        } else {
+            // A write response has no version to revalidate with; the next edit reads the person again
+            personCache.evict(principalName, contact.getResourceName());
+            contactCache.writeThrough(principalName, List.of(contact), List.of());
+        }
+        return contact;
+    }
+
+    private void evict(String principalName, String resourceName) {
+        personCache.evict(principalName, resourceName);
+        contactCache.writeThrough(principalName, List.of(), List.of(resourceName));
+    }
+
+    /**
+     * Applies everything that changed upstream since the snapshot's syncToken.
+     */
+    private void sync(String principalName, ContactSnapshot snapshot, String accessToken) {
+        String nextSyncToken = peopleApiClient.syncConnections(principalName, accessToken, snapshot.getSyncToken(), page -> {
+            for (Contact contact : page.getContacts()) {
+                snapshot.put(contact);
+            }
+            for (String resourceName : page.getDeletedResourceNames()) {
+                snapshot.remove(resourceName);
+            }
+        });
+        snapshot.markSynced(nextSyncToken, contactCache.now());
+    }
+
+    /**
+     * Streams a full listing and fills a fresh snapshot as the caller consumes it.
+     * The snapshot is only published to the cache once the last page has been read.
+     */
+    private Iterable<Contact> loadAll(String principalName, String accessToken) {
+        ContactSnapshot snapshot = new ContactSnapshot();
+        ContactStream stream = peopleApiClient.streamConnections(principalName, accessToken, new ContactStream.Listener() {
+            @Override
+            public void onContact(Contact contact) {
+                snapshot.put(contact);
+            }
+
+            @Override
+            public void onComplete(String nextSyncToken) {
+                snapshot.markSynced(nextSyncToken, contactCache.now());
+                contactCache.put(principalName, snapshot);
+            }
+        });
+        if (stream.isEmpty()) {
+            // The view never iterates an empty stream, so drain it here to cache the empty result
+            stream.iterator().hasNext();
+            return snapshot.getContacts();
+        }
+        return stream;
+    }
+}
@@ -0,0 +1,182 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A user's cached contacts, keyed by resourceName, together with the People API syncToken
+ * that was current when they were last synchronized.
+ * All access is synchronized because a snapshot can be read by one request while another
+ * request for the same user is applying a sync.
+ */
+public class ContactSnapshot {
+
+    private final Map<String, Contact> contacts = new LinkedHashMap<>();
+    private final ContactIndex index = new ContactIndex();
+    private final Map<ContactSort, List<Contact>> sorted = new EnumMap<>(ContactSort.class);
+    private List<DuplicateGroup> duplicates;
+    private String syncToken;
+    private Instant syncedAt;
+    private long version;
+    private volatile Consumer<ContactDelta> listener;
+
+    /**
+     * Adds or replaces a contact. Replacing it with the same etag (as an incremental sync does for
+     * the writes it reads back) is not reported as a change.
+     */
+    public void put(Contact contact) {
+        ContactDelta delta;
+        synchronized (this) {
+            Contact previous = contacts.put(contact.getResourceName(), contact);
+            index.add(contact);
+            sorted.clear();
+            duplicates = null;
+            if (previous == null) {
+                delta = new ContactDelta(ContactDelta.Type.ADDED, contact.getResourceName(), contact);
+            } else if (previous.getEtag() == null || !previous.getEtag().equals(contact.getEtag())) {
+                delta = new ContactDelta(ContactDelta.Type.UPDATED, contact.getResourceName(), contact);
+            } else {
+                delta = null;
+            }
+            if (delta != null) {
+                version++;
+            }
+        }
+        notifyListener(delta);
+    }
+
+    public void remove(String resourceName) {
+        boolean removed;
+        synchronized (this) {
+            removed = contacts.remove(resourceName) != null;
+            index.remove(resourceName);
+            if (removed) {
+                sorted.clear();
+                duplicates = null;
+                version++;
+            }
+        }
+        notifyListener(removed ? new ContactDelta(ContactDelta.Type.DELETED, resourceName, null) : null);
+    }
+
+    /**
+     * Sets the callback told about every change from now on, outside of the snapshot's lock.
+     */
+    public void setListener(Consumer<ContactDelta> listener) {
+        this.listener = listener;
+    }
+
+    public synchronized Contact get(String resourceName) {
+        return contacts.get(resourceName);
+    }
+
+    /**
+     * @return A point-in-time copy of the cached contacts, in the order they were first loaded.
+     */
+    public synchronized List<Contact> getContacts() {
+        return new ArrayList<>(contacts.values());
+    }
+
+    /**
+     * @return The cached contacts in ascending order. The order is computed once per change to the
+     * snapshot, so paging through it doesn't sort the whole list again for every page.
+     */
+    public synchronized List<Contact> getContacts(ContactSort sort) {
+        return sorted.computeIfAbsent(sort, key -> List.copyOf(key.sort(contacts.values())));
+    }
+
+    /**
+     * @return The groups of likely duplicates among the cached contacts, computed once per change
+     * to the snapshot like the sorted orders.
+     */
+    public synchronized List<DuplicateGroup> getDuplicates(ContactDuplicates finder) {
+        if (duplicates == null) {
+            duplicates = List.copyOf(finder.find(new ArrayList<>(contacts.values())));
+        }
+        return duplicates;
+    }
+
+    /**
+     * Searches the cached contacts by name, email and phone number prefix, falling back to
+     * fuzzy matching for tokens with no prefix match.
+     *
+     * @param query One or more whitespace separated tokens; a contact must match all of them.
+     * @return The matches, best first (exact over prefix over fuzzy matches, then by name).
+     */
+    public synchronized List<Contact> search(String query) {
+        Map<String, Integer> scores = index.search(query);
+        // Sort keys are computed once per match rather than on every comparison
+        List<Ranked> ranked = new ArrayList<>(scores.size());
+        scores.forEach((resourceName, score) -> {
+            Contact contact = contacts.get(resourceName);
+            String name = contact.getFullName();
+            ranked.add(new Ranked(contact, score, name != null ? name : ""));
+        });
+        ranked.sort(RANKING);
+        List<Contact> matches = new ArrayList<>(ranked.size());
+        for (Ranked match : ranked) {
+            matches.add(match.contact());
+        }
+        return matches;
+    }
+
+    private record Ranked(Contact contact, int score, String name) {
+    }
+
+    private static final Comparator<Ranked> RANKING = Comparator.comparingInt(Ranked::score).reversed()
+            .thenComparing(Ranked::name, String.CASE_INSENSITIVE_ORDER);
+
+    public synchronized int size() {
+        return contacts.size();
+    }
+
+    public synchronized String getSyncToken() {
+        return syncToken;
+    }
+
+    public synchronized Instant getSyncedAt() {
+        return syncedAt;
+    }
+
+    /**
+     * @return A counter that moves on every change to the contacts or the syncToken, so a copy
+     * written elsewhere can tell whether it is still current.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The contacts, syncToken and version as of one point in time.
+     */
+    public synchronized Contents getContents() {
+        return new Contents(new ArrayList<>(contacts.values()), syncToken, syncedAt, version);
+    }
+
+    public record Contents(List<Contact> contacts, String syncToken, Instant syncedAt, long version) {
+    }
+
+    /**
+     * Records a completed full load or incremental sync.
+     */
+    public synchronized void markSynced(String syncToken, Instant syncedAt) {
+        this.syncToken = syncToken;
+        this.syncedAt = syncedAt;
+        version++;
+    }
+
+    private void notifyListener(ContactDelta delta) {
+        Consumer<ContactDelta> current = listener;
+        if (delta != null && current != null) {
+            current.accept(delta);
+        }
+    }
+}
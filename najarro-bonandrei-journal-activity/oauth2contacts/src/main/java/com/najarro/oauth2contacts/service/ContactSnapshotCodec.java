@@ -0,0 +1,90 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary form of a {@link ContactSnapshot}: syncToken, syncedAt and every contact with its etag,
+ * names, email addresses and phone numbers. Used for the on-disk copy in {@link ContactSnapshotStore}
+ * and the shared copy in {@link SharedContactSnapshots}.
+ */
+final class ContactSnapshotCodec {
+
+    private ContactSnapshotCodec() {
+    }
+
+    static byte[] encode(ContactSnapshot.Contents contents) {
+        BinaryWriter out = new BinaryWriter(8192);
+        out.string(contents.syncToken());
+        out.instant(contents.syncedAt());
+        out.varint(contents.contacts().size());
+        for (Contact contact : contents.contacts()) {
+            out.string(contact.getResourceName());
+            out.string(contact.getEtag());
+            out.string(contact.getFirstName());
+            out.string(contact.getLastName());
+            // Lists are written as their size plus one, with 0 for null
+            List<Contact.EmailAddress> emails = contact.getEmailAddresses();
+            out.varint(emails != null ? emails.size() + 1 : 0);
+            if (emails != null) {
+                for (Contact.EmailAddress email : emails) {
+                    out.string(email.getValue());
+                    out.string(email.getType());
+                }
+            }
+            List<Contact.PhoneNumber> phones = contact.getPhoneNumbers();
+            out.varint(phones != null ? phones.size() + 1 : 0);
+            if (phones != null) {
+                for (Contact.PhoneNumber phone : phones) {
+                    out.string(phone.getValue());
+                    out.string(phone.getType());
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    static ContactSnapshot decode(ByteBuffer buffer) {
+        BinaryReader in = new BinaryReader(buffer);
+        String syncToken = in.string();
+        Instant syncedAt = in.instant();
+        int count = in.varint();
+        ContactSnapshot snapshot = new ContactSnapshot();
+        for (int i = 0; i < count; i++) {
+            Contact contact = new Contact();
+            contact.setResourceName(in.string());
+            contact.setEtag(in.string());
+            contact.setFirstName(in.string());
+            contact.setLastName(in.string());
+            int emails = in.varint();
+            if (emails > 0) {
+                List<Contact.EmailAddress> emailAddresses = new ArrayList<>(emails - 1);
+                for (int j = 1; j < emails; j++) {
+                    Contact.EmailAddress email = new Contact.EmailAddress();
+                    email.setValue(in.string());
+                    email.setType(in.string());
+                    emailAddresses.add(email);
+                }
+                contact.setEmailAddresses(emailAddresses);
+            }
+            int phones = in.varint();
+            if (phones > 0) {
+                List<Contact.PhoneNumber> phoneNumbers = new ArrayList<>(phones - 1);
+                for (int j = 1; j < phones; j++) {
+                    Contact.PhoneNumber phone = new Contact.PhoneNumber();
+                    phone.setValue(in.string());
+                    phone.setType(in.string());
+                    phoneNumbers.add(phone);
+                }
+                contact.setPhoneNumbers(phoneNumbers);
+            }
+            snapshot.put(contact);
+        }
+        snapshot.markSynced(syncToken, syncedAt);
+        return snapshot;
+    }
+}
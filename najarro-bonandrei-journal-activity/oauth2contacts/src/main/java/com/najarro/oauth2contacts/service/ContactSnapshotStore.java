@@ -0,0 +1,190 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.config.SnapshotStoreProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Keeps a copy of each user's {@link ContactSnapshot} on local disk, so that a restarted instance
+ * serves warm contacts at once and resumes with an incremental sync from the stored syncToken
+ * instead of loading every user in full.
+ * <p>
+ * One file per user, named after a SHA-256 of the principal name (the OAuth2 subject), holding:
+ * <pre>
+ * "OCS" | format version | 12 byte IV | AES-GCM( syncToken | syncedAt | contacts )
+ * </pre>
+ * encrypted with {@link AesGcm}.
+ * Every contact is stored with its etag ({@link ContactSnapshotCodec}), so edits after a restart
+ * still pass the People API's etag check. The header and the principal name are authenticated with
+ * the ciphertext, so a file that was tampered with, encrypted with another key
+ * or copied to another user's name is rejected and the user is simply loaded from Google again.
+ * Files are read through a memory mapping and replaced atomically when written.
+ * <p>
+ * Metrics: {@code contacts.snapshot.store} (tags {@code operation} and {@code outcome}).
+ */
+@Component
+public class ContactSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ContactSnapshotStore.class);
+
+    private static final byte[] MAGIC = {'O', 'C', 'S'};
+    private static final byte FORMAT_VERSION = 1;
+    private static final int IV_LENGTH = AesGcm.IV_LENGTH;
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + IV_LENGTH;
+    private static final String SUFFIX = ".snap";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final AesGcm aead;
+    private final MeterRegistry meterRegistry;
+
+    public ContactSnapshotStore(SnapshotStoreProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.directory = properties.getDirectory();
+        this.meterRegistry = meterRegistry;
+        if (!enabled) {
+            this.aead = null;
+            return;
+        }
+        this.aead = AesGcm.fromBase64(properties.getKey(), "contacts.snapshot-store.key");
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't create the snapshot directory " + directory, e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param principalName The OAuth2 principal name the snapshot is keyed by.
+     * @return The stored snapshot, or null if there is none or it can't be read.
+     */
+    public ContactSnapshot load(String principalName) {
+        Path file = file(principalName);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ContactSnapshot snapshot = decode(principalName, mapped);
+            count("load", snapshot != null ? "hit" : "rejected");
+            return snapshot;
+        } catch (NoSuchFileException e) {
+            count("load", "miss");
+            return null;
+        } catch (IOException | GeneralSecurityException | BufferUnderflowException | IllegalArgumentException e) {
+            count("load", "rejected");
+            log.warn("Ignoring unreadable contact snapshot {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot, replacing the user's previous file.
+     *
+     * @return The version of the snapshot that was written.
+     */
+    public long save(String principalName, ContactSnapshot snapshot) {
+        ContactSnapshot.Contents contents = snapshot.getContents();
+        try {
+            byte[] encoded = encode(principalName, contents);
+            Path temporary = Files.createTempFile(directory, "snapshot", ".tmp");
+            try {
+                Files.write(temporary, encoded);
+                Files.move(temporary, file(principalName), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            count("save", "written");
+            return contents.version();
+        } catch (IOException | GeneralSecurityException e) {
+            count("save", "failed");
+            throw new IllegalStateException("Can't write the contact snapshot of " + principalName, e);
+        }
+    }
+
+    public void delete(String principalName) {
+        try {
+            Files.deleteIfExists(file(principalName));
+        } catch (IOException e) {
+            log.warn("Can't delete the contact snapshot of {}", principalName, e);
+        }
+    }
+
+    private Path file(String principalName) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(principalName.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(hash) + SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] encode(String principalName, ContactSnapshot.Contents contents) throws GeneralSecurityException {
+        byte[] header = new byte[HEADER_LENGTH];
+        System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+        header[MAGIC.length] = FORMAT_VERSION;
+        byte[] iv = aead.newIv();
+        System.arraycopy(iv, 0, header, MAGIC.length + 1, IV_LENGTH);
+
+        Cipher cipher = cipher(Cipher.ENCRYPT_MODE, iv, header, principalName);
+        byte[] plain = ContactSnapshotCodec.encode(contents);
+        byte[] encoded = new byte[HEADER_LENGTH + cipher.getOutputSize(plain.length)];
+        System.arraycopy(header, 0, encoded, 0, HEADER_LENGTH);
+        cipher.doFinal(plain, 0, plain.length, encoded, HEADER_LENGTH);
+        return encoded;
+    }
+
+    private ContactSnapshot decode(String principalName, ByteBuffer file) throws GeneralSecurityException {
+        if (file.remaining() < HEADER_LENGTH) {
+            return null;
+        }
+        byte[] header = new byte[HEADER_LENGTH];
+        file.get(header);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header[i] != MAGIC[i]) {
+                return null;
+            }
+        }
+        if (header[MAGIC.length] != FORMAT_VERSION) {
+            return null;
+        }
+        byte[] iv = new byte[IV_LENGTH];
+        System.arraycopy(header, MAGIC.length + 1, iv, 0, IV_LENGTH);
+
+        Cipher cipher = cipher(Cipher.DECRYPT_MODE, iv, header, principalName);
+        ByteBuffer plain = ByteBuffer.allocate(cipher.getOutputSize(file.remaining()));
+        cipher.doFinal(file, plain);
+        plain.flip();
+
+        return ContactSnapshotCodec.decode(plain);
+    }
+
+    private Cipher cipher(int mode, byte[] iv, byte[] header, String principalName) throws GeneralSecurityException {
+        return aead.cipher(mode, iv, header, principalName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void count(String operation, String outcome) {
+        meterRegistry.counter("contacts.snapshot.store", "operation", operation, "outcome", outcome).increment();
+    }
+}
@@ -0,0 +1,73 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Orders the contacts page can be sorted in. Contacts without the sort key (no name, no email
+ * address) come last; ties are broken by resourceName so paging through a sorted list is stable.
+ */
+public enum ContactSort {
+
+    NAME("name", Contact::getFullName),
+    EMAIL("email", Contact::getFirstEmailAddress);
+
+    private final String param;
+    private final Function<Contact, String> key;
+
+    ContactSort(String param, Function<Contact, String> key) {
+        this.param = param;
+        this.key = key;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    /**
+     * Sorts the contacts. Each contact's key is computed once rather than on every comparison.
+     *
+     * @return A new list in ascending order.
+     */
+    public List<Contact> sort(Collection<Contact> contacts) {
+        List<Keyed> keyed = new ArrayList<>(contacts.size());
+        for (Contact contact : contacts) {
+            String value = key.apply(contact);
+            keyed.add(new Keyed(contact,
+                    value == null || value.isBlank() ? null : value.trim().toLowerCase(Locale.ROOT),
+                    contact.getResourceName() != null ? contact.getResourceName() : ""));
+        }
+        keyed.sort(ORDER);
+        List<Contact> sorted = new ArrayList<>(keyed.size());
+        for (Keyed entry : keyed) {
+            sorted.add(entry.contact());
+        }
+        return sorted;
+    }
+
+    /**
+     * @param value A sort name, in any case.
+     * @return The matching sort, or null if there is none.
+     */
+    public static ContactSort fromParam(String value) {
+        for (ContactSort sort : values()) {
+            if (sort.param.equals(value.toLowerCase(Locale.ROOT))) {
+                return sort;
+            }
+        }
+        return null;
+    }
+
+    private record Keyed(Contact contact, String key, String resourceName) {
+    }
+
+    private static final Comparator<Keyed> ORDER = Comparator
+            .comparing(Keyed::key, Comparator.nullsLast(Comparator.<String>naturalOrder()))
+            .thenComparing(Keyed::resourceName);
+}
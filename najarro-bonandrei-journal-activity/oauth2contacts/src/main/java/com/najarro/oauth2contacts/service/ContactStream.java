@@ -0,0 +1,150 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Lazily walks every page of a user's connections, one page at a time.
+ * As soon as a page arrives the next one is requested (and mapped) on the prefetch executor,
+ * so the upstream round trip overlaps with rendering the current page. At most two pages are
+ * held in memory at once, which keeps large address books bounded.
+ * <p>
+ * A {@link Listener} can observe every contact as it is rendered, e.g. to populate the cache
+ * without a second pass over the data.
+ * <p>
+ * The stream is single-use: {@link #iterator()} may only be called once.
+ */
+public class ContactStream implements Iterable<Contact> {
+
+    /**
+     * Callback notified while the stream is being consumed.
+     */
+    public interface Listener {
+
+        Listener NONE = new Listener() {
+            @Override
+            public void onContact(Contact contact) {
+            }
+
+            @Override
+            public void onComplete(String nextSyncToken) {
+            }
+        };
+
+        void onContact(Contact contact);
+
+        /**
+         * Called once after the last page has been fully consumed.
+         *
+         * @param nextSyncToken The syncToken returned with the last page, if one was requested.
+         */
+        void onComplete(String nextSyncToken);
+    }
+
+    private final ConnectionsPage firstPage;
+    private final Function<String, ConnectionsPage> pageFetcher;
+    private final Executor prefetchExecutor;
+    private final Listener listener;
+    private boolean consumed;
+
+    /**
+     * @param firstPage The first page, fetched eagerly so upstream errors surface before rendering starts.
+     * @param pageFetcher Fetches the page for a given pageToken.
+     * @param prefetchExecutor Executor the next page is requested on.
+     */
+    public ContactStream(ConnectionsPage firstPage,
+                         Function<String, ConnectionsPage> pageFetcher,
+                         Executor prefetchExecutor) {
+        this(firstPage, pageFetcher, prefetchExecutor, Listener.NONE);
+    }
+
+    /**
+     * @param firstPage The first page, fetched eagerly so upstream errors surface before rendering starts.
+     * @param pageFetcher Fetches the page for a given pageToken.
+     * @param prefetchExecutor Executor the next page is requested on.
+     * @param listener Notified of every contact and of the end of the stream.
+     */
+    public ContactStream(ConnectionsPage firstPage,
+                         Function<String, ConnectionsPage> pageFetcher,
+                         Executor prefetchExecutor,
+                         Listener listener) {
+        this.firstPage = firstPage;
+        this.pageFetcher = pageFetcher;
+        this.prefetchExecutor = prefetchExecutor;
+        this.listener = listener;
+    }
+
+    /**
+     * True when the user has no connections at all. Only looks at the first page.
+     */
+    public boolean isEmpty() {
+        return firstPage.getContacts().isEmpty() && !firstPage.hasNextPage();
+    }
+
+    @Override
+    public synchronized Iterator<Contact> iterator() {
+        if (consumed) {
+            throw new IllegalStateException("ContactStream can only be iterated once");
+        }
+        consumed = true;
+        return new PageIterator();
+    }
+
+    private class PageIterator implements Iterator<Contact> {
+
+        private Listener listener = ContactStream.this.listener;
+
+        private Iterator<Contact> rows = Collections.emptyIterator();
+        private CompletableFuture<ConnectionsPage> nextPage = CompletableFuture.completedFuture(firstPage);
+        private String nextSyncToken;
+
+        @Override
+        public boolean hasNext() {
+            while (!rows.hasNext()) {
+                if (nextPage == null) {
+                    if (listener != null) {
+                        listener.onComplete(nextSyncToken);
+                        listener = null;
+                    }
+                    return false;
+                }
+                ConnectionsPage page = awaitNextPage();
+                nextPage = page.hasNextPage()
+                        ? CompletableFuture.supplyAsync(() -> pageFetcher.apply(page.getNextPageToken()), prefetchExecutor)
+                        : null;
+                nextSyncToken = page.getNextSyncToken();
+                rows = page.getContacts().iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public Contact next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Contact contact = rows.next();
+            listener.onContact(contact);
+            return contact;
+        }
+
+        private ConnectionsPage awaitNextPage() {
+            try {
+                return nextPage.join();
+            } catch (CompletionException e) {
+                // Unwrap so callers see the original RestClientException
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
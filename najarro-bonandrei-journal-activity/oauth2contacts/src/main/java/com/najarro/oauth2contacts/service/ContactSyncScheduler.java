@@ -0,0 +1,231 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.config.ContactCacheProperties;
+import com.najarro.oauth2contacts.config.ContactSyncProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the contacts of every user with a live session warm in the {@link ContactCache}, so that
+ * /contacts is a local read and changes made elsewhere reach open pages through {@link ContactEvents}.
+ * <ul>
+ *   <li>Users come from the {@link SessionRegistry} and are dropped once their last session ends.
+ *   Each is refreshed with {@link ContactService#refresh} every {@code contacts.cache.sync-interval},
+ *   using the access token of their Google {@link OAuth2AuthorizedClient}; users without one, or
+ *   whose token has expired, are skipped until they sign in again.</li>
+ *   <li>Every user gets a fixed offset within the interval, derived from the principal name, so the
+ *   work is spread evenly instead of every user falling due on the same tick.</li>
+ *   <li>At most {@code contacts.sync.threads} users are refreshed at a time, and none are started
+ *   while the {@link PeopleApiGovernor} circuit is open. Calls go through the governor's limiters like
+ *   any other.</li>
+ * </ul>
+ * Metrics: {@code contacts.sync.lag} (how late a refresh started), {@code contacts.sync.queue}
+ * (users due but not started), {@code contacts.sync.active}, {@code contacts.sync.users} and
+ * {@code contacts.sync.runs} (tag {@code outcome}).
+ */
+@Component
+public class ContactSyncScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ContactSyncScheduler.class);
+
+    static final String REGISTRATION_ID = "google";
+
+    /**
+     * A token this close to expiry would likely run out during the refresh.
+     */
+    private static final Duration TOKEN_EXPIRY_SKEW = Duration.ofSeconds(30);
+
+    private final ContactService contactService;
+    private final SessionRegistry sessionRegistry;
+    private final OAuth2AuthorizedClientService authorizedClientService;
+    private final PeopleApiGovernor governor;
+    private final Executor executor;
+    private final ContactSyncProperties properties;
+    private final Duration interval;
+    private final MeterRegistry meterRegistry;
+    private final Timer lag;
+    private final Clock clock = Clock.systemUTC();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile int waiting;
+
+    public ContactSyncScheduler(ContactService contactService,
+                                SessionRegistry sessionRegistry,
+                                OAuth2AuthorizedClientService authorizedClientService,
+                                PeopleApiGovernor governor,
+                                @Qualifier("contactSyncExecutor") Executor executor,
+                                ContactSyncProperties properties,
+                                ContactCacheProperties cacheProperties,
+                                MeterRegistry meterRegistry) {
+        this.contactService = contactService;
+        this.sessionRegistry = sessionRegistry;
+        this.authorizedClientService = authorizedClientService;
+        this.governor = governor;
+        this.executor = executor;
+        this.properties = properties;
+        this.interval = cacheProperties.getSyncInterval();
+        this.meterRegistry = meterRegistry;
+
+        this.lag = Timer.builder("contacts.sync.lag")
+                .description("Time between a user falling due for a background sync and it starting")
+                .register(meterRegistry);
+        Gauge.builder("contacts.sync.queue", this, scheduler -> scheduler.waiting)
+                .description("Users due for a background sync that have not started yet")
+                .register(meterRegistry);
+        Gauge.builder("contacts.sync.active", active, AtomicInteger::get)
+                .description("Background syncs in progress")
+                .register(meterRegistry);
+        Gauge.builder("contacts.sync.users", jobs, Map::size)
+                .description("Users with a live session kept synced in the background")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${contacts.sync.tick:1s}")
+    public void tick() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Instant now = clock.instant();
+        Set<String> users = liveUsers();
+        jobs.keySet().retainAll(users);
+        for (String principalName : users) {
+            jobs.computeIfAbsent(principalName, name -> new Job(name, now.plus(offset(name, interval))));
+        }
+
+        List<Job> due = jobs.values().stream()
+                .filter(job -> !job.running && !job.dueAt.isAfter(now))
+                .sorted(Comparator.comparing(job -> job.dueAt))
+                .toList();
+        int started = 0;
+        if (governor.isAvailable()) {
+            for (Job job : due) {
+                if (active.get() >= properties.getThreads()) {
+                    break;
+                }
+                if (!start(job)) {
+                    break;
+                }
+                started++;
+            }
+        }
+        waiting = due.size() - started;
+    }
+
+    private boolean start(Job job) {
+        job.running = true;
+        active.incrementAndGet();
+        try {
+            executor.execute(() -> run(job));
+            return true;
+        } catch (RejectedExecutionException e) {
+            job.running = false;
+            active.decrementAndGet();
+            return false;
+        }
+    }
+
+    private void run(Job job) {
+        Instant startedAt = clock.instant();
+        lag.record(Duration.between(job.dueAt, startedAt));
+        Duration next = interval;
+        String outcome;
+        try {
+            String accessToken = accessToken(job.principalName, startedAt);
+            if (accessToken == null) {
+                outcome = "no_token";
+            } else {
+                outcome = contactService.refresh(job.principalName, accessToken) ? "loaded" : "synced";
+            }
+        } catch (PeopleApiUnavailableException e) {
+            // Leave the quota to interactive requests for a while
+            outcome = "unavailable";
+            next = interval.multipliedBy(2);
+        } catch (RuntimeException e) {
+            outcome = "failed";
+            log.warn("Background sync failed for {}", job.principalName, e);
+        } finally {
+            active.decrementAndGet();
+        }
+        job.dueAt = nextDue(job.dueAt, clock.instant(), next);
+        job.running = false;
+        meterRegistry.counter("contacts.sync.runs", "outcome", outcome).increment();
+    }
+
+    /**
+     * @return The principal names of all OAuth2 users with at least one session that hasn't ended.
+     */
+    private Set<String> liveUsers() {
+        Set<String> users = new HashSet<>();
+        for (Object principal : sessionRegistry.getAllPrincipals()) {
+            if (principal instanceof OAuth2AuthenticatedPrincipal user
+                    && !sessionRegistry.getAllSessions(principal, false).isEmpty()) {
+                users.add(user.getName());
+            }
+        }
+        return users;
+    }
+
+    private String accessToken(String principalName, Instant now) {
+        OAuth2AuthorizedClient client = authorizedClientService.loadAuthorizedClient(REGISTRATION_ID, principalName);
+        if (client == null) {
+            return null;
+        }
+        OAuth2AccessToken token = client.getAccessToken();
+        if (token.getExpiresAt() != null && token.getExpiresAt().isBefore(now.plus(TOKEN_EXPIRY_SKEW))) {
+            return null;
+        }
+        return token.getTokenValue();
+    }
+
+    /**
+     * The user's fixed position within the sync interval.
+     */
+    static Duration offset(String principalName, Duration interval) {
+        long millis = Math.max(1, interval.toMillis());
+        return Duration.ofMillis(Math.floorMod(principalName.hashCode() * 0x9E3779B97F4A7C15L, millis));
+    }
+
+    /**
+     * The first slot after now on the user's schedule, which keeps the user at their offset even
+     * when a refresh ran late or took longer than the interval.
+     */
+    static Instant nextDue(Instant dueAt, Instant now, Duration interval) {
+        long periods = Math.max(1, Duration.between(dueAt, now).toNanos() / interval.toNanos() + 1);
+        return dueAt.plus(interval.multipliedBy(periods));
+    }
+
+    private static final class Job {
+        private final String principalName;
+        private volatile Instant dueAt;
+        private volatile boolean running;
+
+        private Job(String principalName, Instant dueAt) {
+            this.principalName = principalName;
+            this.dueAt = dueAt;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.util.List;
+
+/**
+ * Contacts that are likely the same person, with what they were matched on.
+ */
+public class DuplicateGroup {
+
+    private final List<Contact> contacts;
+    private final List<String> reasons;
+
+    public DuplicateGroup(List<Contact> contacts, List<String> reasons) {
+        this.contacts = contacts;
+        this.reasons = reasons;
+    }
+
+    /**
+     * @return The contacts, the suggested one to keep (the most complete) first.
+     */
+    public List<Contact> getContacts() {
+        return contacts;
+    }
+
+    /**
+     * @return Any of "email", "phone" and "name".
+     */
+    public List<String> getReasons() {
+        return reasons;
+    }
+
+    public Contact getSurvivor() {
+        return contacts.get(0);
+    }
+}
@@ -0,0 +1,135 @@
+package com.najarro.oauth2contacts.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress of one contact import, updated by {@link ContactImportService} as it goes and polled
+ * by the import page.
+ */
+public class ImportProgress {
+
+    /**
+     * At most this many error messages are kept; the counters stay exact.
+     */
+    static final int MAX_ERRORS = 50;
+
+    public enum State {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final String principalName;
+    private final String fileName;
+    private State state = State.RUNNING;
+    private int read;
+    private int imported;
+    private int duplicates;
+    private int invalid;
+    private int failed;
+    private final List<String> errors = new ArrayList<>();
+    private Instant finishedAt;
+
+    ImportProgress(String id, String principalName, String fileName) {
+        this.id = id;
+        this.principalName = principalName;
+        this.fileName = fileName;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Records read from the file so far.
+     */
+    public synchronized int getRead() {
+        return read;
+    }
+
+    public synchronized int getImported() {
+        return imported;
+    }
+
+    /**
+     * Records skipped because an email address or phone number matched an existing contact or an
+     * earlier record of the same file.
+     */
+    public synchronized int getDuplicates() {
+        return duplicates;
+    }
+
+    public synchronized int getInvalid() {
+        return invalid;
+    }
+
+    /**
+     * Records the People API rejected.
+     */
+    public synchronized int getFailed() {
+        return failed;
+    }
+
+    public synchronized List<String> getErrors() {
+        return new ArrayList<>(errors);
+    }
+
+    public synchronized boolean isDone() {
+        return state != State.RUNNING;
+    }
+
+    String principalName() {
+        return principalName;
+    }
+
+    synchronized Instant finishedAt() {
+        return finishedAt;
+    }
+
+    synchronized void recordRead() {
+        read++;
+    }
+
+    synchronized void recordDuplicate() {
+        duplicates++;
+    }
+
+    synchronized void recordInvalid(String error) {
+        invalid++;
+        addError(error);
+    }
+
+    synchronized void recordBatch(BatchResult result) {
+        imported += result.getSucceeded();
+        failed += result.getFailed();
+        for (String error : result.getErrors()) {
+            addError(error);
+        }
+    }
+
+    synchronized void complete(Instant now) {
+        state = State.COMPLETED;
+        finishedAt = now;
+    }
+
+    synchronized void fail(String error, Instant now) {
+        state = State.FAILED;
+        finishedAt = now;
+        addError(error);
+    }
+
+    private void addError(String error) {
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(error);
+        }
+    }
+}
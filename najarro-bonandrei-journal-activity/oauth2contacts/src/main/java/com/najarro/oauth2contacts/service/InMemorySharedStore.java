@@ -0,0 +1,69 @@
+package com.najarro.oauth2contacts.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link SharedStore} held in this JVM. Enough for a single node, and the stand-in for a real
+ * shared store in tests: several "nodes" (caches, session repositories) built on one instance see
+ * each other's writes and messages like they would through Redis. Messages are delivered on the
+ * publishing thread. Expired values are dropped when they are read.
+ */
+public class InMemorySharedStore implements SharedStore {
+
+    private final Clock clock;
+    private final Map<String, Value> values = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<String>>> subscribers = new ConcurrentHashMap<>();
+
+    public InMemorySharedStore() {
+        this(Clock.systemUTC());
+    }
+
+    InMemorySharedStore(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public byte[] get(String key) {
+        Value value = values.get(key);
+        if (value == null) {
+            return null;
+        }
+        if (!value.expiresAt.isAfter(clock.instant())) {
+            values.remove(key, value);
+            return null;
+        }
+        return value.bytes.clone();
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        values.put(key, new Value(value.clone(), clock.instant().plus(ttl)));
+    }
+
+    @Override
+    public void delete(String key) {
+        values.remove(key);
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        for (Consumer<String> listener : subscribers.getOrDefault(channel, List.of())) {
+            listener.accept(message);
+        }
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        subscribers.computeIfAbsent(channel, key -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    private record Value(byte[] bytes, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,459 @@
+package com.najarro.oauth2contacts.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.najarro.oauth2contacts.config.PeopleApiProperties;
+import com.najarro.oauth2contacts.model.Contact;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Thin wrapper around the Google People API endpoints used by the application.
+ */
+@Component
+public class PeopleApiClient {
+
+    public static final String PERSON_FIELDS = "names,emailAddresses,phoneNumbers";
+    // Sync requests must repeat the exact parameters of the call that issued the token, and
+    // deletions are only reported through metadata, so listings always ask for it.
+    public static final String LIST_PERSON_FIELDS = PERSON_FIELDS + ",metadata";
+    // Reads for the edit form also ask for metadata, which carries the version they are revalidated with
+    public static final String VERSIONED_PERSON_FIELDS = PERSON_FIELDS + ",metadata";
+    /** Most contacts people:batchCreateContacts and people:batchUpdateContacts accept per call. */
+    public static final int MAX_BATCH_MUTATE_SIZE = 200;
+    /** Most resourceNames people:batchDeleteContacts accepts per call. */
+    public static final int MAX_BATCH_DELETE_SIZE = 500;
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+    private final PeopleApiProperties properties;
+    private final Executor prefetchExecutor;
+    private final PeopleApiMetrics metrics;
+    private final PeopleApiGovernor governor;
+    private final SingleFlight<InFlightRead> inFlightReads = new SingleFlight<>();
+
+    public PeopleApiClient(RestTemplate restTemplate,
+                           ObjectMapper objectMapper,
+                           PeopleApiProperties properties,
+                           @Qualifier("peopleApiExecutor") Executor prefetchExecutor,
+                           PeopleApiMetrics metrics,
+                           PeopleApiGovernor governor) {
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+        this.properties = properties;
+        this.prefetchExecutor = prefetchExecutor;
+        this.metrics = metrics;
+        this.governor = governor;
+    }
+
+    /**
+     * Fetches a single page of people/me/connections.
+     * Every listing requests a syncToken so that the result can later be refreshed incrementally.
+     *
+     * @param principalName The OAuth2 principal name, which the per-user rate limit is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param pageToken The nextPageToken of the previous page, or null for the first page.
+     * @param syncToken A syncToken from an earlier listing to only fetch changes since then, or null for a full listing.
+     * @return The page of mapped contacts and its continuation tokens.
+     * @throws SyncTokenExpiredException If Google no longer accepts the given syncToken.
+     */
+    public ConnectionsPage listConnections(String principalName, String accessToken, String pageToken, String syncToken) {
+        URI url = connectionsUri(properties.getBaseUrl(), properties.getPageSize(), pageToken, syncToken);
+
+        try {
+            return execute(principalName, "list", url, HttpMethod.GET, authorized(accessToken), ContactMapper::readConnectionsPage);
+        } catch (HttpClientErrorException e) {
+            if (syncToken != null && isExpiredSyncToken(e.getStatusCode(), e.getResponseBodyAsString())) {
+                throw new SyncTokenExpiredException("People API rejected the syncToken", e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns every connection of the user as a lazily paged stream.
+     * The first page is fetched before returning so that API errors are raised to the caller
+     * instead of in the middle of rendering; later pages are prefetched in the background.
+     *
+     * @param principalName The OAuth2 principal name, which the per-user rate limit is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param listener Notified of every contact streamed and of the final syncToken.
+     * @return A single-use stream of contacts.
+     */
+    public ContactStream streamConnections(String principalName, String accessToken, ContactStream.Listener listener) {
+        ConnectionsPage firstPage = listConnections(principalName, accessToken, null, null);
+        AtomicInteger pages = new AtomicInteger(1);
+        return new ContactStream(firstPage, pageToken -> {
+            pages.incrementAndGet();
+            return listConnections(principalName, accessToken, pageToken, null);
+        }, prefetchExecutor, new ContactStream.Listener() {
+            @Override
+            public void onContact(Contact contact) {
+                listener.onContact(contact);
+            }
+
+            @Override
+            public void onComplete(String nextSyncToken) {
+                metrics.recordPages("list", pages.get());
+                listener.onComplete(nextSyncToken);
+            }
+        });
+    }
+
+    /**
+     * Pulls everything that changed since the given syncToken, page by page.
+     *
+     * @param principalName The OAuth2 principal name, which the per-user rate limit is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param syncToken The syncToken of the last full load or sync.
+     * @param pageConsumer Receives each page of changed (and deleted) people in order.
+     * @return The syncToken to use for the next sync.
+     * @throws SyncTokenExpiredException If Google no longer accepts the given syncToken.
+     */
+    public String syncConnections(String principalName, String accessToken, String syncToken, Consumer<ConnectionsPage> pageConsumer) {
+        String pageToken = null;
+        ConnectionsPage page;
+        int pages = 0;
+        do {
+            page = listConnections(principalName, accessToken, pageToken, syncToken);
+            pages++;
+            pageConsumer.accept(page);
+            pageToken = page.getNextPageToken();
+        } while (page.hasNextPage());
+        metrics.recordPages("sync", pages);
+        return page.getNextSyncToken();
+    }
+
+    /**
+     * Fetches a single person for editing, with the version to revalidate a cached copy with.
+     *
+     * @param principalName The OAuth2 principal name, which the per-user rate limit is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param resourceName The resourceName of the person, e.g. people/c123.
+     * @return The mapped contact and its version.
+     */
+    public PersonVersion getPersonVersion(String principalName, String accessToken, String resourceName) {
+        return execute(
+                principalName,
+                "get",
+                resourceUri(properties.getBaseUrl(), resourceName, "").queryParam("personFields", VERSIONED_PERSON_FIELDS),
+                HttpMethod.GET,
+                authorized(accessToken),
+                ContactMapper::readPersonVersion
+        );
+    }
+
+    /**
+     * Reads only a person's metadata: a small response that tells whether a cached copy read
+     * with {@link #getPersonVersion} is still current.
+     *
+     * @param principalName The OAuth2 principal name, which the per-user rate limit is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param resourceName The resourceName of the person, e.g. people/c123.
+     * @return The person's current version, or null if the response had none.
+     */
+    public String getPersonVersionOnly(String principalName, String accessToken, String resourceName) {
+        return execute(
+                principalName,
+                "getMetadata",
+                resourceUri(properties.getBaseUrl(), resourceName, "").queryParam("personFields", "metadata"),
+                HttpMethod.GET,
+                authorized(accessToken),
+                parser -> ContactMapper.readPersonVersion(parser).version()
+        );
+    }
+
+    /**
+     * Creates a contact.
+     *
+     * @param principalName The OAuth2 principal name, which the per-user rate limit is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param jsonBody The Person to create, serialized as JSON.
+     * @return The created contact, including its new resourceName and etag.
+     */
+    public Contact createContact(String principalName, String accessToken, String jsonBody) {
+        return execute(
+                principalName,
+                "create",
+                resourceUri(properties.getBaseUrl(), "people", ":createContact").queryParam("personFields", PERSON_FIELDS),
+                HttpMethod.POST,
+                authorizedJson(accessToken, jsonBody),
+                ContactMapper::mapApiToContact
+        );
+    }
+
+    /**
+     * Updates the given fields of a contact.
+     *
+     * @param principalName The OAuth2 principal name, which the per-user rate limit is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param resourceName The resourceName of the contact to update.
+     * @param updatePersonFields Comma separated field mask of the fields being replaced.
+     * @param jsonBody The Person payload (including the etag it was read with), serialized as JSON.
+     * @return The updated contact with its new etag.
+     */
+    public Contact updateContact(String principalName, String accessToken, String resourceName,
+                                 String updatePersonFields, String jsonBody) {
+        return execute(
+                principalName,
+                "update",
+                resourceUri(properties.getBaseUrl(), resourceName, ":updateContact")
+                        .queryParam("updatePersonFields", updatePersonFields)
+                        .queryParam("personFields", PERSON_FIELDS),
+                HttpMethod.PATCH,
+                authorizedJson(accessToken, jsonBody),
+                ContactMapper::mapApiToContact
+        );
+    }
+
+    /**
+     * Updates the fields present in a Person payload built by {@link ContactPayloads}.
+     *
+     * @param principalName The OAuth2 principal name, which the per-user rate limit is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param resourceName The resourceName of the contact to update.
+     * @param person The Person payload, including the etag it was read with.
+     * @return The updated contact with its new etag.
+     */
+    public Contact updateContact(String principalName, String accessToken, String resourceName, Map<String, Object> person) {
+        return updateContact(principalName, accessToken, resourceName, ContactPayloads.updatePersonFields(person), toJson(person));
+    }
+
+    /**
+     * Deletes a contact. The response body is empty on success.
+     *
+     * @param principalName The OAuth2 principal name, which the per-user rate limit is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param resourceName The resourceName of the contact to delete.
+     */
+    public void deleteContact(String principalName, String accessToken, String resourceName) {
+        execute(
+                principalName,
+                "delete",
+                resourceUri(properties.getBaseUrl(), resourceName, ":deleteContact"),
+                HttpMethod.DELETE,
+                authorized(accessToken),
+                parser -> null
+        );
+    }
+
+    /**
+     * Creates up to {@value #MAX_BATCH_MUTATE_SIZE} contacts in one call.
+     *
+     * @param principalName The OAuth2 principal name, which the per-user rate limit is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param persons Person payloads built by {@link ContactPayloads#toPerson(Contact)}.
+     * @return The created people and the per-person errors.
+     */
+    public BatchResult batchCreateContacts(String principalName, String accessToken, List<Map<String, Object>> persons) {
+        return execute(
+                principalName,
+                "batchCreate",
+                resourceUri(properties.getBaseUrl(), "people", ":batchCreateContacts"),
+                HttpMethod.POST,
+                authorizedJson(accessToken, toJson(ContactPayloads.batchCreateRequest(persons, PERSON_FIELDS))),
+                ContactMapper::readBatchCreateResponse
+        );
+    }
+
+    /**
+     * Updates up to {@value #MAX_BATCH_MUTATE_SIZE} contacts in one call, all with the same field mask.
+     *
+     * @param principalName The OAuth2 principal name, which the per-user rate limit is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param personsByResourceName Person payloads (each including its etag) keyed by resourceName.
+     * @param updatePersonFields Comma separated field mask of the fields being replaced.
+     * @return The updated people with their new etags, and the per-person errors.
+     */
+    public BatchResult batchUpdateContacts(String principalName, String accessToken, Map<String, Map<String, Object>> personsByResourceName,
+                                           String updatePersonFields) {
+        return execute(
+                principalName,
+                "batchUpdate",
+                resourceUri(properties.getBaseUrl(), "people", ":batchUpdateContacts"),
+                HttpMethod.POST,
+                authorizedJson(accessToken, toJson(
+                        ContactPayloads.batchUpdateRequest(personsByResourceName, updatePersonFields, PERSON_FIELDS))),
+                ContactMapper::readBatchUpdateResponse
+        );
+    }
+
+    /**
+     * Deletes up to {@value #MAX_BATCH_DELETE_SIZE} contacts in one call. The call either deletes
+     * all of them or fails as a whole.
+     *
+     * @param principalName The OAuth2 principal name, which the per-user rate limit is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param resourceNames The resourceNames of the contacts to delete.
+     */
+    public void batchDeleteContacts(String principalName, String accessToken, List<String> resourceNames) {
+        execute(
+                principalName,
+                "batchDelete",
+                resourceUri(properties.getBaseUrl(), "people", ":batchDeleteContacts"),
+                HttpMethod.POST,
+                authorizedJson(accessToken, toJson(ContactPayloads.batchDeleteRequest(resourceNames))),
+                parser -> null
+        );
+    }
+
+    /**
+     * Sends the request and maps the response body with a streaming parser as it is read,
+     * instead of materializing it as a Map first. Concurrent identical GETs are coalesced into one call.
+     * Every call goes through the {@link PeopleApiGovernor}
+     * (limited per user by the principal name) and every attempt is observed as {@code people.api.requests}.
+     */
+    private <T> T execute(String principalName, String operation, URI url, HttpMethod method,
+                          HttpEntity<String> entity, JsonReader<T> reader) {
+        String authorization = entity.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        boolean idempotent = method == HttpMethod.GET || method == HttpMethod.DELETE;
+        Supplier<T> call = () -> governor.execute(operation, principalName, idempotent,
+                () -> metrics.observe(operation, recorder -> restTemplate.execute(url, method,
+                        restTemplate.httpEntityCallback(entity), response -> read(recorder, response, reader))));
+        if (method != HttpMethod.GET) {
+            return call.get();
+        }
+        // Identical reads for the same user (several tabs, the redirect after a write) share one upstream call
+        return inFlightReads.execute(new InFlightRead(authorization, url), call, () -> metrics.recordCoalesced(operation));
+    }
+
+    /**
+     * Single-flight key: the same URL read with the same credentials.
+     */
+    private record InFlightRead(String authorization, URI url) {
+    }
+
+    private <T> T execute(String principalName, String operation, UriComponentsBuilder url, HttpMethod method,
+                          HttpEntity<String> entity, JsonReader<T> reader) {
+        return execute(principalName, operation, url.build().encode().toUri(), method, entity, reader);
+    }
+
+    private <T> T read(PeopleApiMetrics.Call call, ClientHttpResponse response, JsonReader<T> reader) throws IOException {
+        call.status(response.getStatusCode());
+        CountingInputStream body = new CountingInputStream(response.getBody());
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return reader.read(parser);
+        } finally {
+            call.responseSize(body.count);
+        }
+    }
+
+    /**
+     * Builds baseUrl + resourceName + suffix. The resourceName keeps its '/' (e.g. people/c123).
+     */
+    static UriComponentsBuilder resourceUri(String baseUrl, String resourceName, String suffix) {
+        return UriComponentsBuilder.fromUriString(baseUrl).path(resourceName + suffix);
+    }
+
+    @FunctionalInterface
+    interface JsonReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    /**
+     * Builds the people/me/connections URI. Every listing requests a syncToken, and the tokens are
+     * expanded as URI variables so that '+' and '/' in them are strictly encoded.
+     */
+    static URI connectionsUri(String baseUrl, int pageSize, String pageToken, String syncToken) {
+        UriComponentsBuilder uri = UriComponentsBuilder.fromUriString(baseUrl + "people/me/connections")
+                .queryParam("personFields", LIST_PERSON_FIELDS)
+                .queryParam("pageSize", pageSize)
+                .queryParam("requestSyncToken", true);
+        Map<String, String> tokens = new HashMap<>();
+        if (pageToken != null) {
+            uri.queryParam("pageToken", "{pageToken}");
+            tokens.put("pageToken", pageToken);
+        }
+        if (syncToken != null) {
+            uri.queryParam("syncToken", "{syncToken}");
+            tokens.put("syncToken", syncToken);
+        }
+        return uri.encode().buildAndExpand(tokens).toUri();
+    }
+
+    /**
+     * Google signals an expired syncToken either with 410 Gone or with a 400 carrying EXPIRED_SYNC_TOKEN.
+     */
+    static boolean isExpiredSyncToken(HttpStatusCode status, String responseBody) {
+        return status.value() == HttpStatus.GONE.value()
+                || (responseBody != null && responseBody.contains("EXPIRED_SYNC_TOKEN"));
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static HttpEntity<String> authorized(String accessToken) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(accessToken);
+        return new HttpEntity<>(headers);
+    }
+
+    private static HttpEntity<String> authorizedJson(String accessToken, String jsonBody) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(accessToken);
+        headers.setContentType(MediaType.APPLICATION_JSON); // Important for JSON payloads
+        return new HttpEntity<>(jsonBody, headers);
+    }
+
+    /**
+     * Counts the (decompressed) bytes read from a response body.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.config.GovernorProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Shared gate in front of every People API call made through {@link PeopleApiClient}.
+ * <ul>
+ *   <li>Token-bucket limiters, one per user and one for the whole application. Both the global
+ *   and the user's rate are halved on every 429 and recover gradually on success.</li>
+ *   <li>Retries with exponential backoff and full jitter, never shorter than a Retry-After sent
+ *   by Google. 429s are retried for any call; 5xx and I/O errors only for idempotent ones.</li>
+ *   <li>A circuit breaker that opens after repeated upstream failures and then fails fast with
+ *   {@link PeopleApiUnavailableException}, which {@link ContactService} answers from its cache.</li>
+ * </ul>
+ * Events are counted in {@code people.api.governor} (tags {@code operation}, {@code event}, {@code reason}).
+ */
+@Component
+public class PeopleApiGovernor {
+
+    public static final String EVENTS = "people.api.governor";
+
+    private final GovernorProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final TokenBucket globalBucket;
+    private final Map<String, TokenBucket> userBuckets;
+    private final CircuitBreaker breaker;
+
+    public PeopleApiGovernor(GovernorProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.globalBucket = new TokenBucket(properties.getGlobalRequestsPerMinute(), properties.getGlobalBurst(), System.nanoTime());
+        this.breaker = new CircuitBreaker(properties.getFailureThreshold(), properties.getOpenDuration().toNanos());
+        // Access-ordered so that the eldest entry is always the least recently used user
+        this.userBuckets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                return size() > properties.getMaxUsers();
+            }
+        };
+
+        Gauge.builder("people.api.governor.rate", globalBucket, TokenBucket::requestsPerMinute)
+                .description("Current global People API request rate limit")
+                .baseUnit("requests/min")
+                .register(meterRegistry);
+        Gauge.builder("people.api.governor.circuit", breaker, b -> b.state().ordinal())
+                .description("People API circuit breaker state (0 closed, 1 open, 2 half-open)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs an upstream call under the limiters, retry policy and circuit breaker. Every call that
+     * got past the breaker reports back to it, including when it ends in an unexpected exception or
+     * is interrupted between attempts, so a half-open breaker never waits on a trial that is gone.
+     *
+     * @param operation The People API operation, used to tag events.
+     * @param principalName Identifies the user for the per-user limiter (the OAuth2 principal name); may be null.
+     * @param idempotent Whether 5xx and I/O errors may be retried.
+     * @param call The call; signals failures with RestClientResponseException or ResourceAccessException.
+     * @return Whatever the call returns.
+     * @throws PeopleApiUnavailableException If the breaker is open or a limiter can't be acquired in time.
+     */
+    public <T> T execute(String operation, String principalName, boolean idempotent, Supplier<T> call) {
+        if (!breaker.tryAcquire(System.nanoTime())) {
+            count(operation, "rejected", "circuit_open");
+            throw new PeopleApiUnavailableException("People API is unavailable (circuit open); try again shortly");
+        }
+        boolean settled = false;
+        try {
+            for (int attempt = 0; ; attempt++) {
+                TokenBucket userBucket = userBucket(principalName);
+                acquire(operation, userBucket);
+
+                long delay;
+                try {
+                    T result = call.get();
+                    settled = true;
+                    breaker.onSuccess();
+                    globalBucket.recover(System.nanoTime());
+                    if (userBucket != null) {
+                        userBucket.recover(System.nanoTime());
+                    }
+                    return result;
+                } catch (RestClientResponseException e) {
+                    boolean overQuota = e.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+                    if (!overQuota && !e.getStatusCode().is5xxServerError()) {
+                        // Any other error status means Google is up and answering
+                        settled = true;
+                        breaker.onSuccess();
+                        throw e;
+                    }
+                    if (overQuota) {
+                        globalBucket.throttle(System.nanoTime());
+                        if (userBucket != null) {
+                            userBucket.throttle(System.nanoTime());
+                        }
+                    }
+                    delay = attempt < properties.getMaxRetries() && (overQuota || idempotent)
+                            ? backoff(attempt, retryAfter(e.getResponseHeaders()))
+                            : -1;
+                    if (delay < 0) {
+                        settled = true;
+                        breaker.onFailure(System.nanoTime());
+                        throw e;
+                    }
+                    count(operation, "retry", overQuota ? "429" : "5xx");
+                } catch (ResourceAccessException e) {
+                    delay = attempt < properties.getMaxRetries() && idempotent ? backoff(attempt, -1) : -1;
+                    if (delay < 0) {
+                        settled = true;
+                        breaker.onFailure(System.nanoTime());
+                        throw e;
+                    }
+                    count(operation, "retry", "io_error");
+                }
+                sleep(delay);
+            }
+        } finally {
+            if (!settled) {
+                // Rejected by a limiter, interrupted, or failed in a way that says nothing about Google
+                breaker.release();
+            }
+        }
+    }
+
+    /**
+     * @return False while the circuit breaker is turning calls away, so optional background work can hold off.
+     */
+    public boolean isAvailable() {
+        return !breaker.isRejecting(System.nanoTime());
+    }
+
+    /**
+     * @return The user's current request rate limit, in requests per minute.
+     */
+    double userRequestsPerMinute(String principalName) {
+        return userBucket(principalName).requestsPerMinute();
+    }
+
+    private TokenBucket userBucket(String principalName) {
+        if (principalName == null) {
+            return null;
+        }
+        synchronized (userBuckets) {
+            return userBuckets.computeIfAbsent(principalName, key ->
+                    new TokenBucket(properties.getUserRequestsPerMinute(), properties.getUserBurst(), System.nanoTime()));
+        }
+    }
+
+    /**
+     * Takes a token from the user's and the global bucket, waiting for them if needed.
+     */
+    private void acquire(String operation, TokenBucket userBucket) {
+        long maxWait = properties.getMaxWait().toNanos();
+        long userWait = 0;
+        if (userBucket != null) {
+            userWait = userBucket.reserve(System.nanoTime(), maxWait);
+            if (userWait < 0) {
+                count(operation, "rejected", "user_rate");
+                throw new PeopleApiUnavailableException("Too many People API requests for this user; try again shortly");
+            }
+        }
+        long globalWait = globalBucket.reserve(System.nanoTime(), maxWait);
+        if (globalWait < 0) {
+            if (userBucket != null) {
+                userBucket.cancel();
+            }
+            count(operation, "rejected", "global_rate");
+            throw new PeopleApiUnavailableException("People API quota is exhausted; try again shortly");
+        }
+        long wait = Math.max(userWait, globalWait);
+        if (wait > 0) {
+            count(operation, "throttled", userWait >= globalWait ? "user_rate" : "global_rate");
+            sleep(wait);
+        }
+    }
+
+    /**
+     * Exponential backoff with full jitter, but never shorter than the server's Retry-After.
+     *
+     * @return The delay in nanoseconds, or -1 if Retry-After asks for more than max-backoff.
+     */
+    long backoff(int attempt, long retryAfterNanos) {
+        long cap = properties.getMaxBackoff().toNanos();
+        if (retryAfterNanos > cap) {
+            return -1;
+        }
+        long exponential = Math.min(cap, properties.getInitialBackoff().toNanos() << Math.min(attempt, 20));
+        long jittered = ThreadLocalRandom.current().nextLong(exponential + 1);
+        return Math.max(jittered, retryAfterNanos);
+    }
+
+    /**
+     * Parses Retry-After, which is either a number of seconds or an HTTP date.
+     *
+     * @return The delay it asks for in nanoseconds, or -1 if absent or unparseable.
+     */
+    static long retryAfter(HttpHeaders headers) {
+        String value = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        value = value.trim();
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value))).toNanos();
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toNanos());
+            } catch (DateTimeParseException ignored) {
+                return -1;
+            }
+        }
+    }
+
+    private void sleep(long nanos) {
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PeopleApiUnavailableException("Interrupted while waiting to call the People API", e);
+        }
+    }
+
+    private void count(String operation, String event, String reason) {
+        Counter.builder(EVENTS)
+                .description("People API governor retries, throttling waits and rejections")
+                .tag("operation", operation)
+                .tag("event", event)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,152 @@
+package com.najarro.oauth2contacts.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.util.function.Function;
+
+/**
+ * Metrics and tracing for calls to the Google People API.
+ * <ul>
+ *   <li>{@code people.api.requests}: one observation per upstream call, i.e. a timer (plus span) tagged
+ *   with {@code operation} (list, get, getMetadata, create, update, delete, batchCreate, batchUpdate,
+ *   batchDelete), {@code status} and {@code outcome}</li>
+ *   <li>{@code people.api.response.size}: bytes read from each response body, per operation</li>
+ *   <li>{@code people.api.pages}: number of pages fetched by a full listing or an incremental sync</li>
+ *   <li>{@code people.api.coalesced}: reads that joined an identical call already in flight instead of
+ *   making their own, per operation</li>
+ * </ul>
+ */
+@Component
+public class PeopleApiMetrics {
+
+    public static final String REQUESTS = "people.api.requests";
+    public static final String RESPONSE_SIZE = "people.api.response.size";
+    public static final String PAGES = "people.api.pages";
+    public static final String COALESCED = "people.api.coalesced";
+
+    private final ObservationRegistry observationRegistry;
+    private final MeterRegistry meterRegistry;
+
+    public PeopleApiMetrics(ObservationRegistry observationRegistry, MeterRegistry meterRegistry) {
+        this.observationRegistry = observationRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs a single upstream call inside a {@code people.api.requests} observation.
+     * The RestTemplate's own client observation becomes a child of it, so trace headers
+     * are propagated to Google with the operation's span as parent.
+     *
+     * @param operation The People API operation, e.g. "list".
+     * @param call The call; reports the response status and body size through the given {@link Call}.
+     * @return Whatever the call returns.
+     */
+    public <T> T observe(String operation, Function<Call, T> call) {
+        Observation observation = Observation.createNotStarted(REQUESTS, observationRegistry)
+                .contextualName("people-api " + operation)
+                .lowCardinalityKeyValue("operation", operation);
+        Call recorder = new Call(operation);
+        observation.start();
+        try (Observation.Scope scope = observation.openScope()) {
+            T result = call.apply(recorder);
+            tagStatus(observation, recorder.status);
+            return result;
+        } catch (RestClientResponseException e) {
+            tagStatus(observation, e.getStatusCode());
+            observation.error(e);
+            throw e;
+        } catch (RuntimeException e) {
+            observation.lowCardinalityKeyValue("status", "IO_ERROR");
+            observation.lowCardinalityKeyValue("outcome", "UNKNOWN");
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+
+    /**
+     * Records how many pages a full listing or incremental sync needed.
+     *
+     * @param operation Either "list" or "sync".
+     */
+    public void recordPages(String operation, int pages) {
+        DistributionSummary.builder(PAGES)
+                .description("Pages fetched per connections listing")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .record(pages);
+    }
+
+    /**
+     * Counts a read that shared an identical in-flight call.
+     *
+     * @param operation The read operation, e.g. "list" or "get".
+     */
+    public void recordCoalesced(String operation) {
+        Counter.builder(COALESCED)
+                .description("People API reads served by joining an identical in-flight call")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void tagStatus(Observation observation, HttpStatusCode status) {
+        if (status == null) {
+            observation.lowCardinalityKeyValue("status", "UNKNOWN");
+            observation.lowCardinalityKeyValue("outcome", "UNKNOWN");
+            return;
+        }
+        observation.lowCardinalityKeyValue("status", String.valueOf(status.value()));
+        observation.lowCardinalityKeyValue("outcome", outcome(status));
+    }
+
+    private static String outcome(HttpStatusCode status) {
+        if (status.is2xxSuccessful()) {
+            return "SUCCESS";
+        }
+        if (status.is3xxRedirection()) {
+            return "REDIRECTION";
+        }
+        if (status.is4xxClientError()) {
+            return "CLIENT_ERROR";
+        }
+        if (status.is5xxServerError()) {
+            return "SERVER_ERROR";
+        }
+        return "UNKNOWN";
+    }
+
+    /**
+     * Collects what is only known once the response arrives.
+     */
+    public final class Call {
+
+        private final String operation;
+        private HttpStatusCode status;
+
+        private Call(String operation) {
+            this.operation = operation;
+        }
+
+        public void status(HttpStatusCode status) {
+            this.status = status;
+        }
+
+        public void responseSize(long bytes) {
+            DistributionSummary.builder(RESPONSE_SIZE)
+                    .description("Bytes read from People API response bodies")
+                    .baseUnit("bytes")
+                    .tag("operation", operation)
+                    .register(meterRegistry)
+                    .record(bytes);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.najarro.oauth2contacts.service;
+
+/**
+ * Thrown without calling Google when the People API circuit breaker is open, or when a call
+ * would have to wait longer than allowed for a rate limiter. Callers fall back to cached
+ * contacts where they have them.
+ */
+public class PeopleApiUnavailableException extends RuntimeException {
+
+    public PeopleApiUnavailableException(String message) {
+        super(message);
+    }
+
+    public PeopleApiUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,117 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.config.ContactCacheProperties;
+import com.najarro.oauth2contacts.model.Contact;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resource-level cache of the people opened in the edit form, keyed by principal name and
+ * resourceName, for users whose full contact list is not cached in {@link ContactCache}.
+ * An entry is served as is for {@code contacts.cache.sync-interval} after it was read or
+ * revalidated; after that it is revalidated against its {@link PersonVersion#version()} with a
+ * metadata-only read. Bounded to {@code contacts.cache.max-persons} entries, least recently used first out.
+ */
+@Component
+public class PersonCache {
+
+    private final ContactCacheProperties properties;
+    private final Clock clock;
+    private final LinkedHashMap<Key, Entry> entries;
+
+    @Autowired
+    public PersonCache(ContactCacheProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    PersonCache(ContactCacheProperties properties, Clock clock) {
+        this.properties = properties;
+        this.clock = clock;
+        // Access-ordered so that the eldest entry is always the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > properties.getMaxPersons();
+            }
+        };
+    }
+
+    /**
+     * @return The cached entry, or null if there is none or it was last validated longer than the ttl ago.
+     */
+    public synchronized Entry get(String principalName, String resourceName) {
+        Key key = new Key(principalName, resourceName);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.validatedAt.plus(properties.getTtl()).isBefore(clock.instant())) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Caches a person read with {@link PeopleApiClient#getPersonVersion}. People without a version
+     * can't be revalidated and are not cached.
+     */
+    public synchronized void put(String principalName, PersonVersion person) {
+        if (person.contact() == null || person.version() == null) {
+            return;
+        }
+        entries.put(new Key(principalName, person.contact().getResourceName()),
+                new Entry(person.contact(), person.version(), clock.instant()));
+    }
+
+    /**
+     * Marks an entry as current again after its version was confirmed upstream.
+     */
+    public synchronized void revalidated(String principalName, Entry entry) {
+        entries.put(new Key(principalName, entry.contact.getResourceName()),
+                new Entry(entry.contact, entry.version, clock.instant()));
+    }
+
+    /**
+     * Drops a person that was changed or deleted through this application.
+     */
+    public synchronized void evict(String principalName, String resourceName) {
+        entries.remove(new Key(principalName, resourceName));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return True while the entry may be served without revalidation.
+     */
+    public boolean isFresh(Entry entry) {
+        return !entry.validatedAt.plus(properties.getSyncInterval()).isBefore(clock.instant());
+    }
+
+    private record Key(String principalName, String resourceName) {
+    }
+
+    public static final class Entry {
+        private final Contact contact;
+        private final String version;
+        private final Instant validatedAt;
+
+        private Entry(Contact contact, String version, Instant validatedAt) {
+            this.contact = contact;
+            this.version = version;
+            this.validatedAt = validatedAt;
+        }
+
+        public Contact getContact() {
+            return contact;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+/**
+ * A person as read for editing, with the etag of its CONTACT source as its version.
+ * Unlike the Person's own etag, the source etag doesn't depend on the personFields requested, so
+ * a metadata-only read is enough to tell whether a cached copy is still current.
+ *
+ * @param contact The contact, or null if the response had no body.
+ * @param version The CONTACT source etag, or null if the response had none.
+ */
+public record PersonVersion(Contact contact, String version) {
+}
@@ -0,0 +1,199 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reactive counterpart of {@link ContactService}: the same per-user {@link ContactCache} and
+ * write-through rules, on top of {@link ReactivePeopleApiClient}.
+ */
+@Service
+@ConditionalOnProperty(prefix = "contacts.people-api", name = "client", havingValue = "reactive")
+public class ReactiveContactService {
+
+    private final ReactivePeopleApiClient peopleApiClient;
+    private final ContactCache contactCache;
+
+    public ReactiveContactService(ReactivePeopleApiClient peopleApiClient, ContactCache contactCache) {
+        this.peopleApiClient = peopleApiClient;
+        this.contactCache = contactCache;
+    }
+
+    /**
+     * Returns the user's contacts, from the cache when possible (after an incremental sync if the
+     * sync interval has passed), otherwise from a full listing that is cached once complete.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @return The contacts.
+     */
+    public Mono<List<Contact>> listContacts(String principalName, String accessToken) {
+        ContactSnapshot snapshot = contactCache.get(principalName);
+        if (snapshot == null || snapshot.getSyncToken() == null) {
+            return loadAll(principalName, accessToken);
+        }
+        if (!contactCache.isDueForSync(snapshot)) {
+            return Mono.just(snapshot.getContacts());
+        }
+        return sync(snapshot, accessToken)
+                .then(Mono.fromSupplier(snapshot::getContacts))
+                .onErrorResume(SyncTokenExpiredException.class, e -> {
+                    contactCache.invalidate(principalName);
+                    return loadAll(principalName, accessToken);
+                });
+    }
+
+    /**
+     * Returns one page of the user's contacts, sorted over the whole set (see
+     * {@link ContactService#listContacts(String, String, ContactSort, boolean, int, int)}).
+     */
+    public Mono<ContactPage> listContacts(String principalName, String accessToken, ContactSort sort, boolean descending,
+                                          int page, int size) {
+        return listContacts(principalName, accessToken).map(contacts -> {
+            ContactSnapshot snapshot = contactCache.get(principalName);
+            List<Contact> sorted = snapshot != null ? snapshot.getContacts(sort) : sort.sort(contacts);
+            return ContactPage.of(sorted, sort, descending, page, size);
+        });
+    }
+
+    /**
+     * Returns a single contact for editing, skipping the GET while the cached copy is current.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param resourceName The resourceName of the contact.
+     * @return The contact; empty if the API returned no body.
+     */
+    public Mono<Contact> getContact(String principalName, String accessToken, String resourceName) {
+        ContactSnapshot snapshot = contactCache.get(principalName);
+        if (snapshot != null && !contactCache.isDueForSync(snapshot)) {
+            Contact cached = snapshot.get(resourceName);
+            if (cached != null && cached.getEtag() != null) {
+                return Mono.just(cached);
+            }
+        }
+        return peopleApiClient.getPerson(accessToken, resourceName)
+                .doOnNext(contact -> {
+                    if (snapshot != null) {
+                        snapshot.put(contact);
+                    }
+                });
+    }
+
+    /**
+     * Creates a contact and adds the returned Person to the user's cached contacts.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param jsonBody The Person to create, serialized as JSON.
+     * @return The created contact as returned by the API.
+     */
+    public Mono<Contact> createContact(String principalName, String accessToken, String jsonBody) {
+        return writeThrough(principalName, peopleApiClient.createContact(accessToken, jsonBody));
+    }
+
+    /**
+     * Builds the Person payload for saving an edited contact with only the fields that changed,
+     * diffed against the cached copy if it still has the etag the edit form was loaded with.
+     * Without one every field is sent, as the etag check upstream then decides.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param contact The submitted contact, with its resourceName and etag.
+     * @return The payload for {@link ContactPayloads#updatePersonFields(Map)}; it has no fields to
+     *         update if nothing changed.
+     */
+    public Map<String, Object> toUpdatePerson(String principalName, Contact contact) {
+        ContactSnapshot snapshot = contactCache.get(principalName);
+        Contact original = snapshot != null ? snapshot.get(contact.getResourceName()) : null;
+        if (original != null && (contact.getEtag() == null || !contact.getEtag().equals(original.getEtag()))) {
+            original = null;
+        }
+        return ContactPayloads.toUpdatePerson(original, contact);
+    }
+
+    /**
+     * Updates a contact and replaces the cached copy with the returned Person, including its new etag.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param resourceName The resourceName of the contact to update.
+     * @param updatePersonFields Comma separated field mask of the fields being replaced.
+     * @param jsonBody The Person payload, serialized as JSON.
+     * @return The updated contact as returned by the API.
+     */
+    public Mono<Contact> updateContact(String principalName, String accessToken, String resourceName,
+                                       String updatePersonFields, String jsonBody) {
+        return writeThrough(principalName,
+                peopleApiClient.updateContact(accessToken, resourceName, updatePersonFields, jsonBody));
+    }
+
+    /**
+     * Deletes a contact and drops it from the user's cached contacts; a 404 also drops it.
+     *
+     * @param principalName The OAuth2 principal name the cache is keyed by.
+     * @param accessToken The Google OAuth2 access token.
+     * @param resourceName The resourceName of the contact to delete.
+     * @return Completes empty once the contact is deleted.
+     */
+    public Mono<Void> deleteContact(String principalName, String accessToken, String resourceName) {
+        return peopleApiClient.deleteContact(accessToken, resourceName)
+                .doOnError(WebClientResponseException.NotFound.class, e -> evict(principalName, resourceName))
+                .doOnSuccess(ignored -> evict(principalName, resourceName));
+    }
+
+    private Mono<Contact> writeThrough(String principalName, Mono<Contact> call) {
+        return call
+                .doOnNext(contact -> contactCache.writeThrough(principalName, List.of(contact), List.of()))
+                // Without the returned Person the cached copy can't be patched, so force a reload
+                .switchIfEmpty(Mono.fromRunnable(() -> contactCache.invalidate(principalName)));
+    }
+
+    private void evict(String principalName, String resourceName) {
+        contactCache.writeThrough(principalName, List.of(), List.of(resourceName));
+    }
+
+    /**
+     * Applies everything that changed upstream since the snapshot's syncToken.
+     */
+    private Mono<Void> sync(ContactSnapshot snapshot, String accessToken) {
+        AtomicReference<String> nextSyncToken = new AtomicReference<>();
+        return peopleApiClient.pages(accessToken, snapshot.getSyncToken())
+                .doOnNext(page -> {
+                    for (Contact contact : page.getContacts()) {
+                        snapshot.put(contact);
+                    }
+                    for (String resourceName : page.getDeletedResourceNames()) {
+                        snapshot.remove(resourceName);
+                    }
+                    nextSyncToken.set(page.getNextSyncToken());
+                })
+                .then(Mono.fromRunnable(() -> snapshot.markSynced(nextSyncToken.get(), contactCache.now())));
+    }
+
+    /**
+     * Loads a full listing into a fresh snapshot, published to the cache once the last page is in.
+     */
+    private Mono<List<Contact>> loadAll(String principalName, String accessToken) {
+        ContactSnapshot snapshot = new ContactSnapshot();
+        AtomicReference<String> nextSyncToken = new AtomicReference<>();
+        return peopleApiClient.pages(accessToken, null)
+                .doOnNext(page -> {
+                    for (Contact contact : page.getContacts()) {
+                        snapshot.put(contact);
+                    }
+                    nextSyncToken.set(page.getNextSyncToken());
+                })
+                .then(Mono.fromSupplier(() -> {
+                    snapshot.markSynced(nextSyncToken.get(), contactCache.now());
+                    contactCache.put(principalName, snapshot);
+                    return snapshot.getContacts();
+                }));
+    }
+}
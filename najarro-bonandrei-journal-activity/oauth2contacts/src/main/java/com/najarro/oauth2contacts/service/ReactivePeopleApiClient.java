@@ -0,0 +1,206 @@
+package com.najarro.oauth2contacts.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.najarro.oauth2contacts.config.HttpClientProperties;
+import com.najarro.oauth2contacts.config.PeopleApiProperties;
+import com.najarro.oauth2contacts.model.Contact;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking counterpart of {@link PeopleApiClient}, backed by a reactor-netty WebClient.
+ * Only created when {@code contacts.people-api.client=reactive}.
+ * Bodies are mapped with the same streaming {@link ContactMapper} once they have been received.
+ */
+@Component
+@ConditionalOnProperty(prefix = "contacts.people-api", name = "client", havingValue = "reactive")
+public class ReactivePeopleApiClient {
+
+    private final WebClient webClient;
+    private final JsonFactory jsonFactory;
+    private final PeopleApiProperties properties;
+    private final Duration timeout;
+    private final PeopleApiMetrics metrics;
+
+    public ReactivePeopleApiClient(@Qualifier("peopleApiWebClient") WebClient webClient,
+                                   ObjectMapper objectMapper,
+                                   PeopleApiProperties properties,
+                                   HttpClientProperties httpProperties,
+                                   PeopleApiMetrics metrics) {
+        this.webClient = webClient;
+        this.jsonFactory = objectMapper.getFactory();
+        this.properties = properties;
+        this.metrics = metrics;
+        // Bounds the whole exchange (connection acquisition, headers and body), not just the first byte
+        this.timeout = httpProperties.getConnectionRequestTimeout().plus(httpProperties.getResponseTimeout());
+    }
+
+    /**
+     * Fetches a single page of people/me/connections, retrying transient failures.
+     *
+     * @param accessToken The Google OAuth2 access token.
+     * @param pageToken The nextPageToken of the previous page, or null for the first page.
+     * @param syncToken A syncToken from an earlier listing to only fetch changes since then, or null for a full listing.
+     * @return The page of mapped contacts; errors with {@link SyncTokenExpiredException} if the syncToken is rejected.
+     */
+    public Mono<ConnectionsPage> listConnections(String accessToken, String pageToken, String syncToken) {
+        URI url = PeopleApiClient.connectionsUri(properties.getBaseUrl(), properties.getPageSize(), pageToken, syncToken);
+        return retrying(get(accessToken, url, ContactMapper::readConnectionsPage))
+                .onErrorMap(e -> syncToken != null && e instanceof WebClientResponseException response
+                                && PeopleApiClient.isExpiredSyncToken(response.getStatusCode(), response.getResponseBodyAsString()),
+                        e -> new SyncTokenExpiredException("People API rejected the syncToken", e));
+    }
+
+    /**
+     * Returns every page of a listing in order. The next page is only requested once the
+     * previous one has been received, since its pageToken is needed for the request.
+     *
+     * @param accessToken The Google OAuth2 access token.
+     * @param syncToken The syncToken to list changes since, or null for a full listing.
+     * @return The pages; the last one carries the nextSyncToken.
+     */
+    public Flux<ConnectionsPage> pages(String accessToken, String syncToken) {
+        return Flux.defer(() -> {
+            AtomicInteger pages = new AtomicInteger();
+            return listConnections(accessToken, null, syncToken)
+                    .expand(page -> page.hasNextPage()
+                            ? listConnections(accessToken, page.getNextPageToken(), syncToken)
+                            : Mono.empty())
+                    .doOnNext(page -> pages.incrementAndGet())
+                    .doOnComplete(() -> metrics.recordPages(syncToken == null ? "list" : "sync", pages.get()));
+        });
+    }
+
+    /**
+     * Fetches a single person.
+     *
+     * @param accessToken The Google OAuth2 access token.
+     * @param resourceName The resourceName of the person, e.g. people/c123.
+     * @return The mapped contact.
+     */
+    public Mono<Contact> getPerson(String accessToken, String resourceName) {
+        URI url = PeopleApiClient.resourceUri(properties.getBaseUrl(), resourceName, "")
+                .queryParam("personFields", PeopleApiClient.PERSON_FIELDS)
+                .build().encode().toUri();
+        return retrying(get(accessToken, url, ContactMapper::mapApiToContact));
+    }
+
+    /**
+     * Creates a contact. Not retried, since a lost response would otherwise create a duplicate.
+     *
+     * @param accessToken The Google OAuth2 access token.
+     * @param jsonBody The Person to create, serialized as JSON.
+     * @return The created contact, including its new resourceName and etag.
+     */
+    public Mono<Contact> createContact(String accessToken, String jsonBody) {
+        URI url = PeopleApiClient.resourceUri(properties.getBaseUrl(), "people", ":createContact")
+                .queryParam("personFields", PeopleApiClient.PERSON_FIELDS)
+                .build().encode().toUri();
+        return webClient.post()
+                .uri(url)
+                .headers(headers -> headers.setBearerAuth(accessToken))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(jsonBody)
+                .retrieve()
+                .bodyToMono(byte[].class)
+                .map(body -> read(body, ContactMapper::mapApiToContact))
+                .timeout(timeout);
+    }
+
+    /**
+     * Updates the given fields of a contact. The etag in the payload makes a repeated PATCH
+     * fail with a conflict instead of applying twice, but it is still not retried blindly.
+     *
+     * @param accessToken The Google OAuth2 access token.
+     * @param resourceName The resourceName of the contact to update.
+     * @param updatePersonFields Comma separated field mask of the fields being replaced.
+     * @param jsonBody The Person payload (including the etag it was read with), serialized as JSON.
+     * @return The updated contact with its new etag.
+     */
+    public Mono<Contact> updateContact(String accessToken, String resourceName,
+                                       String updatePersonFields, String jsonBody) {
+        URI url = PeopleApiClient.resourceUri(properties.getBaseUrl(), resourceName, ":updateContact")
+                .queryParam("updatePersonFields", updatePersonFields)
+                .queryParam("personFields", PeopleApiClient.PERSON_FIELDS)
+                .build().encode().toUri();
+        return webClient.patch()
+                .uri(url)
+                .headers(headers -> headers.setBearerAuth(accessToken))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(jsonBody)
+                .retrieve()
+                .bodyToMono(byte[].class)
+                .map(body -> read(body, ContactMapper::mapApiToContact))
+                .timeout(timeout);
+    }
+
+    /**
+     * Deletes a contact. DELETE is idempotent, so transient failures are retried.
+     *
+     * @param accessToken The Google OAuth2 access token.
+     * @param resourceName The resourceName of the contact to delete.
+     * @return Completes empty once the contact is deleted.
+     */
+    public Mono<Void> deleteContact(String accessToken, String resourceName) {
+        URI url = PeopleApiClient.resourceUri(properties.getBaseUrl(), resourceName, ":deleteContact").build().encode().toUri();
+        return retrying(webClient.delete()
+                .uri(url)
+                .headers(headers -> headers.setBearerAuth(accessToken))
+                .retrieve()
+                .toBodilessEntity()
+                .then()
+                .timeout(timeout));
+    }
+
+    private <T> Mono<T> get(String accessToken, URI url, PeopleApiClient.JsonReader<T> reader) {
+        return webClient.get()
+                .uri(url)
+                .headers(headers -> headers.setBearerAuth(accessToken))
+                .retrieve()
+                .bodyToMono(byte[].class)
+                .map(body -> read(body, reader))
+                .timeout(timeout);
+    }
+
+    private <T> Mono<T> retrying(Mono<T> call) {
+        return call.retryWhen(Retry.backoff(properties.getRetryAttempts(), properties.getRetryBackoff())
+                .filter(ReactivePeopleApiClient::isRetryable)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    private <T> T read(byte[] body, PeopleApiClient.JsonReader<T> reader) {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return reader.read(parser);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Rate limiting, server errors, I/O failures and timeouts are worth another attempt; other 4xx are not.
+     */
+    static boolean isRetryable(Throwable error) {
+        if (error instanceof WebClientResponseException e) {
+            return e.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value() || e.getStatusCode().is5xxServerError();
+        }
+        return error instanceof WebClientRequestException || error instanceof TimeoutException;
+    }
+}
@@ -0,0 +1,57 @@
+package com.najarro.oauth2contacts.service;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * {@link SharedStore} on Redis: values are plain binary keys with an expiry, messages go through
+ * Redis pub/sub. The connection comes from the {@code spring.data.redis.*} settings.
+ */
+public class RedisSharedStore implements SharedStore {
+
+    private final RedisTemplate<String, byte[]> redis;
+    private final RedisMessageListenerContainer listeners;
+
+    public RedisSharedStore(RedisConnectionFactory connectionFactory, RedisMessageListenerContainer listeners) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        this.redis = template;
+        this.listeners = listeners;
+    }
+
+    @Override
+    public byte[] get(String key) {
+        return redis.opsForValue().get(key);
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        redis.opsForValue().set(key, value, ttl);
+    }
+
+    @Override
+    public void delete(String key) {
+        redis.delete(key);
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        redis.convertAndSend(channel, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        listeners.addMessageListener((message, pattern) -> listener.accept(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(channel));
+    }
+}
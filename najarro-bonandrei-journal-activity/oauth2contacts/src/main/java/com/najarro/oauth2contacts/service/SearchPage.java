@@ -0,0 +1,68 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.util.List;
+
+/**
+ * One page of contact search results.
+ */
+public class SearchPage {
+
+    private final String query;
+    private final List<Contact> contacts;
+    private final int page;
+    private final int size;
+    private final int total;
+
+    public SearchPage(String query, List<Contact> contacts, int page, int size, int total) {
+        this.query = query;
+        this.contacts = contacts;
+        this.page = page;
+        this.size = size;
+        this.total = total;
+    }
+
+    /**
+     * Cuts one page out of the full, ranked list of matches.
+     *
+     * @param page Zero-based page number; pages past the end are empty.
+     */
+    public static SearchPage of(String query, List<Contact> matches, int page, int size) {
+        int from = (int) Math.min((long) page * size, matches.size());
+        int to = Math.min(from + size, matches.size());
+        return new SearchPage(query, List.copyOf(matches.subList(from, to)), page, size, matches.size());
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public List<Contact> getContacts() {
+        return contacts;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getTotalPages() {
+        return (total + size - 1) / size;
+    }
+
+    public boolean hasPrevious() {
+        return page > 0;
+    }
+
+    public boolean hasNext() {
+        return (long) (page + 1) * size < total;
+    }
+}
@@ -0,0 +1,115 @@
+package com.najarro.oauth2contacts.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * OAuth2 authorized clients (the users' Google and GitHub tokens) in the {@link SharedStore}, so
+ * that every node can call the People API for any user, and the background sync can run on any
+ * node. Stored under {@code <prefix>client:<registration id>:<principal name>} as the access
+ * token (type, value, issued and expiry time, scopes) and the refresh token if there is one,
+ * encrypted with {@link AesGcm} bound to the registration id and principal name; the client
+ * registration itself comes from the local {@link ClientRegistrationRepository}. A value that
+ * doesn't decrypt is treated as absent, which sends the user through the login again.
+ */
+public class SharedAuthorizedClientService implements OAuth2AuthorizedClientService {
+
+    private static final Logger log = LoggerFactory.getLogger(SharedAuthorizedClientService.class);
+
+    private final SharedStore store;
+    private final String keyPrefix;
+    private final Duration ttl;
+    private final ClientRegistrationRepository clientRegistrations;
+    private final AesGcm aead;
+
+    public SharedAuthorizedClientService(SharedStore store, String keyPrefix, Duration ttl,
+                                         ClientRegistrationRepository clientRegistrations, AesGcm aead) {
+        this.store = store;
+        this.keyPrefix = keyPrefix + "client:";
+        this.ttl = ttl;
+        this.clientRegistrations = clientRegistrations;
+        this.aead = aead;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends OAuth2AuthorizedClient> T loadAuthorizedClient(String clientRegistrationId, String principalName) {
+        ClientRegistration registration = clientRegistrations.findByRegistrationId(clientRegistrationId);
+        byte[] sealed = store.get(key(clientRegistrationId, principalName));
+        if (registration == null || sealed == null) {
+            return null;
+        }
+        BinaryReader in;
+        try {
+            in = new BinaryReader(aead.open(sealed, associatedData(clientRegistrationId, principalName)));
+        } catch (GeneralSecurityException e) {
+            log.warn("Ignoring unreadable authorized client of {}", principalName, e);
+            return null;
+        }
+        OAuth2AccessToken.TokenType tokenType = OAuth2AccessToken.TokenType.BEARER.getValue().equalsIgnoreCase(in.string())
+                ? OAuth2AccessToken.TokenType.BEARER : null;
+        String tokenValue = in.string();
+        Instant issuedAt = in.instant();
+        Instant expiresAt = in.instant();
+        int scopeCount = in.varint();
+        Set<String> scopes = new LinkedHashSet<>();
+        for (int i = 0; i < scopeCount; i++) {
+            scopes.add(in.string());
+        }
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(tokenType, tokenValue, issuedAt, expiresAt, scopes);
+        String refreshValue = in.string();
+        OAuth2RefreshToken refreshToken = refreshValue != null
+                ? new OAuth2RefreshToken(refreshValue, in.instant(), in.instant())
+                : null;
+        return (T) new OAuth2AuthorizedClient(registration, principalName, accessToken, refreshToken);
+    }
+
+    @Override
+    public void saveAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
+        OAuth2AccessToken accessToken = authorizedClient.getAccessToken();
+        BinaryWriter out = new BinaryWriter(512);
+        out.string(accessToken.getTokenType().getValue());
+        out.string(accessToken.getTokenValue());
+        out.instant(accessToken.getIssuedAt());
+        out.instant(accessToken.getExpiresAt());
+        out.varint(accessToken.getScopes().size());
+        for (String scope : accessToken.getScopes()) {
+            out.string(scope);
+        }
+        OAuth2RefreshToken refreshToken = authorizedClient.getRefreshToken();
+        out.string(refreshToken != null ? refreshToken.getTokenValue() : null);
+        if (refreshToken != null) {
+            out.instant(refreshToken.getIssuedAt());
+            out.instant(refreshToken.getExpiresAt());
+        }
+        String registrationId = authorizedClient.getClientRegistration().getRegistrationId();
+        store.put(key(registrationId, principal.getName()),
+                aead.seal(out.toByteArray(), associatedData(registrationId, principal.getName())), ttl);
+    }
+
+    @Override
+    public void removeAuthorizedClient(String clientRegistrationId, String principalName) {
+        store.delete(key(clientRegistrationId, principalName));
+    }
+
+    private String key(String clientRegistrationId, String principalName) {
+        return keyPrefix + clientRegistrationId + ":" + principalName;
+    }
+
+    private static String associatedData(String clientRegistrationId, String principalName) {
+        return "client:" + clientRegistrationId + ":" + principalName;
+    }
+}
@@ -0,0 +1,89 @@
+package com.najarro.oauth2contacts.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * The copy of every user's {@link ContactSnapshot} in the {@link SharedStore}, so that a node
+ * serves users whose contacts another node already loaded instead of fetching them from Google
+ * again. The {@link ContactCache} of each node is a near cache in front of it: a node that writes a
+ * snapshot tells the others, which drop their own copy and read the new one on next use.
+ * <p>
+ * Snapshots are stored in the {@link ContactSnapshotCodec} encoding, encrypted with {@link AesGcm}
+ * bound to the principal name, under {@code <prefix>snapshot:<principal name>} and expire after {@code contacts.cache.ttl} without
+ * a write. Invalidations go out on {@code <prefix>snapshots} as {@code "<node> <principal name>"}.
+ */
+public class SharedContactSnapshots {
+
+    private static final Logger log = LoggerFactory.getLogger(SharedContactSnapshots.class);
+
+    private final SharedStore store;
+    private final String keyPrefix;
+    private final String channel;
+    private final Duration ttl;
+    private final AesGcm aead;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public SharedContactSnapshots(SharedStore store, String keyPrefix, Duration ttl, AesGcm aead) {
+        this.store = store;
+        this.keyPrefix = keyPrefix + "snapshot:";
+        this.channel = keyPrefix + "snapshots";
+        this.ttl = ttl;
+        this.aead = aead;
+    }
+
+    /**
+     * @return The shared snapshot, or null if there is none or it can't be read.
+     */
+    public ContactSnapshot load(String principalName) {
+        byte[] bytes = store.get(keyPrefix + principalName);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return ContactSnapshotCodec.decode(ByteBuffer.wrap(aead.open(bytes, associatedData(principalName))));
+        } catch (GeneralSecurityException | RuntimeException e) {
+            log.warn("Ignoring unreadable shared contact snapshot of {}", principalName, e);
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the shared snapshot and tells the other nodes to drop their copy.
+     *
+     * @return The version of the snapshot that was written.
+     */
+    public long save(String principalName, ContactSnapshot snapshot) {
+        ContactSnapshot.Contents contents = snapshot.getContents();
+        store.put(keyPrefix + principalName, aead.seal(ContactSnapshotCodec.encode(contents), associatedData(principalName)), ttl);
+        store.publish(channel, nodeId + " " + principalName);
+        return contents.version();
+    }
+
+    public void delete(String principalName) {
+        store.delete(keyPrefix + principalName);
+        store.publish(channel, nodeId + " " + principalName);
+    }
+
+    /**
+     * @param listener Told the principal name whenever another node wrote or deleted its snapshot.
+     */
+    public void onRemoteChange(Consumer<String> listener) {
+        store.subscribe(channel, message -> {
+            int separator = message.indexOf(' ');
+            if (separator > 0 && !message.substring(0, separator).equals(nodeId)) {
+                listener.accept(message.substring(separator + 1));
+            }
+        });
+    }
+
+    private static String associatedData(String principalName) {
+        return "snapshot:" + principalName;
+    }
+}
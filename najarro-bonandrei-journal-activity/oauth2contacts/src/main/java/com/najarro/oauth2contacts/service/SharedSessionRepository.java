@@ -0,0 +1,157 @@
+package com.najarro.oauth2contacts.service;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.MapSession;
+import org.springframework.session.SessionRepository;
+import org.springframework.session.events.SessionDeletedEvent;
+import org.springframework.session.events.SessionExpiredEvent;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spring Session repository on the {@link SharedStore}, so that any node can serve any request of
+ * a session (including the OAuth2 login callback, the CSRF token and flash attributes) without
+ * sticky sessions.
+ * <p>
+ * A session is stored under {@code <prefix>session:<id>} as its id, creation and last access time,
+ * timeout and attributes, each attribute value Java-serialized; the key expires with the session.
+ * Deleting a session, and a session this node has seen expiring, are published as Spring Session
+ * events, which reach the {@code SessionRegistry} like the container's own session events do.
+ */
+public class SharedSessionRepository implements SessionRepository<MapSession> {
+
+    private final SharedStore store;
+    private final String keyPrefix;
+    private final Duration defaultTimeout;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+    private final SerializingConverter serializer = new SerializingConverter();
+    private final DeserializingConverter deserializer;
+    /** Sessions this node saved or read, by the time they expire unless used again. */
+    private final Map<String, Instant> known = new ConcurrentHashMap<>();
+
+    public SharedSessionRepository(SharedStore store, String keyPrefix, Duration defaultTimeout,
+                                   ApplicationEventPublisher eventPublisher) {
+        this(store, keyPrefix, defaultTimeout, eventPublisher, Clock.systemUTC());
+    }
+
+    SharedSessionRepository(SharedStore store, String keyPrefix, Duration defaultTimeout,
+                            ApplicationEventPublisher eventPublisher, Clock clock) {
+        this.store = store;
+        this.keyPrefix = keyPrefix + "session:";
+        this.defaultTimeout = defaultTimeout;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+        this.deserializer = new DeserializingConverter(SharedSessionRepository.class.getClassLoader());
+    }
+
+    @Override
+    public MapSession createSession() {
+        MapSession session = new MapSession();
+        session.setMaxInactiveInterval(defaultTimeout);
+        return session;
+    }
+
+    @Override
+    public void save(MapSession session) {
+        if (!session.getId().equals(session.getOriginalId())) {
+            // The id changed on login; the session lives on under the new one
+            store.delete(keyPrefix + session.getOriginalId());
+            known.remove(session.getOriginalId());
+        }
+        store.put(keyPrefix + session.getId(), encode(session), session.getMaxInactiveInterval());
+        known.put(session.getId(), expiresAt(session));
+    }
+
+    @Override
+    public MapSession findById(String id) {
+        byte[] bytes = store.get(keyPrefix + id);
+        if (bytes == null) {
+            return null;
+        }
+        MapSession session = decode(bytes);
+        if (!expiresAt(session).isAfter(clock.instant())) {
+            expire(session);
+            return null;
+        }
+        known.put(id, expiresAt(session));
+        return session;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        MapSession session = findById(id);
+        store.delete(keyPrefix + id);
+        known.remove(id);
+        if (session != null) {
+            eventPublisher.publishEvent(new SessionDeletedEvent(this, session));
+        }
+    }
+
+    /**
+     * Publishes the expiry of the sessions this node knows about that have not been used (on any
+     * node) within their timeout; the store drops their keys by itself.
+     */
+    @Scheduled(fixedDelayString = "${contacts.shared-store.session-cleanup-interval:60s}")
+    public void cleanUpExpiredSessions() {
+        Instant now = clock.instant();
+        known.forEach((id, expiresAt) -> {
+            if (expiresAt.isAfter(now)) {
+                return;
+            }
+            byte[] bytes = store.get(keyPrefix + id);
+            MapSession session = bytes != null ? decode(bytes) : new MapSession(id);
+            if (bytes != null && expiresAt(session).isAfter(now)) {
+                // Used on another node since
+                known.put(id, expiresAt(session));
+                return;
+            }
+            expire(session);
+        });
+    }
+
+    private void expire(MapSession session) {
+        store.delete(keyPrefix + session.getId());
+        if (known.remove(session.getId()) != null) {
+            eventPublisher.publishEvent(new SessionExpiredEvent(this, session));
+        }
+    }
+
+    private static Instant expiresAt(MapSession session) {
+        return session.getLastAccessedTime().plus(session.getMaxInactiveInterval());
+    }
+
+    private byte[] encode(MapSession session) {
+        BinaryWriter out = new BinaryWriter(1024);
+        out.string(session.getId());
+        out.instant(session.getCreationTime());
+        out.instant(session.getLastAccessedTime());
+        out.varlong(session.getMaxInactiveInterval().toSeconds());
+        out.varint(session.getAttributeNames().size());
+        for (String name : session.getAttributeNames()) {
+            out.string(name);
+            out.bytes(serializer.convert(session.getAttribute(name)));
+        }
+        return out.toByteArray();
+    }
+
+    private MapSession decode(byte[] bytes) {
+        BinaryReader in = new BinaryReader(bytes);
+        MapSession session = new MapSession(in.string());
+        session.setCreationTime(in.instant());
+        session.setLastAccessedTime(in.instant());
+        session.setMaxInactiveInterval(Duration.ofSeconds(in.varlong()));
+        int attributes = in.varint();
+        for (int i = 0; i < attributes; i++) {
+            session.setAttribute(in.string(), deserializer.convert(in.bytes()));
+        }
+        return session;
+    }
+}
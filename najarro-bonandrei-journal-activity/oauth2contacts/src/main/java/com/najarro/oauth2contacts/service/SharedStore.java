@@ -0,0 +1,35 @@
+package com.najarro.oauth2contacts.service;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Key-value store with expiry and broadcast messages that every node of the application shares,
+ * behind the shared sessions ({@link SharedSessionRepository}), authorized clients
+ * ({@link SharedAuthorizedClientService}) and contact snapshots ({@link SharedContactSnapshots}).
+ * Values are opaque bytes; callers bring their own encoding.
+ * <p>
+ * {@link InMemorySharedStore} is the in-process implementation for a single node and for tests,
+ * {@link RedisSharedStore} the one for running several nodes behind a round-robin balancer.
+ */
+public interface SharedStore {
+
+    /**
+     * @return The value, or null if there is none or it has expired.
+     */
+    byte[] get(String key);
+
+    /**
+     * @param ttl How long the value is kept; it is dropped after that unless written again.
+     */
+    void put(String key, byte[] value, Duration ttl);
+
+    void delete(String key);
+
+    /**
+     * Sends a message to the subscribers of the channel on every node, this one included.
+     */
+    void publish(String channel, String message);
+
+    void subscribe(String channel, Consumer<String> listener);
+}
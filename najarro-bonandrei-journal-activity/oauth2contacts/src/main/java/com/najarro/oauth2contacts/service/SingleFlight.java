@@ -0,0 +1,59 @@
+package com.najarro.oauth2contacts.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent identical calls: while a call for a key is in flight, further callers
+ * with the same key wait for and share its outcome (result or exception) instead of making their own.
+ * Nothing is cached once the call completes.
+ *
+ * @param <K> The key type; must implement equals and hashCode.
+ */
+final class SingleFlight<K> {
+
+    private final ConcurrentMap<K, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param key Identifies the call.
+     * @param call Made only if no call with this key is in flight.
+     * @param onCoalesced Run when this caller joins a call already in flight.
+     * @return The result of this caller's call, or of the one it joined.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(K key, Supplier<T> call, Runnable onCoalesced) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            onCoalesced.run();
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e;
+            }
+        }
+        try {
+            T result = call.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,12 @@
+package com.najarro.oauth2contacts.service;
+
+/**
+ * Thrown when the People API rejects a syncToken because it is older than the
+ * seven days Google keeps them for. The caller has to fall back to a full load.
+ */
+public class SyncTokenExpiredException extends RuntimeException {
+
+    public SyncTokenExpiredException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
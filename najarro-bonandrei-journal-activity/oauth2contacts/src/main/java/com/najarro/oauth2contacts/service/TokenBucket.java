@@ -0,0 +1,85 @@
+package com.najarro.oauth2contacts.service;
+
+/**
+ * A token bucket whose tokens can be reserved ahead of time: a caller that finds it empty
+ * takes a token anyway (driving the balance negative) and is told how long to wait for it,
+ * so concurrent callers queue up fairly instead of polling.
+ * The refill rate can be lowered and restored at runtime for adaptive (AIMD) limiting.
+ */
+final class TokenBucket {
+
+    private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+
+    private final double capacity;
+    private final double maxRatePerNano;
+    private final double minRatePerNano;
+    private double ratePerNano;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(double requestsPerMinute, int burst, long nowNanos) {
+        this.capacity = Math.max(1, burst);
+        this.maxRatePerNano = requestsPerMinute / NANOS_PER_MINUTE;
+        this.minRatePerNano = maxRatePerNano / 16;
+        this.ratePerNano = maxRatePerNano;
+        this.tokens = capacity;
+        this.lastRefill = nowNanos;
+    }
+
+    /**
+     * Takes a token if one is available within maxWaitNanos.
+     *
+     * @return How long the caller must wait before using the token (0 if available now),
+     *         or -1 if it would have to wait longer than maxWaitNanos, in which case nothing is taken.
+     */
+    synchronized long reserve(long nowNanos, long maxWaitNanos) {
+        refill(nowNanos);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        long wait = (long) Math.ceil((1 - tokens) / ratePerNano);
+        if (wait > maxWaitNanos) {
+            return -1;
+        }
+        tokens -= 1;
+        return wait;
+    }
+
+    /**
+     * Gives back a token reserved by a call that ended up not being made.
+     */
+    synchronized void cancel() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    /**
+     * Multiplicative decrease after the upstream signalled it is over quota.
+     */
+    synchronized void throttle(long nowNanos) {
+        refill(nowNanos);
+        ratePerNano = Math.max(minRatePerNano, ratePerNano / 2);
+    }
+
+    /**
+     * Additive increase after a successful call, back up to the configured rate.
+     */
+    synchronized void recover(long nowNanos) {
+        if (ratePerNano < maxRatePerNano) {
+            refill(nowNanos);
+            ratePerNano = Math.min(maxRatePerNano, ratePerNano + maxRatePerNano / 32);
+        }
+    }
+
+    synchronized double requestsPerMinute() {
+        return ratePerNano * NANOS_PER_MINUTE;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefill;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * ratePerNano);
+            lastRefill = nowNanos;
+        }
+    }
+}
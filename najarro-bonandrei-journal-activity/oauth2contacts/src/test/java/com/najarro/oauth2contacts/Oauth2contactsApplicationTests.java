@@ -3,7 +3,13 @@ package com.najarro.oauth2contacts;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// The OAuth2 client registrations need credentials to start; none are used
+@SpringBootTest(properties = {
+		"spring.security.oauth2.client.registration.google.client-id=test",
+		"spring.security.oauth2.client.registration.google.client-secret=test",
+		"spring.security.oauth2.client.registration.github.client-id=test",
+		"spring.security.oauth2.client.registration.github.client-secret=test"
+})
 class Oauth2contactsApplicationTests {
 
 	@Test
@@ -0,0 +1,276 @@
+package com.najarro.oauth2contacts.load;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the application with simulated signed-in users against {@link FakeGoogle} and reports
+ * p50/p99 latency and throughput per endpoint. Every user signs in through the OAuth2 flow and then
+ * loops over /contacts, /contact-form, /save-contact (edit) and, every few rounds, /save-contact
+ * (create) plus /delete-contact, or two creates plus /batch-delete-contacts.
+ * <p>
+ * Not part of the regular build; run it with {@code mvn -Pload test}. Settings are system properties:
+ * {@code load.users}, {@code load.duration}, {@code load.warmup} (seconds), {@code load.contacts} (per
+ * user), {@code load.latency} and {@code load.jitter} (upstream, ms), {@code load.page-size} (upstream
+ * maximum) and {@code load.throttle-rate} (share of upstream calls answered with 429). Application
+ * settings pass through as well, e.g. {@code -Dspring.threads.virtual.enabled=true} to compare
+ * virtual with platform request threads. The report is printed and written to target/load-report.txt.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ContactsLoadTest {
+
+	private static final Pattern CSRF = Pattern.compile("name=\"_csrf\" value=\"([^\"]+)\"");
+	private static final Pattern RESOURCE_NAME = Pattern.compile("data-resource-name=\"([^\"]+)\"");
+	private static final Pattern ETAG = Pattern.compile("name=\"etag\" value=\"([^\"]*)\"");
+
+	private static final FakeGoogle GOOGLE = startGoogle();
+
+	@LocalServerPort
+	private int port;
+
+	private final Map<String, List<Long>> latencies = new ConcurrentHashMap<>();
+	private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+
+	private static FakeGoogle startGoogle() {
+		try {
+			return new FakeGoogle()
+					.contactsPerUser(Integer.getInteger("load.contacts", 500))
+					.maxPageSize(Integer.getInteger("load.page-size", 1000))
+					.latency(Duration.ofMillis(Long.getLong("load.latency", 50)), Duration.ofMillis(Long.getLong("load.jitter", 20)))
+					.throttleRate(Double.parseDouble(System.getProperty("load.throttle-rate", "0")));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@DynamicPropertySource
+	static void googleStandIn(DynamicPropertyRegistry registry) {
+		registry.add("contacts.people-api.base-url", () -> GOOGLE.baseUrl() + "/v1/");
+		registry.add("spring.security.oauth2.client.registration.google.client-id", () -> "load-test");
+		registry.add("spring.security.oauth2.client.registration.google.client-secret", () -> "load-test");
+		registry.add("spring.security.oauth2.client.registration.github.client-id", () -> "load-test");
+		registry.add("spring.security.oauth2.client.registration.github.client-secret", () -> "load-test");
+		registry.add("spring.security.oauth2.client.provider.google.authorization-uri", () -> GOOGLE.baseUrl() + "/o/oauth2/auth");
+		registry.add("spring.security.oauth2.client.provider.google.token-uri", () -> GOOGLE.baseUrl() + "/token");
+		registry.add("spring.security.oauth2.client.provider.google.user-info-uri", () -> GOOGLE.baseUrl() + "/userinfo");
+		registry.add("spring.security.oauth2.client.provider.google.user-name-attribute", () -> "sub");
+	}
+
+	@AfterAll
+	static void stopGoogle() {
+		GOOGLE.close();
+	}
+
+	@Test
+	void contactsEndpointsUnderLoad() throws Exception {
+		int users = Integer.getInteger("load.users", 20);
+		Duration warmup = Duration.ofSeconds(Long.getLong("load.warmup", 5));
+		Duration duration = Duration.ofSeconds(Long.getLong("load.duration", 30));
+
+		long measureFrom = System.nanoTime() + warmup.toNanos();
+		long end = measureFrom + duration.toNanos();
+		try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<?>> running = new ArrayList<>();
+			for (int i = 0; i < users; i++) {
+				String user = "load-" + i;
+				running.add(clients.submit(() -> {
+					runUser(user, measureFrom, end);
+					return null;
+				}));
+			}
+			for (Future<?> user : running) {
+				user.get();
+			}
+		}
+
+		String report = report(users, duration);
+		System.out.println(report);
+		Files.writeString(Path.of("target", "load-report.txt"), report);
+		assertThat(latencies.get("GET /contacts")).isNotEmpty();
+	}
+
+	private void runUser(String user, long measureFrom, long end) throws Exception {
+		HttpClient client = HttpClient.newBuilder()
+				.cookieHandler(new CookieManager())
+				.followRedirects(HttpClient.Redirect.NEVER)
+				.build();
+		signIn(client, user);
+
+		for (int round = 0; System.nanoTime() < end; round++) {
+			boolean measured = System.nanoTime() >= measureFrom;
+			HttpResponse<String> list = call(client, "GET /contacts", get("/contacts"), measured);
+			String csrf = first(CSRF, list.body());
+			List<String> resourceNames = all(RESOURCE_NAME, list.body());
+			if (csrf == null || resourceNames.isEmpty()) {
+				continue;
+			}
+			String resourceName = resourceNames.get(ThreadLocalRandom.current().nextInt(resourceNames.size()));
+
+			HttpResponse<String> form = call(client, "GET /contact-form",
+					get("/contact-form?resourceName=" + encode(resourceName)), measured);
+			String etag = first(ETAG, form.body());
+			if (etag != null) {
+				call(client, "POST /save-contact (edit)", post("/save-contact", Map.of(
+						"_csrf", csrf,
+						"resourceName", resourceName,
+						"etag", etag,
+						"firstName", "Edited " + round,
+						"lastName", user)), measured);
+			}
+			if (round % 4 == 3) {
+				// Keeps the address book at the same size
+				call(client, "POST /save-contact (create)", post("/save-contact", Map.of(
+						"_csrf", csrf,
+						"firstName", "Created " + round,
+						"lastName", user,
+						"emailAddresses[0].value", "created" + round + "." + user + "@example.com",
+						"emailAddresses[0].type", "home")), measured);
+				String other = resourceNames.get(ThreadLocalRandom.current().nextInt(resourceNames.size()));
+				if (round % 8 == 7 && !other.equals(resourceName)) {
+					call(client, "POST /save-contact (create)", post("/save-contact", Map.of(
+							"_csrf", csrf,
+							"firstName", "Created " + round + "b",
+							"lastName", user)), measured);
+					// Comma separated, which binds to the list of selected resourceNames
+					call(client, "POST /batch-delete-contacts", post("/batch-delete-contacts", Map.of(
+							"_csrf", csrf,
+							"resourceNames", resourceName + "," + other)), measured);
+				} else {
+					call(client, "POST /delete-contact", post("/delete-contact", Map.of(
+							"_csrf", csrf,
+							"resourceName", resourceName)), measured);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Follows the OAuth2 login redirects by hand, naming the user to the stand-in on the way.
+	 */
+	private void signIn(HttpClient client, String user) throws Exception {
+		HttpResponse<String> response = client.send(get("/oauth2/authorization/google"), HttpResponse.BodyHandlers.ofString());
+		String authorize = response.headers().firstValue("Location").orElseThrow() + "&login_hint=" + encode(user);
+		response = client.send(HttpRequest.newBuilder(URI.create(authorize)).build(), HttpResponse.BodyHandlers.ofString());
+		String callback = response.headers().firstValue("Location").orElseThrow();
+		response = client.send(HttpRequest.newBuilder(URI.create(callback)).build(), HttpResponse.BodyHandlers.ofString());
+		assertThat(response.headers().firstValue("Location")).hasValueSatisfying(location -> assertThat(location).endsWith("/home"));
+	}
+
+	private HttpResponse<String> call(HttpClient client, String name, HttpRequest request, boolean measured) throws Exception {
+		long start = System.nanoTime();
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		long elapsed = System.nanoTime() - start;
+		if (measured) {
+			latencies.computeIfAbsent(name, key -> Collections.synchronizedList(new ArrayList<>())).add(elapsed);
+			// Pages answer with 200 and form posts redirect to /contacts; anything else (an error
+			// status, a redirect to the login page or a form that bounced back) is a failure
+			String location = response.headers().firstValue("Location").orElse("");
+			boolean ok = request.method().equals("GET")
+					? response.statusCode() == 200
+					: response.statusCode() == 302 && location.endsWith("/contacts");
+			if (!ok) {
+				errors.computeIfAbsent(name, key -> new AtomicLong()).incrementAndGet();
+			}
+		}
+		return response;
+	}
+
+	private String report(int users, Duration duration) {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("Load: %d users for %ds, upstream latency %sms (+%sms jitter), %s contacts/user, virtual threads %s%n",
+				users, duration.toSeconds(), System.getProperty("load.latency", "50"), System.getProperty("load.jitter", "20"),
+				System.getProperty("load.contacts", "500"), System.getProperty("spring.threads.virtual.enabled", "false")));
+		report.append(String.format("Upstream: %d People API calls, %d answered with 429%n", GOOGLE.requests(), GOOGLE.throttled()));
+		report.append(String.format("%-28s %8s %8s %10s %10s %10s %8s%n", "endpoint", "count", "errors", "p50 ms", "p99 ms", "max ms", "req/s"));
+		long total = 0;
+		for (Map.Entry<String, List<Long>> entry : new TreeMap<>(latencies).entrySet()) {
+			long[] sorted;
+			synchronized (entry.getValue()) {
+				sorted = entry.getValue().stream().mapToLong(Long::longValue).toArray();
+			}
+			Arrays.sort(sorted);
+			total += sorted.length;
+			AtomicLong failed = errors.get(entry.getKey());
+			report.append(String.format("%-28s %8d %8d %10.1f %10.1f %10.1f %8.1f%n",
+					entry.getKey(), sorted.length, failed != null ? failed.get() : 0,
+					millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)), millis(sorted[sorted.length - 1]),
+					sorted.length / (double) duration.toSeconds()));
+		}
+		report.append(String.format("%-28s %8d %8s %10s %10s %10s %8.1f%n", "total", total, "", "", "", "", total / (double) duration.toSeconds()));
+		return report.toString();
+	}
+
+	private static long percentile(long[] sorted, double percentile) {
+		return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+
+	private HttpRequest get(String path) {
+		return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+	}
+
+	private HttpRequest post(String path, Map<String, String> form) {
+		StringBuilder body = new StringBuilder();
+		form.forEach((name, value) -> body.append(body.isEmpty() ? "" : "&").append(encode(name)).append('=').append(encode(value)));
+		return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+				.build();
+	}
+
+	private static String first(Pattern pattern, String body) {
+		Matcher matcher = pattern.matcher(body);
+		return matcher.find() ? matcher.group(1) : null;
+	}
+
+	private static List<String> all(Pattern pattern, String body) {
+		List<String> values = new ArrayList<>();
+		Matcher matcher = pattern.matcher(body);
+		while (matcher.find()) {
+			values.add(matcher.group(1));
+		}
+		return values;
+	}
+
+	private static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+}
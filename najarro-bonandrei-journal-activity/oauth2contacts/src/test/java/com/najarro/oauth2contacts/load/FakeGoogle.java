@@ -0,0 +1,460 @@
+package com.najarro.oauth2contacts.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the Google OAuth2 provider and the parts of the People API the
+ * application uses, so the application can be driven end to end without Google.
+ * <ul>
+ *   <li>OAuth2: {@code /o/oauth2/auth} approves at once and redirects back with a code for the
+ *   user named by {@code login_hint} (or the next numbered user); {@code /token} exchanges the code
+ *   for a bearer token of that user and {@code /userinfo} describes them.</li>
+ *   <li>People API under {@code /v1/}: connections.list with page and sync tokens (deletions come
+ *   back flagged as deleted), people.get, createContact, updateContact (rejecting a stale etag
+ *   with FAILED_PRECONDITION like Google does), deleteContact, and the batchCreateContacts,
+ *   batchUpdateContacts (reporting a stale etag per person) and batchDeleteContacts (all or
+ *   nothing) endpoints the bulk operations use.</li>
+ * </ul>
+ * Every user starts with {@link #contactsPerUser} contacts. People API responses are delayed by
+ * {@link #latency} plus up to {@link #latencyJitter}, listings are cut at {@link #maxPageSize},
+ * and {@link #throttleRate} of the calls are answered with 429.
+ */
+public class FakeGoogle implements AutoCloseable {
+
+	private final ObjectMapper json = new ObjectMapper();
+	private final Map<String, User> users = new ConcurrentHashMap<>();
+	private final AtomicInteger nextUser = new AtomicInteger();
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong throttled = new AtomicLong();
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private final HttpServer server;
+
+	private volatile int contactsPerUser = 200;
+	private volatile int maxPageSize = 1000;
+	private volatile Duration latency = Duration.ZERO;
+	private volatile Duration latencyJitter = Duration.ZERO;
+	private volatile double throttleRate;
+
+	public FakeGoogle() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(executor);
+		server.createContext("/o/oauth2/auth", this::authorize);
+		server.createContext("/token", this::token);
+		server.createContext("/userinfo", this::userInfo);
+		server.createContext("/v1/", this::peopleApi);
+		server.start();
+	}
+
+	public String baseUrl() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	public FakeGoogle contactsPerUser(int contactsPerUser) {
+		this.contactsPerUser = contactsPerUser;
+		return this;
+	}
+
+	public FakeGoogle maxPageSize(int maxPageSize) {
+		this.maxPageSize = maxPageSize;
+		return this;
+	}
+
+	public FakeGoogle latency(Duration latency, Duration jitter) {
+		this.latency = latency;
+		this.latencyJitter = jitter;
+		return this;
+	}
+
+	/**
+	 * @param throttleRate Share of People API calls, 0 to 1, that get a 429.
+	 */
+	public FakeGoogle throttleRate(double throttleRate) {
+		this.throttleRate = throttleRate;
+		return this;
+	}
+
+	/**
+	 * @return People API calls served, including the throttled ones.
+	 */
+	public long requests() {
+		return requests.get();
+	}
+
+	public long throttled() {
+		return throttled.get();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void authorize(HttpExchange exchange) throws IOException {
+		Map<String, String> query = parameters(exchange.getRequestURI().getRawQuery());
+		String user = query.getOrDefault("login_hint", "user-" + nextUser.incrementAndGet());
+		String location = query.get("redirect_uri")
+				+ "?code=" + encode("code-" + user)
+				+ "&state=" + encode(query.get("state"));
+		exchange.getResponseHeaders().set("Location", location);
+		exchange.sendResponseHeaders(302, -1);
+		exchange.close();
+	}
+
+	private void token(HttpExchange exchange) throws IOException {
+		Map<String, String> form = parameters(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+		String code = form.getOrDefault("code", "");
+		if (!code.startsWith("code-")) {
+			send(exchange, 400, Map.of("error", "invalid_grant"));
+			return;
+		}
+		send(exchange, 200, Map.of(
+				"access_token", "token-" + code.substring("code-".length()),
+				"token_type", "Bearer",
+				"expires_in", 3600));
+	}
+
+	private void userInfo(HttpExchange exchange) throws IOException {
+		String user = bearerUser(exchange);
+		if (user == null) {
+			send(exchange, 401, Map.of("error", "invalid_token"));
+			return;
+		}
+		send(exchange, 200, Map.of("sub", user, "name", "Load " + user, "email", user + "@example.com"));
+	}
+
+	private void peopleApi(HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		delay();
+		String userName = bearerUser(exchange);
+		if (userName == null) {
+			send(exchange, 401, error(401, "UNAUTHENTICATED", "Request had invalid authentication credentials."));
+			return;
+		}
+		if (throttleRate > 0 && ThreadLocalRandom.current().nextDouble() < throttleRate) {
+			throttled.incrementAndGet();
+			send(exchange, 429, error(429, "RESOURCE_EXHAUSTED", "Quota exceeded for quota metric 'Read requests'."));
+			return;
+		}
+		User user = users.computeIfAbsent(userName, name -> new User(name, contactsPerUser));
+		String path = exchange.getRequestURI().getPath().substring("/v1/".length());
+		Map<String, String> query = parameters(exchange.getRequestURI().getRawQuery());
+		String method = exchange.getRequestMethod();
+
+		synchronized (user) {
+			if (path.equals("people/me/connections") && method.equals("GET")) {
+				send(exchange, 200, query.containsKey("syncToken") ? user.changes(query.get("syncToken")) : user.page(query));
+			} else if (path.equals("people:createContact") && method.equals("POST")) {
+				send(exchange, 200, user.create(readBody(exchange.getRequestBody())).toJson());
+			} else if (path.equals("people:batchCreateContacts") && method.equals("POST")) {
+				send(exchange, 200, user.batchCreate(readBody(exchange.getRequestBody())));
+			} else if (path.equals("people:batchUpdateContacts") && method.equals("POST")) {
+				send(exchange, 200, user.batchUpdate(readBody(exchange.getRequestBody())));
+			} else if (path.equals("people:batchDeleteContacts") && method.equals("POST")) {
+				List<Person> deleted = user.live(readBody(exchange.getRequestBody()).get("resourceNames"));
+				if (deleted == null) {
+					send(exchange, 404, error(404, "NOT_FOUND", "Requested entity was not found."));
+				} else {
+					deleted.forEach(user::delete);
+					send(exchange, 200, Map.of());
+				}
+			} else if (path.endsWith(":updateContact") && method.equals("PATCH")) {
+				Person person = user.people.get(path.substring(0, path.length() - ":updateContact".length()));
+				Map<String, Object> body = readBody(exchange.getRequestBody());
+				if (person == null || person.deleted) {
+					send(exchange, 404, error(404, "NOT_FOUND", "Requested entity was not found."));
+				} else if (!person.etag().equals(body.get("etag"))) {
+					send(exchange, 400, error(400, "FAILED_PRECONDITION",
+							"Request person.etag is different than the current person.etag. Clear local cache and get the latest person."));
+				} else {
+					user.update(person, body, query.getOrDefault("updatePersonFields", ""));
+					send(exchange, 200, person.toJson());
+				}
+			} else if (path.endsWith(":deleteContact") && method.equals("DELETE")) {
+				Person person = user.people.get(path.substring(0, path.length() - ":deleteContact".length()));
+				if (person == null || person.deleted) {
+					send(exchange, 404, error(404, "NOT_FOUND", "Requested entity was not found."));
+				} else {
+					user.delete(person);
+					send(exchange, 200, Map.of());
+				}
+			} else if (path.startsWith("people/") && method.equals("GET")) {
+				Person person = user.people.get(path);
+				if (person == null || person.deleted) {
+					send(exchange, 404, error(404, "NOT_FOUND", "Requested entity was not found."));
+				} else {
+					send(exchange, 200, person.toJson());
+				}
+			} else {
+				send(exchange, 501, error(501, "UNIMPLEMENTED", "Not supported by the stand-in: " + method + " " + path));
+			}
+		}
+	}
+
+	private void delay() {
+		long nanos = latency.toNanos();
+		if (latencyJitter.toNanos() > 0) {
+			nanos += ThreadLocalRandom.current().nextLong(latencyJitter.toNanos());
+		}
+		if (nanos > 0) {
+			try {
+				Thread.sleep(Duration.ofNanos(nanos));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static String bearerUser(HttpExchange exchange) {
+		String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+		if (authorization == null || !authorization.startsWith("Bearer token-")) {
+			return null;
+		}
+		return authorization.substring("Bearer token-".length());
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> readBody(InputStream body) throws IOException {
+		return json.readValue(body, Map.class);
+	}
+
+	private void send(HttpExchange exchange, int status, Object body) throws IOException {
+		byte[] bytes = json.writeValueAsBytes(body);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static Map<String, Object> error(int code, String status, String message) {
+		return Map.of("error", Map.of("code", code, "status", status, "message", message));
+	}
+
+	private static Map<String, String> parameters(String raw) {
+		Map<String, String> parameters = new HashMap<>();
+		if (raw == null || raw.isEmpty()) {
+			return parameters;
+		}
+		for (String pair : raw.split("&")) {
+			int eq = pair.indexOf('=');
+			String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+			String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+			parameters.putIfAbsent(name, value);
+		}
+		return parameters;
+	}
+
+	private static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * One user's address book. Every change bumps the book's version, which doubles as the
+	 * changed person's etag and as the sync token handed out afterwards.
+	 */
+	private final class User {
+
+		private final Map<String, Person> people = new LinkedHashMap<>();
+		private long version;
+		private int nextId;
+
+		private User(String name, int contacts) {
+			for (int i = 0; i < contacts; i++) {
+				Person person = new Person("people/c" + name.hashCode() + "x" + nextId++);
+				person.givenName = "Given" + i;
+				person.familyName = "Family " + name;
+				person.email = "contact" + i + "." + name + "@example.com";
+				person.phone = "+1 555 " + String.format("%07d", i);
+				person.version = ++version;
+				people.put(person.resourceName, person);
+			}
+		}
+
+		private Map<String, Object> page(Map<String, String> query) {
+			int pageSize = Math.min(maxPageSize, Integer.parseInt(query.getOrDefault("pageSize", "100")));
+			int from = Integer.parseInt(query.getOrDefault("pageToken", "0"));
+			List<Person> live = people.values().stream().filter(person -> !person.deleted).toList();
+			int to = Math.min(from + pageSize, live.size());
+			Map<String, Object> response = new LinkedHashMap<>();
+			response.put("connections", live.subList(Math.min(from, to), to).stream().map(Person::toJson).toList());
+			response.put("totalItems", live.size());
+			if (to < live.size()) {
+				response.put("nextPageToken", Integer.toString(to));
+			} else if (Boolean.parseBoolean(query.get("requestSyncToken"))) {
+				response.put("nextSyncToken", "s" + version);
+			}
+			return response;
+		}
+
+		private Map<String, Object> changes(String syncToken) {
+			long since = Long.parseLong(syncToken.substring(1));
+			List<Map<String, Object>> changed = new ArrayList<>();
+			for (Person person : people.values()) {
+				if (person.version > since) {
+					changed.add(person.toJson());
+				}
+			}
+			Map<String, Object> response = new LinkedHashMap<>();
+			response.put("connections", changed);
+			response.put("nextSyncToken", "s" + version);
+			return response;
+		}
+
+		private Person create(Map<String, Object> body) {
+			Person person = new Person("people/c" + hashCode() + "n" + nextId++);
+			apply(person, body, "names,emailAddresses,phoneNumbers");
+			person.version = ++version;
+			people.put(person.resourceName, person);
+			return person;
+		}
+
+		private Map<String, Object> batchCreate(Map<String, Object> body) {
+			List<Map<String, Object>> created = new ArrayList<>();
+			for (Object contact : body.get("contacts") instanceof List<?> list ? list : List.of()) {
+				Person person = create(asMap(asMap(contact).get("contactPerson")));
+				created.add(Map.of("httpStatusCode", 200, "person", person.toJson()));
+			}
+			return Map.of("createdPeople", created);
+		}
+
+		private Map<String, Object> batchUpdate(Map<String, Object> body) {
+			String updateMask = (String) body.getOrDefault("updateMask", "");
+			Map<String, Object> results = new LinkedHashMap<>();
+			asMap(body.get("contacts")).forEach((resourceName, value) -> {
+				Map<String, Object> person = asMap(value);
+				Person existing = people.get(resourceName);
+				if (existing == null || existing.deleted) {
+					results.put(resourceName, Map.of("httpStatusCode", 404,
+							"status", Map.of("code", 5, "message", "Requested entity was not found.")));
+				} else if (!existing.etag().equals(person.get("etag"))) {
+					results.put(resourceName, Map.of("httpStatusCode", 400,
+							"status", Map.of("code", 9, "message", "Request person.etag is different than the current person.etag.")));
+				} else {
+					update(existing, person, updateMask);
+					results.put(resourceName, Map.of("httpStatusCode", 200, "person", existing.toJson()));
+				}
+			});
+			return Map.of("updateResult", results);
+		}
+
+		/**
+		 * @return The live people with the given resourceNames, or null if any of them isn't one.
+		 */
+		private List<Person> live(Object resourceNames) {
+			List<Person> found = new ArrayList<>();
+			for (Object resourceName : resourceNames instanceof List<?> list ? list : List.of()) {
+				Person person = people.get(String.valueOf(resourceName));
+				if (person == null || person.deleted) {
+					return null;
+				}
+				found.add(person);
+			}
+			return found;
+		}
+
+		private void update(Person person, Map<String, Object> body, String updatePersonFields) {
+			apply(person, body, updatePersonFields);
+			person.version = ++version;
+		}
+
+		private void delete(Person person) {
+			person.deleted = true;
+			person.version = ++version;
+		}
+
+		private void apply(Person person, Map<String, Object> body, String fields) {
+			if (fields.contains("names")) {
+				Map<String, Object> name = first(body.get("names"));
+				person.givenName = name != null ? (String) name.get("givenName") : null;
+				person.familyName = name != null ? (String) name.get("familyName") : null;
+			}
+			if (fields.contains("emailAddresses")) {
+				Map<String, Object> email = first(body.get("emailAddresses"));
+				person.email = email != null ? (String) email.get("value") : null;
+			}
+			if (fields.contains("phoneNumbers")) {
+				Map<String, Object> phone = first(body.get("phoneNumbers"));
+				person.phone = phone != null ? (String) phone.get("value") : null;
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private static Map<String, Object> asMap(Object value) {
+			return value instanceof Map<?, ?> map ? (Map<String, Object>) map : Map.of();
+		}
+
+		@SuppressWarnings("unchecked")
+		private static Map<String, Object> first(Object values) {
+			return values instanceof List<?> list && !list.isEmpty() ? (Map<String, Object>) list.get(0) : null;
+		}
+	}
+
+	private static final class Person {
+
+		private final String resourceName;
+		private String givenName;
+		private String familyName;
+		private String email;
+		private String phone;
+		private long version;
+		private boolean deleted;
+
+		private Person(String resourceName) {
+			this.resourceName = resourceName;
+		}
+
+		private String etag() {
+			return "%Eg" + version;
+		}
+
+		private Map<String, Object> toJson() {
+			Map<String, Object> person = new LinkedHashMap<>();
+			person.put("resourceName", resourceName);
+			person.put("etag", etag());
+			Map<String, Object> metadata = new LinkedHashMap<>();
+			metadata.put("sources", List.of(Map.of("type", "CONTACT", "id", resourceName.substring("people/".length()), "etag", "#" + etag())));
+			if (deleted) {
+				metadata.put("deleted", true);
+				person.put("metadata", metadata);
+				return person;
+			}
+			person.put("metadata", metadata);
+			if (givenName != null || familyName != null) {
+				Map<String, Object> name = new LinkedHashMap<>();
+				name.put("givenName", givenName);
+				name.put("familyName", familyName);
+				person.put("names", List.of(name));
+			}
+			if (email != null) {
+				person.put("emailAddresses", List.of(Map.of("value", email, "type", "home")));
+			}
+			if (phone != null) {
+				person.put("phoneNumbers", List.of(Map.of("value", phone, "type", "mobile")));
+			}
+			return person;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package com.najarro.oauth2contacts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.najarro.oauth2contacts.config.ContactCacheProperties;
+import com.najarro.oauth2contacts.config.PeopleApiProperties;
+import com.najarro.oauth2contacts.model.Contact;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.najarro.oauth2contacts.service.ContactFixtures.contact;
+import static com.najarro.oauth2contacts.service.ContactFixtures.withEmails;
+import static com.najarro.oauth2contacts.service.ContactFixtures.withEtag;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the chunking, grouping and timeout handling of {@link ContactBatchService} against a
+ * client whose batch calls are scripted per chunk.
+ */
+class ContactBatchServiceTests {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final Queue<Integer> chunkSizes = new ConcurrentLinkedQueue<>();
+	private final Queue<String> masks = new ConcurrentLinkedQueue<>();
+	private final PeopleApiProperties properties = new PeopleApiProperties();
+
+	@AfterEach
+	void stopExecutor() {
+		release.countDown();
+		executor.shutdownNow();
+	}
+
+	private ContactBatchService service(PeopleApiClient client) {
+		ContactCacheProperties cacheProperties = new ContactCacheProperties();
+		return new ContactBatchService(client,
+				new ContactCache(cacheProperties, Clock.systemUTC()),
+				new PersonCache(cacheProperties, Clock.systemUTC()),
+				executor,
+				properties);
+	}
+
+	@Test
+	void createSplitsIntoChunksAndKeepsTheOthersWhenOneFails() {
+		List<Contact> contacts = new ArrayList<>();
+		for (int i = 0; i < 450; i++) {
+			contacts.add(contact(null, "First" + i, "Last" + i));
+		}
+		ContactBatchService service = service(new StubClient() {
+			@Override
+			public BatchResult batchCreateContacts(String principalName, String accessToken, List<Map<String, Object>> persons) {
+				chunkSizes.add(persons.size());
+				if (persons.size() == 50) {
+					throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+				}
+				List<Contact> created = new ArrayList<>();
+				for (int i = 0; i < persons.size(); i++) {
+					created.add(contact("people/" + chunkSizes.size() + "-" + i, "First", "Last"));
+				}
+				return BatchResult.of(created, List.of());
+			}
+		});
+
+		BatchResult result = service.createContacts("alice", "token", contacts);
+
+		assertThat(chunkSizes).containsExactlyInAnyOrder(200, 200, 50);
+		assertThat(result.getSucceeded()).isEqualTo(400);
+		assertThat(result.getFailed()).isEqualTo(50);
+		assertThat(result.getContacts()).hasSize(400);
+		assertThat(result.getErrors()).singleElement().asString().startsWith("503");
+	}
+
+	@Test
+	void updatesAreChunkedPerMaskAndIncompleteOnesRejected() {
+		List<Contact> contacts = new ArrayList<>();
+		for (int i = 0; i < 201; i++) {
+			contacts.add(withEmails(contact("people/" + i, "First" + i, "Last" + i), null, i + "@example.com"));
+		}
+		contacts.add(withEtag(contact("people/no-etag", "Edsger", "Dijkstra"), null));
+		ContactBatchService service = service(new StubClient() {
+			@Override
+			public BatchResult batchUpdateContacts(String principalName, String accessToken,
+												   Map<String, Map<String, Object>> personsByResourceName, String updatePersonFields) {
+				chunkSizes.add(personsByResourceName.size());
+				masks.add(updatePersonFields);
+				List<Contact> updated = new ArrayList<>();
+				for (String resourceName : personsByResourceName.keySet()) {
+					updated.add(contact(resourceName, "First", "Last"));
+				}
+				return BatchResult.of(updated, List.of());
+			}
+		});
+
+		BatchResult result = service.updateContacts("alice", "token", contacts);
+
+		assertThat(chunkSizes).containsExactlyInAnyOrder(200, 1);
+		assertThat(masks).containsOnly("names,emailAddresses,phoneNumbers");
+		assertThat(result.getSucceeded()).isEqualTo(201);
+		assertThat(result.getFailed()).isEqualTo(1);
+		assertThat(result.getErrors()).containsExactly("resourceName and etag are required for an update");
+	}
+
+	@Test
+	void chunksWithoutAResultByTheTimeoutAreReportedAsFailed() {
+		properties.setBatchParallelism(2);
+		properties.setBatchTimeout(Duration.ofMillis(300));
+		List<String> resourceNames = new ArrayList<>();
+		for (int i = 0; i < 1100; i++) {
+			resourceNames.add("people/" + i);
+		}
+		resourceNames.add("people/0");
+		ContactBatchService service = service(new StubClient() {
+			@Override
+			public void batchDeleteContacts(String principalName, String accessToken, List<String> chunk) {
+				chunkSizes.add(chunk.size());
+				if (chunk.get(0).equals("people/500")) {
+					try {
+						release.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+		});
+
+		long started = System.nanoTime();
+		BatchResult result = service.deleteContacts("alice", "token", resourceNames);
+
+		assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+		assertThat(chunkSizes).containsExactlyInAnyOrder(500, 500, 100);
+		assertThat(result.getSucceeded()).isEqualTo(600);
+		assertThat(result.getFailed()).isEqualTo(500);
+		assertThat(result.getErrors()).containsExactly("Not completed within PT0.3S");
+	}
+
+	/**
+	 * A client that makes no HTTP calls; tests override the batch calls they drive.
+	 */
+	private static class StubClient extends PeopleApiClient {
+
+		StubClient() {
+			super(null, new ObjectMapper(), new PeopleApiProperties(), null, null, null);
+		}
+	}
+
+}
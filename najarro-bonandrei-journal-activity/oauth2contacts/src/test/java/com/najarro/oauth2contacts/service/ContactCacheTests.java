@@ -0,0 +1,142 @@
+package com.najarro.oauth2contacts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.najarro.oauth2contacts.config.ContactCacheProperties;
+import com.najarro.oauth2contacts.config.ContactSyncProperties;
+import com.najarro.oauth2contacts.config.DuplicateProperties;
+import com.najarro.oauth2contacts.config.PeopleApiProperties;
+import com.najarro.oauth2contacts.model.Contact;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.najarro.oauth2contacts.service.ContactFixtures.contact;
+import static com.najarro.oauth2contacts.service.ContactFixtures.withEtag;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContactCacheTests {
+
+	private final MutableClock clock = new MutableClock();
+
+	private ContactCache cache(int maxUsers) {
+		ContactCacheProperties properties = new ContactCacheProperties();
+		properties.setMaxUsers(maxUsers);
+		properties.setTtl(Duration.ofMinutes(10));
+		properties.setSyncInterval(Duration.ofSeconds(30));
+		return new ContactCache(properties, clock);
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedUserWhenFull() {
+		ContactCache cache = cache(2);
+		cache.put("alice", new ContactSnapshot());
+		cache.put("bob", new ContactSnapshot());
+		cache.get("alice");
+		cache.put("carol", new ContactSnapshot());
+
+		assertThat(cache.get("alice")).isNotNull();
+		assertThat(cache.get("bob")).isNull();
+		assertThat(cache.get("carol")).isNotNull();
+	}
+
+	@Test
+	void expiresEntriesNotReadWithinTtl() {
+		ContactCache cache = cache(10);
+		cache.put("alice", new ContactSnapshot());
+
+		clock.advance(Duration.ofMinutes(9));
+		assertThat(cache.get("alice")).isNotNull();
+		clock.advance(Duration.ofMinutes(9));
+		assertThat(cache.get("alice")).isNotNull();
+		clock.advance(Duration.ofMinutes(11));
+		assertThat(cache.get("alice")).isNull();
+	}
+
+	@Test
+	void snapshotIsDueForSyncAfterInterval() {
+		ContactCache cache = cache(10);
+		ContactSnapshot snapshot = new ContactSnapshot();
+		assertThat(cache.isDueForSync(snapshot)).isTrue();
+
+		snapshot.markSynced("token", clock.instant());
+		assertThat(cache.isDueForSync(snapshot)).isFalse();
+		clock.advance(Duration.ofSeconds(31));
+		assertThat(cache.isDueForSync(snapshot)).isTrue();
+	}
+
+	@Test
+	void writesAreReflectedInTheCachedSnapshot() {
+		ContactCache cache = cache(10);
+		ContactSnapshot snapshot = new ContactSnapshot();
+		snapshot.put(contact("people/1", "Ada", "Lovelace"));
+		snapshot.put(contact("people/2", "Alan", "Turing"));
+		cache.put("alice", snapshot);
+		ContactService service = service(cache, withEtag(contact("people/1", "Ada", "King"), "e2"));
+
+		service.createContact("alice", "token", "{}");
+		service.updateContact("alice", "token", "people/1", "names", "{}");
+		service.deleteContact("alice", "token", "people/2");
+
+		assertThat(cache.get("alice")).isSameAs(snapshot);
+		assertThat(snapshot.getContacts()).extracting(Contact::getResourceName).containsExactlyInAnyOrder("people/1", "people/3");
+		assertThat(snapshot.get("people/1").getLastName()).isEqualTo("King");
+		assertThat(snapshot.get("people/1").getEtag()).isEqualTo("e2");
+	}
+
+	@Test
+	void writeWithoutAResponseBodyInvalidatesTheSnapshot() {
+		ContactCache cache = cache(10);
+		cache.put("alice", new ContactSnapshot());
+		ContactService service = service(cache, null);
+
+		assertThat(service.updateContact("alice", "token", "people/1", "names", "{}")).isNull();
+		assertThat(cache.get("alice")).isNull();
+	}
+
+	@Test
+	void reportsSnapshotChangesWithPrincipalName() {
+		ContactCache cache = cache(10);
+		List<String> changes = new ArrayList<>();
+		cache.onChange((principalName, delta) -> changes.add(principalName + " " + delta.type() + " " + delta.resourceName()));
+		ContactSnapshot snapshot = new ContactSnapshot();
+		cache.put("alice", snapshot);
+
+		snapshot.put(withEtag(contact("people/1", null, null), "e1"));
+		snapshot.put(withEtag(contact("people/1", null, null), "e1"));
+		snapshot.put(withEtag(contact("people/1", null, null), "e2"));
+		snapshot.remove("people/1");
+		snapshot.remove("people/1");
+
+		assertThat(changes).containsExactly(
+				"alice ADDED people/1",
+				"alice UPDATED people/1",
+				"alice DELETED people/1");
+	}
+
+	/**
+	 * A service whose creates return people/3 and whose updates return the given contact.
+	 */
+	private ContactService service(ContactCache cache, Contact updated) {
+		PeopleApiClient client = new PeopleApiClient(null, new ObjectMapper(), new PeopleApiProperties(), null, null, null) {
+			@Override
+			public Contact createContact(String principalName, String accessToken, String jsonBody) {
+				return contact("people/3", "Grace", "Hopper");
+			}
+
+			@Override
+			public Contact updateContact(String principalName, String accessToken, String resourceName,
+										 String updatePersonFields, String jsonBody) {
+				return updated;
+			}
+
+			@Override
+			public void deleteContact(String principalName, String accessToken, String resourceName) {
+			}
+		};
+		return new ContactService(client, cache, new PersonCache(new ContactCacheProperties(), clock),
+				new ContactSyncProperties(), new DuplicateProperties());
+	}
+
+}
@@ -0,0 +1,120 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.najarro.oauth2contacts.service.ContactFixtures.contact;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContactDuplicatesTests {
+
+	private final ContactDuplicates duplicates = new ContactDuplicates("1", 0.88, 200);
+
+	private static List<String> resourceNames(DuplicateGroup group) {
+		return group.getContacts().stream().map(Contact::getResourceName).sorted().toList();
+	}
+
+	@Test
+	void matchesNormalizedEmailsAndPhoneNumbers() {
+		List<DuplicateGroup> groups = duplicates.find(List.of(
+				contact("people/1", "Ada", "Lovelace", "Ada.Lovelace+work@gmail.com", null),
+				contact("people/2", "A", "L", "adalovelace@googlemail.com", null),
+				contact("people/3", "Charles", "Babbage", null, "(555) 555-1234"),
+				contact("people/4", "Charlie", "B", null, "+1 555 555 1234"),
+				contact("people/5", "Grace", "Hopper", "grace@example.com", "555-1234")));
+
+		assertThat(groups).hasSize(2);
+		assertThat(groups).extracting(ContactDuplicatesTests::resourceNames)
+				.containsExactlyInAnyOrder(List.of("people/1", "people/2"), List.of("people/3", "people/4"));
+		assertThat(groups).extracting(DuplicateGroup::getReasons)
+				.containsExactlyInAnyOrder(List.of(ContactDuplicates.EMAIL), List.of(ContactDuplicates.PHONE));
+	}
+
+	@Test
+	void matchesSimilarAndSwappedNamesButNotDifferentPeople() {
+		List<DuplicateGroup> groups = duplicates.find(List.of(
+				contact("people/1", "Jon", "Smyth", null, null),
+				contact("people/2", "John", "Smith", null, null),
+				contact("people/3", "Jane", "Smith", null, null),
+				contact("people/4", "Lovelace", "Ada", null, null),
+				contact("people/5", "Ada", "Lovelace", null, null)));
+
+		assertThat(groups).extracting(ContactDuplicatesTests::resourceNames)
+				.containsExactlyInAnyOrder(List.of("people/1", "people/2"), List.of("people/4", "people/5"));
+	}
+
+	@Test
+	void joinsMatchesTransitivelyAndPutsTheMostCompleteContactFirst() {
+		Contact full = contact("people/3", "Ada", "Lovelace", "ada@example.com", "+44 20 7946 0000");
+		List<DuplicateGroup> groups = duplicates.find(List.of(
+				contact("people/1", null, null, "ada@example.com", null),
+				contact("people/2", "Ada", null, null, "0044 20 7946 0000"),
+				full));
+
+		assertThat(groups).hasSize(1);
+		assertThat(groups.get(0).getSurvivor()).isSameAs(full);
+		assertThat(groups.get(0).getReasons()).containsExactly(ContactDuplicates.EMAIL, ContactDuplicates.PHONE);
+	}
+
+	@Test
+	void phoneNumbersAreNormalizedToE164() {
+		assertThat(duplicates.phoneKey("(555) 555-1234")).isEqualTo("+15555551234");
+		assertThat(duplicates.phoneKey("1-555-555-1234")).isEqualTo("+15555551234");
+		assertThat(duplicates.phoneKey("0044 20 7946 0000")).isEqualTo("+442079460000");
+		assertThat(duplicates.phoneKey("+44 (0)20 7946 0000")).isEqualTo("+4402079460000");
+		assertThat(duplicates.phoneKey("123")).isNull();
+	}
+
+	@Test
+	void mergeSendsOnlyWhatTheDuplicatesAdd() {
+		Contact survivor = contact("people/1", "Ada", "Lovelace", "ada@example.com", "(555) 555-1234");
+		Contact merged = duplicates.merge(survivor, List.of(
+				contact("people/2", "Ada", "L", "ADA@example.com", "+1 555 555 1234"),
+				contact("people/3", null, null, "countess@example.com", null)));
+
+		Map<String, Object> person = ContactPayloads.toUpdatePerson(survivor, merged);
+		assertThat(ContactPayloads.updatePersonFields(person)).isEqualTo("emailAddresses");
+		assertThat(merged.getEtag()).isEqualTo("etag-people/1");
+		assertThat(merged.getEmailAddresses()).extracting(Contact.EmailAddress::getValue)
+				.containsExactly("ada@example.com", "countess@example.com");
+		assertThat(survivor.getEmailAddresses()).hasSize(1);
+
+		Contact unchanged = duplicates.merge(survivor, List.of(contact("people/2", "Ada", "Lovelace", "ada@example.com", null)));
+		assertThat(ContactPayloads.updatePersonFields(ContactPayloads.toUpdatePerson(survivor, unchanged))).isEmpty();
+	}
+
+	@Test
+	void findsPlantedDuplicatesInALargeAddressBook() {
+		Random random = new Random(42);
+		List<Contact> contacts = new ArrayList<>();
+		for (int i = 0; i < 50_000; i++) {
+			contacts.add(contact("people/" + i, randomName(random), randomName(random),
+					"user" + i + "@example.com", String.format("+1 212 %07d", i)));
+		}
+		for (int i = 0; i < 100; i++) {
+			contacts.add(contact("people/copy" + i, null, null, "USER" + i * 400 + "@example.com", null));
+			Contact original = contacts.get(i * 400 + 1);
+			char[] last = original.getLastName().toCharArray();
+			last[last.length - 1] = last[last.length - 1] == 'x' ? 'y' : 'x';
+			contacts.add(contact("people/typo" + i, original.getFirstName(), new String(last), null, null));
+		}
+
+		List<DuplicateGroup> groups = duplicates.find(contacts);
+
+		assertThat(groups).hasSize(200);
+		assertThat(groups).allSatisfy(group -> assertThat(group.getContacts()).hasSize(2));
+	}
+
+	private static String randomName(Random random) {
+		char[] name = new char[5 + random.nextInt(5)];
+		for (int i = 0; i < name.length; i++) {
+			name[i] = (char) ('a' + random.nextInt(26));
+		}
+		return new String(name);
+	}
+}
@@ -0,0 +1,121 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.config.ContactCacheProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static com.najarro.oauth2contacts.service.ContactFixtures.contact;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContactEventsTests {
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "contact-events-test"));
+	private final ContactEvents events = new ContactEvents(
+			new ContactCache(new ContactCacheProperties(), Clock.systemUTC()), executor);
+
+	@AfterEach
+	void stopExecutor() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void writesChangesInOrderOffThePublishingThread() throws InterruptedException {
+		RecordingEmitter page = new RecordingEmitter(null);
+		events.subscribe("alice", page);
+
+		for (int i = 0; i < 10; i++) {
+			events.publish("alice", delta(i));
+		}
+		events.publish("bob", delta(99));
+
+		waitFor(() -> page.threads.size() == 10);
+		assertThat(page.threads).containsOnly("contact-events-test");
+		assertThat(page.completed).isFalse();
+	}
+
+	@Test
+	void slowPageIsDroppedWithoutHoldingUpThePublisher() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingEmitter slow = new RecordingEmitter(release);
+		events.subscribe("alice", slow);
+
+		// The first change is taken off the queue and blocks in send; 256 more fill the queue
+		events.publish("alice", delta(0));
+		assertThat(slow.sent.await(5, TimeUnit.SECONDS)).isTrue();
+		long started = System.nanoTime();
+		for (int i = 1; i <= 256; i++) {
+			events.publish("alice", delta(i));
+		}
+		assertThat(slow.completed).isFalse();
+		assertThat(events.size()).isEqualTo(1);
+
+		events.publish("alice", delta(257));
+		assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(1));
+		assertThat(slow.completed).isTrue();
+		assertThat(events.size()).isZero();
+
+		// Once unblocked, nothing of the dropped backlog is written
+		release.countDown();
+		events.publish("alice", delta(258));
+		executor.shutdown();
+		assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(slow.threads).hasSize(1);
+	}
+
+	private static ContactDelta delta(int i) {
+		return new ContactDelta(ContactDelta.Type.UPDATED, "people/" + i, contact("people/" + i, "First", "Last"));
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+			Thread.sleep(10);
+		}
+		assertThat(condition.getAsBoolean()).isTrue();
+	}
+
+	/**
+	 * Records the threads events are sent on; with a latch, the first send waits for it like a
+	 * page whose connection has stopped reading.
+	 */
+	private static final class RecordingEmitter extends SseEmitter {
+
+		private final CountDownLatch release;
+		private final CountDownLatch sent = new CountDownLatch(1);
+		private final List<String> threads = new CopyOnWriteArrayList<>();
+		private volatile boolean completed;
+
+		RecordingEmitter(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public void send(SseEventBuilder builder) {
+			threads.add(Thread.currentThread().getName());
+			sent.countDown();
+			if (release != null) {
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		@Override
+		public void complete() {
+			completed = true;
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.najarro.oauth2contacts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.najarro.oauth2contacts.model.Contact;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.najarro.oauth2contacts.service.ContactFixtures.contact;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContactExportFormatTests {
+
+	private static Contact withEmailsAndPhone(Contact contact) {
+		Contact.EmailAddress home = new Contact.EmailAddress();
+		home.setValue("ada@home.org");
+		home.setType("home");
+		Contact.EmailAddress work = new Contact.EmailAddress();
+		work.setValue("ada@work.org");
+		work.setType("work");
+		contact.setEmailAddresses(List.of(home, work));
+		Contact.PhoneNumber phone = new Contact.PhoneNumber();
+		phone.setValue("+44 20 7946 0018");
+		phone.setType("mobile");
+		contact.setPhoneNumbers(List.of(phone));
+		return contact;
+	}
+
+	private static String export(ContactExportFormat format, List<Contact> contacts) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		format.write(contacts, out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void csvQuotesOnlyWhatNeedsItAndJoinsMultipleValues() throws IOException {
+		String csv = export(ContactExportFormat.CSV, List.of(
+				withEmailsAndPhone(contact("people/c1", "Ada", "Lovelace")),
+				contact("people/c2", "Grace \"Amazing\"", "Hopper, Jr.")));
+
+		assertThat(csv.split("\r\n")).containsExactly(
+				"Resource Name,Given Name,Family Name,E-mail,E-mail Type,Phone,Phone Type",
+				"people/c1,Ada,Lovelace,ada@home.org ::: ada@work.org,home ::: work,+44 20 7946 0018,mobile",
+				"people/c2,\"Grace \"\"Amazing\"\"\",\"Hopper, Jr.\",,,,");
+	}
+
+	@Test
+	void vCardEscapesTextAndFoldsLongLines() throws IOException {
+		String longName = "A".repeat(100);
+		String vcf = export(ContactExportFormat.VCF, List.of(
+				withEmailsAndPhone(contact("people/c1", "Ada", "Love;lace")),
+				contact("people/c2", longName, null)));
+
+		assertThat(vcf).contains(
+				"BEGIN:VCARD\r\nVERSION:3.0\r\nN:Love\\;lace;Ada;;;\r\nFN:Ada Love\\;lace\r\n",
+				"EMAIL;TYPE=HOME:ada@home.org\r\nEMAIL;TYPE=WORK:ada@work.org\r\nTEL;TYPE=MOBILE:+44 20 7946 0018\r\n",
+				"UID:people/c1\r\nEND:VCARD\r\n");
+		for (String line : vcf.split("\r\n")) {
+			assertThat(line.length()).isLessThanOrEqualTo(76);
+		}
+		assertThat(vcf.replace("\r\n ", "")).contains("FN:" + longName + "\r\n");
+	}
+
+	@Test
+	void ndjsonWritesOneContactPerLineInTheBatchShape() throws IOException {
+		String ndjson = export(ContactExportFormat.NDJSON, List.of(
+				withEmailsAndPhone(contact("people/c1", "Ada", "Lovelace")),
+				contact("people/c2", "Grace", null)));
+
+		String[] lines = ndjson.split("\n");
+		assertThat(lines).hasSize(2);
+		ObjectMapper objectMapper = new ObjectMapper();
+		Contact first = objectMapper.readValue(lines[0], Contact.class);
+		assertThat(first.getResourceName()).isEqualTo("people/c1");
+		assertThat(first.getEtag()).isEqualTo("etag-people/c1");
+		assertThat(first.getEmailAddresses()).extracting(Contact.EmailAddress::getValue).containsExactly("ada@home.org", "ada@work.org");
+		assertThat(first.getPhoneNumbers()).extracting(Contact.PhoneNumber::getType).containsExactly("mobile");
+		assertThat(lines[1]).isEqualTo("{\"resourceName\":\"people/c2\",\"etag\":\"etag-people/c2\",\"firstName\":\"Grace\"}");
+	}
+}
@@ -0,0 +1,69 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Contacts for the service tests. Lists are mutable, since some of the code under test normalizes
+ * contacts in place.
+ */
+final class ContactFixtures {
+
+	private ContactFixtures() {
+	}
+
+	/**
+	 * @return A contact with the given names and the etag "etag-" + resourceName.
+	 */
+	static Contact contact(String resourceName, String firstName, String lastName) {
+		Contact contact = new Contact();
+		contact.setResourceName(resourceName);
+		contact.setEtag(resourceName != null ? "etag-" + resourceName : null);
+		contact.setFirstName(firstName);
+		contact.setLastName(lastName);
+		return contact;
+	}
+
+	/**
+	 * @return A contact with the given names and, where not null, one untyped email address and phone number.
+	 */
+	static Contact contact(String resourceName, String firstName, String lastName, String email, String phone) {
+		Contact contact = contact(resourceName, firstName, lastName);
+		if (email != null) {
+			withEmails(contact, null, email);
+		}
+		if (phone != null) {
+			withPhone(contact, phone);
+		}
+		return contact;
+	}
+
+	static Contact withEtag(Contact contact, String etag) {
+		contact.setEtag(etag);
+		return contact;
+	}
+
+	/**
+	 * Replaces the contact's email addresses, even with none, which a form submits as an empty list.
+	 */
+	static Contact withEmails(Contact contact, String type, String... emails) {
+		List<Contact.EmailAddress> addresses = new ArrayList<>();
+		for (String email : emails) {
+			Contact.EmailAddress address = new Contact.EmailAddress();
+			address.setValue(email);
+			address.setType(type);
+			addresses.add(address);
+		}
+		contact.setEmailAddresses(addresses);
+		return contact;
+	}
+
+	static Contact withPhone(Contact contact, String phone) {
+		Contact.PhoneNumber number = new Contact.PhoneNumber();
+		number.setValue(phone);
+		contact.setPhoneNumbers(new ArrayList<>(List.of(number)));
+		return contact;
+	}
+}
@@ -0,0 +1,102 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.najarro.oauth2contacts.service.ContactFixtures.contact;
+import static com.najarro.oauth2contacts.service.ContactFixtures.withEmails;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContactImportReaderTests {
+
+	private static List<Contact> read(ContactExportFormat format, String content) throws IOException {
+		List<Contact> contacts = new ArrayList<>();
+		try (ContactImportReader reader = ContactImportReader.open(
+				new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), format)) {
+			reader.forEachRemaining(contacts::add);
+		}
+		return contacts;
+	}
+
+	@Test
+	void readsBackWhatTheExportWrites() throws IOException {
+		List<Contact> exported = List.of(
+				withEmails(contact("people/Ada", "Ada", "Love;lace, \"Countess\"", null, "+44 20 7946 0018"), "home", "ada@example.org"),
+				withEmails(contact("people/Grace", "Grace", "Hopper", null, null), null, "grace@example.org"));
+		for (ContactExportFormat format : List.of(ContactExportFormat.CSV, ContactExportFormat.VCF)) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			format.write(exported, out);
+
+			List<Contact> imported = read(format, out.toString(StandardCharsets.UTF_8));
+
+			assertThat(imported).as(format.name()).hasSize(2);
+			assertThat(imported.get(0).getLastName()).as(format.name()).isEqualTo("Love;lace, \"Countess\"");
+			assertThat(imported.get(0).getFirstEmailAddress()).isEqualTo("ada@example.org");
+			assertThat(imported.get(0).getEmailAddresses().get(0).getType()).isEqualTo("home");
+			assertThat(imported.get(0).getFirstPhoneNumber()).isEqualTo("+44 20 7946 0018");
+			assertThat(imported.get(1).getFullName()).isEqualTo("Grace Hopper");
+			assertThat(imported.get(1).getPhoneNumbers()).isNull();
+		}
+	}
+
+	@Test
+	void readsGoogleContactsCsvColumns() throws IOException {
+		String csv = "\uFEFFName,Given Name,Family Name,E-mail 1 - Type,E-mail 1 - Value,E-mail 2 - Type,E-mail 2 - Value,Phone 1 - Type,Phone 1 - Value\n"
+				+ "Ada Lovelace,Ada,Lovelace,* Home,ada@home.org ::: ada@old.org,Work,ada@work.org,Mobile,555-0100\n"
+				+ "\n"
+				+ "\"Grace \"\"Amazing\"\" Hopper\",,,,,,,,\n";
+
+		List<Contact> contacts = read(ContactExportFormat.CSV, csv);
+
+		assertThat(contacts).hasSize(2);
+		assertThat(contacts.get(0).getEmailAddresses()).extracting(Contact.EmailAddress::getValue)
+				.containsExactly("ada@home.org", "ada@old.org", "ada@work.org");
+		assertThat(contacts.get(0).getEmailAddresses()).extracting(Contact.EmailAddress::getType)
+				.containsExactly("* Home", null, "Work");
+		assertThat(contacts.get(0).getFirstPhoneNumber()).isEqualTo("555-0100");
+		assertThat(contacts.get(1).getFirstName()).isEqualTo("Grace \"Amazing\"");
+		assertThat(contacts.get(1).getLastName()).isEqualTo("Hopper");
+	}
+
+	@Test
+	void readsFoldedVCardsOfOtherVersions() throws IOException {
+		String vcf = "BEGIN:VCARD\r\nVERSION:2.1\r\nFN:Ada Lovelace\r\nTEL;CELL;VOICE:+44 20 7946\r\n  0018\r\n"
+				+ "item1.EMAIL;TYPE=INTERNET,WORK:ada@work.org\r\nPHOTO;ENCODING=b:AAAA\r\nEND:VCARD\r\n"
+				+ "BEGIN:VCARD\r\nVERSION:4.0\r\nN:Hopper;Grace;;;\r\nEMAIL;TYPE=\"home\":grace@example.org\r\nEND:VCARD\r\n";
+
+		List<Contact> contacts = read(ContactExportFormat.VCF, vcf);
+
+		assertThat(contacts).hasSize(2);
+		assertThat(contacts.get(0).getFirstName()).isEqualTo("Ada");
+		assertThat(contacts.get(0).getLastName()).isEqualTo("Lovelace");
+		assertThat(contacts.get(0).getFirstPhoneNumber()).isEqualTo("+44 20 7946 0018");
+		assertThat(contacts.get(0).getPhoneNumbers().get(0).getType()).isEqualTo("mobile");
+		assertThat(contacts.get(0).getEmailAddresses().get(0).getType()).isEqualTo("work");
+		assertThat(contacts.get(1).getFullName()).isEqualTo("Grace Hopper");
+		assertThat(contacts.get(1).getEmailAddresses().get(0).getType()).isEqualTo("home");
+	}
+
+	@Test
+	void normalizesAndKeysRecordsForDeduplication() {
+		Contact contact = withEmails(contact("people/ Ada ", " Ada ", null, null, "+1 (555) 555-1234"), "HOME", " ADA@Example.org ");
+		assertThat(ContactImportService.normalize(contact)).isNull();
+		assertThat(contact.getFirstName()).isEqualTo("Ada");
+		assertThat(contact.getResourceName()).isNull();
+		assertThat(contact.getEmailAddresses().get(0).getType()).isEqualTo("home");
+		assertThat(ContactImportService.keys(contact)).containsExactly("email:ada@example.org", "phone:5555551234");
+		assertThat(ContactImportService.keys(withEmails(contact(null, null, null, null, "555 555 1234"), null, "x@y.z")))
+				.contains("phone:5555551234");
+
+		assertThat(ContactImportService.normalize(withEmails(contact("people/Ada", "Ada", null, null, null), null, "not-an-email")))
+				.contains("invalid email address");
+		assertThat(ContactImportService.normalize(withEmails(contact(null, null, " ", null, null), null, " ")))
+				.isEqualTo("no name, email address or phone number");
+	}
+}
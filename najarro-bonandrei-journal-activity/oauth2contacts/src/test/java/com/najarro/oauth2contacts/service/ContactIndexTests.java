@@ -0,0 +1,61 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.najarro.oauth2contacts.service.ContactFixtures.contact;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContactIndexTests {
+
+	private ContactSnapshot snapshot() {
+		ContactSnapshot snapshot = new ContactSnapshot();
+		snapshot.put(contact("people/c1", "Ada", "Lovelace", "ada@analytical.org", "+44 20 7946 0018"));
+		snapshot.put(contact("people/c2", "Adam", "Smith", "adam.smith@example.com", null));
+		snapshot.put(contact("people/c3", "José", "Álvarez", null, "+1 (555) 555-1234"));
+		return snapshot;
+	}
+
+	private static List<String> names(List<Contact> contacts) {
+		return contacts.stream().map(Contact::getResourceName).toList();
+	}
+
+	@Test
+	void ranksExactMatchesBeforePrefixMatches() {
+		assertThat(names(snapshot().search("ada"))).containsExactly("people/c1", "people/c2");
+		assertThat(names(snapshot().search("Ad"))).containsExactlyInAnyOrder("people/c1", "people/c2");
+	}
+
+	@Test
+	void matchesEmailsPhoneDigitsAndAccentsAcrossTokens() {
+		ContactSnapshot snapshot = snapshot();
+
+		assertThat(names(snapshot.search("analytical"))).containsExactly("people/c1");
+		assertThat(names(snapshot.search("adam.smith@ex"))).containsExactly("people/c2");
+		assertThat(names(snapshot.search("555-1234"))).containsExactly("people/c3");
+		assertThat(names(snapshot.search("jose alv"))).containsExactly("people/c3");
+		assertThat(names(snapshot.search("ada smith"))).containsExactly("people/c2");
+		assertThat(names(snapshot.search("ada king"))).isEmpty();
+	}
+
+	@Test
+	void fallsBackToFuzzyMatchingForTypos() {
+		assertThat(names(snapshot().search("lovleace"))).containsExactly("people/c1");
+		assertThat(names(snapshot().search("smiht"))).containsExactly("people/c2");
+		assertThat(names(snapshot().search("xyzzy"))).isEmpty();
+	}
+
+	@Test
+	void removedAndReplacedContactsLeaveNoStaleTerms() {
+		ContactSnapshot snapshot = snapshot();
+		snapshot.put(contact("people/c1", "Augusta", "King", null, null));
+		snapshot.remove("people/c2");
+
+		assertThat(snapshot.search("ada")).isEmpty();
+		assertThat(names(snapshot.search("aug"))).containsExactly("people/c1");
+		assertThat(SearchPage.of("aug", snapshot.search("aug"), 1, 10).getContacts()).isEmpty();
+	}
+
+}
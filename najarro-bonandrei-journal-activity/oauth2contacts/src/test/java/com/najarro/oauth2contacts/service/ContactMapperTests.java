@@ -0,0 +1,111 @@
+package com.najarro.oauth2contacts.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.najarro.oauth2contacts.model.Contact;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContactMapperTests {
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	private JsonParser parser(String json) throws IOException {
+		return jsonFactory.createParser(json.replace('\'', '"'));
+	}
+
+	@Test
+	void mapsPersonAndSkipsUnusedFields() throws IOException {
+		Contact contact = ContactMapper.mapApiToContact(parser("""
+				{'resourceName': 'people/c1', 'etag': '%EgM=',
+				 'photos': [{'url': 'https://example.com/a.png', 'metadata': {'primary': true}}],
+				 'names': [{'displayName': 'Profile', 'metadata': {'source': {'type': 'PROFILE'}}},
+				           {'givenName': 'Ada', 'familyName': 'Lovelace'},
+				           {'givenName': 'Other'}],
+				 'emailAddresses': [{'value': 'ada@example.com', 'type': 'work', 'formattedType': 'Work'}],
+				 'phoneNumbers': [{'value': '+44 20 0000 0000', 'canonicalForm': '+442000000000'}]}
+				"""));
+
+		assertThat(contact.getResourceName()).isEqualTo("people/c1");
+		assertThat(contact.getEtag()).isEqualTo("%EgM=");
+		assertThat(contact.getFullName()).isEqualTo("Ada Lovelace");
+		assertThat(contact.getEmailAddresses()).singleElement()
+				.satisfies(email -> {
+					assertThat(email.getValue()).isEqualTo("ada@example.com");
+					assertThat(email.getType()).isEqualTo("work");
+				});
+		assertThat(contact.getPhoneNumbers()).singleElement()
+				.satisfies(phone -> assertThat(phone.getType()).isNull());
+	}
+
+	@Test
+	void readsPersonVersionFromContactSource() throws IOException {
+		PersonVersion person = ContactMapper.readPersonVersion(parser("""
+				{'resourceName': 'people/c1', 'etag': '%EgM=',
+				 'metadata': {'sources': [{'type': 'PROFILE', 'id': 'p1', 'etag': '#profile'},
+				                          {'type': 'CONTACT', 'id': 'c1', 'etag': '#contact', 'updateTime': '2024-01-01T00:00:00Z'}],
+				              'objectType': 'PERSON'},
+				 'names': [{'givenName': 'Ada'}]}
+				"""));
+
+		assertThat(person.contact().getFirstName()).isEqualTo("Ada");
+		assertThat(person.contact().getEtag()).isEqualTo("%EgM=");
+		assertThat(person.version()).isEqualTo("#contact");
+		assertThat(ContactMapper.readPersonVersion(parser("{'resourceName': 'people/c1', 'etag': '%EgE='}")).version()).isNull();
+	}
+
+	@Test
+	void readsConnectionsPageWithDeletionsAndTokens() throws IOException {
+		ConnectionsPage page = ContactMapper.readConnectionsPage(parser("""
+				{'connections': [
+				   {'resourceName': 'people/c1', 'names': [{'givenName': 'Ada'}]},
+				   {'resourceName': 'people/c2', 'metadata': {'sources': [{'type': 'CONTACT'}], 'deleted': true}}],
+				 'totalPeople': 2,
+				 'nextPageToken': 'p2',
+				 'nextSyncToken': 's1'}
+				"""));
+
+		assertThat(page.getContacts()).extracting(Contact::getResourceName).containsExactly("people/c1");
+		assertThat(page.getDeletedResourceNames()).containsExactly("people/c2");
+		assertThat(page.getNextPageToken()).isEqualTo("p2");
+		assertThat(page.getNextSyncToken()).isEqualTo("s1");
+	}
+
+	@Test
+	void emptyResponseIsAnEmptyPage() throws IOException {
+		ConnectionsPage page = ContactMapper.readConnectionsPage(parser("{}"));
+
+		assertThat(page.getContacts()).isEmpty();
+		assertThat(page.hasNextPage()).isFalse();
+	}
+
+	@Test
+	void readsBatchCreateResponseWithPerPersonErrors() throws IOException {
+		BatchResult result = ContactMapper.readBatchCreateResponse(parser("""
+				{'createdPeople': [
+				   {'httpStatusCode': 200, 'person': {'resourceName': 'people/c1', 'etag': 'e1'}, 'status': {}},
+				   {'httpStatusCode': 400, 'status': {'code': 3, 'message': 'Invalid email'}}]}
+				"""));
+
+		assertThat(result.getSucceeded()).isEqualTo(1);
+		assertThat(result.getContacts()).extracting(Contact::getEtag).containsExactly("e1");
+		assertThat(result.getErrors()).containsExactly("Invalid email");
+	}
+
+	@Test
+	void readsBatchUpdateResponseKeyedByResourceName() throws IOException {
+		BatchResult result = ContactMapper.readBatchUpdateResponse(parser("""
+				{'updateResult': {
+				   'people/c1': {'httpStatusCode': 200, 'person': {'resourceName': 'people/c1', 'etag': 'e2'}},
+				   'people/c2': {'httpStatusCode': 400, 'status': {'code': 9, 'message': 'etag mismatch'}}}}
+				"""));
+
+		assertThat(result.getContacts()).extracting(Contact::getResourceName).containsExactly("people/c1");
+		assertThat(result.getFailed()).isEqualTo(1);
+		assertThat(result.getErrors()).containsExactly("people/c2: etag mismatch");
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.najarro.oauth2contacts.service.ContactFixtures.contact;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContactPageTests {
+
+	private static List<String> names(List<Contact> contacts) {
+		return contacts.stream().map(Contact::getResourceName).toList();
+	}
+
+	@Test
+	void sortsCaseInsensitivelyWithMissingKeysLast() {
+		List<Contact> contacts = List.of(
+				contact("people/1", "bob", null, "Zed@example.com", null),
+				contact("people/2", null, null, "amy@example.com", null),
+				contact("people/3", "Alice", null, null, null),
+				contact("people/4", "alice", null, "bob@example.com", null));
+
+		assertThat(names(ContactSort.NAME.sort(contacts))).containsExactly("people/3", "people/4", "people/1", "people/2");
+		assertThat(names(ContactSort.EMAIL.sort(contacts))).containsExactly("people/2", "people/4", "people/1", "people/3");
+		assertThat(ContactSort.fromParam("Email")).isEqualTo(ContactSort.EMAIL);
+		assertThat(ContactSort.fromParam("phone")).isNull();
+	}
+
+	@Test
+	void cutsPagesFromEitherEnd() {
+		List<Contact> ascending = List.of(
+				contact("people/1", "a", null, null, null),
+				contact("people/2", "b", null, null, null),
+				contact("people/3", "c", null, null, null),
+				contact("people/4", "d", null, null, null),
+				contact("people/5", "e", null, null, null));
+
+		ContactPage first = ContactPage.of(ascending, ContactSort.NAME, false, 0, 2);
+		assertThat(names(first.getContacts())).containsExactly("people/1", "people/2");
+		assertThat(first.getTotal()).isEqualTo(5);
+		assertThat(first.getTotalPages()).isEqualTo(3);
+		assertThat(first.hasNext()).isTrue();
+
+		ContactPage last = ContactPage.of(ascending, ContactSort.NAME, true, 2, 2);
+		assertThat(names(last.getContacts())).containsExactly("people/1");
+		assertThat(last.hasNext()).isFalse();
+		assertThat(names(ContactPage.of(ascending, ContactSort.NAME, true, 0, 2).getContacts()))
+				.containsExactly("people/5", "people/4");
+		assertThat(ContactPage.of(ascending, ContactSort.NAME, false, 9, 2).getContacts()).isEmpty();
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.najarro.oauth2contacts.service.ContactFixtures.contact;
+import static com.najarro.oauth2contacts.service.ContactFixtures.withEmails;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContactPayloadsTests {
+
+	@Test
+	void updateSendsOnlyChangedFields() {
+		Contact original = withEmails(contact("people/c1", "Ada", "Lovelace"), "home", "ada@example.org");
+
+		Map<String, Object> renamed = ContactPayloads.toUpdatePerson(original, withEmails(contact("people/c1", "Ada", "King"), "home", "ada@example.org"));
+		assertThat(renamed).containsOnlyKeys("etag", "names");
+		assertThat(ContactPayloads.updatePersonFields(renamed)).isEqualTo("names");
+
+		Map<String, Object> emailsCleared = ContactPayloads.toUpdatePerson(original, withEmails(contact("people/c1", "Ada", "Lovelace"), "home"));
+		assertThat(emailsCleared).containsOnlyKeys("etag", "emailAddresses");
+		assertThat(emailsCleared.get("emailAddresses")).isEqualTo(List.of());
+	}
+
+	@Test
+	void unchangedUpdateHasNoFieldsToMask() {
+		Contact original = withEmails(contact("people/c1", "Ada", "Lovelace"), "home", "ada@example.org");
+		Contact submitted = withEmails(contact("people/c1", "Ada", "Lovelace"), "home", "ada@example.org", "");
+
+		Map<String, Object> person = ContactPayloads.toUpdatePerson(original, submitted);
+
+		assertThat(ContactPayloads.updatePersonFields(person)).isEmpty();
+	}
+
+	@Test
+	void updateWithoutOriginalSendsEveryField() {
+		Map<String, Object> person = ContactPayloads.toUpdatePerson(null, withEmails(contact("people/c1", "Ada", "Lovelace"), "home"));
+
+		assertThat(ContactPayloads.updatePersonFields(person)).isEqualTo("names,emailAddresses,phoneNumbers");
+	}
+}
@@ -0,0 +1,110 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.config.ContactCacheProperties;
+import com.najarro.oauth2contacts.config.SnapshotStoreProperties;
+import com.najarro.oauth2contacts.model.Contact;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.stream.Stream;
+
+import static com.najarro.oauth2contacts.service.ContactFixtures.contact;
+import static com.najarro.oauth2contacts.service.ContactFixtures.withEmails;
+import static com.najarro.oauth2contacts.service.ContactFixtures.withEtag;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ContactSnapshotStoreTests {
+
+	private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+	@TempDir
+	Path directory;
+
+	private ContactSnapshotStore store(String key) {
+		SnapshotStoreProperties properties = new SnapshotStoreProperties();
+		properties.setEnabled(true);
+		properties.setDirectory(directory);
+		properties.setKey(key);
+		return new ContactSnapshotStore(properties, new SimpleMeterRegistry());
+	}
+
+	@Test
+	void restoresContactsEtagsAndSyncToken() {
+		ContactSnapshotStore store = store(KEY);
+		ContactSnapshot snapshot = new ContactSnapshot();
+		snapshot.put(withEtag(withEmails(contact("people/c1", "Ana", null), "home", "ana@example.com"), "%Eg1"));
+		snapshot.put(withEtag(contact("people/c2", "Bea", null), "%Eg2"));
+		Instant syncedAt = Instant.parse("2026-01-01T10:00:00Z");
+		snapshot.markSynced("sync-1", syncedAt);
+
+		store.save("alice", snapshot);
+		ContactSnapshot restored = store.load("alice");
+
+		assertThat(restored.getSyncToken()).isEqualTo("sync-1");
+		assertThat(restored.getSyncedAt()).isEqualTo(syncedAt);
+		assertThat(restored.getContacts()).extracting(Contact::getResourceName, Contact::getEtag, Contact::getFirstName, Contact::getFirstEmailAddress)
+				.containsExactly(
+						tuple("people/c1", "%Eg1", "Ana", "ana@example.com"),
+						tuple("people/c2", "%Eg2", "Bea", null));
+		assertThat(restored.getContacts().get(1).getEmailAddresses()).isNull();
+		assertThat(store.load("bob")).isNull();
+	}
+
+	@Test
+	void rejectsFilesOfOtherUsersTamperedFilesAndOtherKeys() throws Exception {
+		ContactSnapshotStore store = store(KEY);
+		ContactSnapshot snapshot = new ContactSnapshot();
+		snapshot.put(withEtag(withEmails(contact("people/c1", "Ana", null), "home", "ana@example.com"), "%Eg1"));
+		snapshot.markSynced("sync-1", Instant.now());
+		store.save("alice", snapshot);
+		Path file;
+		try (Stream<Path> files = Files.list(directory)) {
+			file = files.findFirst().orElseThrow();
+		}
+		assertThat(Files.readString(file, StandardCharsets.ISO_8859_1)).doesNotContain("ana@example.com");
+
+		store.save("bob", new ContactSnapshot());
+		try (Stream<Path> files = Files.list(directory)) {
+			Path bob = files.filter(path -> !path.equals(file)).findFirst().orElseThrow();
+			Files.copy(file, bob, StandardCopyOption.REPLACE_EXISTING);
+		}
+		assertThat(store.load("bob")).isNull();
+
+		byte[] bytes = Files.readAllBytes(file);
+		assertThat(store(Base64.getEncoder().encodeToString(new byte[16])).load("alice")).isNull();
+		bytes[bytes.length - 1] ^= 1;
+		Files.write(file, bytes);
+		assertThat(store.load("alice")).isNull();
+	}
+
+	@Test
+	void cacheWritesChangedSnapshotsAndRestoresThemAfterARestart() {
+		ContactCacheProperties properties = new ContactCacheProperties();
+		Clock clock = Clock.fixed(Instant.parse("2026-01-01T10:00:00Z"), ZoneOffset.UTC);
+		ContactCache cache = new ContactCache(properties, clock, store(KEY), null);
+		ContactSnapshot snapshot = new ContactSnapshot();
+		snapshot.put(withEtag(contact("people/c1", "Ana", null), "%Eg1"));
+		snapshot.markSynced("sync-1", clock.instant());
+		cache.put("alice", snapshot);
+		cache.flush();
+
+		ContactCache restarted = new ContactCache(properties, clock, store(KEY), null);
+		ContactSnapshot restored = restarted.get("alice");
+		assertThat(restored).isNotNull();
+		assertThat(restored.getSyncToken()).isEqualTo("sync-1");
+		assertThat(restarted.get("alice")).isSameAs(restored);
+
+		restarted.invalidate("alice");
+		assertThat(new ContactCache(properties, clock, store(KEY), null).get("alice")).isNull();
+	}
+}
@@ -0,0 +1,55 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.model.Contact;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContactStreamTests {
+
+	private static ConnectionsPage page(String nextPageToken, String... resourceNames) {
+		List<Contact> contacts = new ArrayList<>();
+		for (String resourceName : resourceNames) {
+			Contact contact = new Contact();
+			contact.setResourceName(resourceName);
+			contacts.add(contact);
+		}
+		return new ConnectionsPage(contacts, nextPageToken);
+	}
+
+	@Test
+	void followsNextPageTokenAcrossAllPages() {
+		AtomicInteger fetches = new AtomicInteger();
+		ContactStream stream = new ContactStream(page("p2", "people/1", "people/2"), token -> {
+			fetches.incrementAndGet();
+			return "p2".equals(token) ? page("p3", "people/3") : page(null, "people/4");
+		}, Runnable::run);
+
+		List<String> names = new ArrayList<>();
+		for (Contact contact : stream) {
+			names.add(contact.getResourceName());
+		}
+
+		assertThat(names).containsExactly("people/1", "people/2", "people/3", "people/4");
+		assertThat(fetches).hasValue(2);
+	}
+
+	@Test
+	void emptyOnlyWhenFirstPageIsEmptyAndLast() {
+		assertThat(new ContactStream(page(null), token -> null, Runnable::run).isEmpty()).isTrue();
+		assertThat(new ContactStream(page("p2"), token -> page(null, "people/1"), Runnable::run).isEmpty()).isFalse();
+	}
+
+	@Test
+	void canOnlyBeIteratedOnce() {
+		ContactStream stream = new ContactStream(page(null, "people/1"), token -> null, Runnable::run);
+		stream.iterator();
+		assertThatThrownBy(stream::iterator).isInstanceOf(IllegalStateException.class);
+	}
+
+}
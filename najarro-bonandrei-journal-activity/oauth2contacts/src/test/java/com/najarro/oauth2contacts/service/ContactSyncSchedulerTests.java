@@ -0,0 +1,39 @@
+package com.najarro.oauth2contacts.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContactSyncSchedulerTests {
+
+	private static final Duration INTERVAL = Duration.ofSeconds(30);
+	private static final Instant DUE = Instant.parse("2025-06-01T00:00:00Z");
+
+	@Test
+	void spreadsUsersAcrossTheInterval() {
+		long[] perSecond = new long[30];
+		IntStream.range(0, 3000).forEach(user -> {
+			Duration offset = ContactSyncScheduler.offset("user-" + user, INTERVAL);
+			assertThat(offset).isGreaterThanOrEqualTo(Duration.ZERO).isLessThan(INTERVAL);
+			perSecond[(int) offset.toSeconds()]++;
+		});
+
+		// 100 per second on average; no second gets a pile-up
+		assertThat(Arrays.stream(perSecond).boxed().toList()).allSatisfy(count -> assertThat(count).isBetween(50L, 150L));
+		assertThat(ContactSyncScheduler.offset("alice", INTERVAL)).isEqualTo(ContactSyncScheduler.offset("alice", INTERVAL));
+	}
+
+	@Test
+	void nextDueKeepsTheUsersSlot() {
+		assertThat(ContactSyncScheduler.nextDue(DUE, DUE.plusSeconds(2), INTERVAL)).isEqualTo(DUE.plusSeconds(30));
+		// A refresh that ran past one or more slots skips them instead of running back to back
+		assertThat(ContactSyncScheduler.nextDue(DUE, DUE.plusSeconds(30), INTERVAL)).isEqualTo(DUE.plusSeconds(60));
+		assertThat(ContactSyncScheduler.nextDue(DUE, DUE.plusSeconds(95), INTERVAL)).isEqualTo(DUE.plusSeconds(120));
+	}
+
+}
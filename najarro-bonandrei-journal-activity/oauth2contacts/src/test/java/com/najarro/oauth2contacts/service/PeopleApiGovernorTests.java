@@ -0,0 +1,159 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.config.GovernorProperties;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the governor against a local HTTP stub that answers with a scripted sequence of statuses.
+ */
+class PeopleApiGovernorTests {
+
+	private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger requests = new AtomicInteger();
+	private final RestTemplate restTemplate = new RestTemplate();
+	private HttpServer server;
+	private String url;
+
+	@BeforeEach
+	void startStub() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/v1/people/me", exchange -> {
+			requests.incrementAndGet();
+			Integer status = statuses.poll();
+			int code = status != null ? status : 200;
+			byte[] body = (code == 200 ? "ok" : "{\"error\": {\"code\": " + code + "}}").getBytes(StandardCharsets.UTF_8);
+			if (code == 429) {
+				exchange.getResponseHeaders().add("Retry-After", "1");
+			}
+			exchange.sendResponseHeaders(code, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/people/me";
+	}
+
+	@AfterEach
+	void stopStub() {
+		server.stop(0);
+	}
+
+	private PeopleApiGovernor governor(int maxRetries, int failureThreshold) {
+		return governor(maxRetries, failureThreshold, Duration.ofSeconds(30));
+	}
+
+	private PeopleApiGovernor governor(int maxRetries, int failureThreshold, Duration openDuration) {
+		GovernorProperties properties = new GovernorProperties();
+		properties.setMaxRetries(maxRetries);
+		properties.setFailureThreshold(failureThreshold);
+		properties.setOpenDuration(openDuration);
+		properties.setInitialBackoff(Duration.ofMillis(1));
+		properties.setMaxBackoff(Duration.ofSeconds(5));
+		properties.setUserBurst(100);
+		return new PeopleApiGovernor(properties, new SimpleMeterRegistry());
+	}
+
+	private String get(PeopleApiGovernor governor, boolean idempotent) {
+		return governor.execute("get", "user", idempotent, () -> restTemplate.getForObject(url, String.class));
+	}
+
+	@Test
+	void retries429AfterWaitingOutRetryAfter() {
+		statuses.add(429);
+		PeopleApiGovernor governor = governor(3, 5);
+
+		long started = System.nanoTime();
+		assertThat(get(governor, true)).isEqualTo("ok");
+
+		assertThat(requests).hasValue(2);
+		assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofMillis(950));
+	}
+
+	@Test
+	void doesNotRetryServerErrorsOfNonIdempotentCalls() {
+		statuses.add(503);
+		PeopleApiGovernor governor = governor(3, 5);
+
+		assertThatThrownBy(() -> get(governor, false)).isInstanceOf(HttpServerErrorException.ServiceUnavailable.class);
+		assertThat(requests).hasValue(1);
+	}
+
+	@Test
+	void opensCircuitAfterRepeatedFailuresAndFailsFast() {
+		for (int i = 0; i < 4; i++) {
+			statuses.add(500);
+		}
+		PeopleApiGovernor governor = governor(1, 2);
+
+		assertThatThrownBy(() -> get(governor, true)).isInstanceOf(HttpServerErrorException.class);
+		assertThatThrownBy(() -> get(governor, true)).isInstanceOf(HttpServerErrorException.class);
+		assertThat(requests).hasValue(4);
+
+		assertThatThrownBy(() -> get(governor, true)).isInstanceOf(PeopleApiUnavailableException.class);
+		assertThat(requests).hasValue(4);
+	}
+
+	@Test
+	void clientErrorsAreNotRetried() {
+		statuses.add(404);
+		PeopleApiGovernor governor = governor(3, 1);
+
+		assertThatThrownBy(() -> get(governor, true)).isInstanceOf(HttpClientErrorException.NotFound.class);
+		assertThat(get(governor, true)).isEqualTo("ok");
+		assertThat(requests).hasValue(2);
+	}
+
+	@Test
+	void halfOpenTrialThatFailsUnexpectedlyDoesNotWedgeTheBreaker() throws InterruptedException {
+		statuses.add(500);
+		PeopleApiGovernor governor = governor(0, 1, Duration.ofMillis(20));
+
+		assertThatThrownBy(() -> get(governor, true)).isInstanceOf(HttpServerErrorException.class);
+		Thread.sleep(30);
+		assertThatThrownBy(() -> governor.execute("get", "user", true, () -> {
+			throw new IllegalStateException("mapping failed");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(get(governor, true)).isEqualTo("ok");
+	}
+
+	@Test
+	void userRateRecoversAfter429() {
+		statuses.add(429);
+		PeopleApiGovernor governor = governor(3, 5);
+
+		assertThat(get(governor, true)).isEqualTo("ok");
+		double throttled = governor.userRequestsPerMinute("user");
+		assertThat(throttled).isLessThan(90);
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(get(governor, true)).isEqualTo("ok");
+		}
+		assertThat(governor.userRequestsPerMinute("user")).isGreaterThan(throttled);
+		for (int i = 0; i < 20; i++) {
+			get(governor, true);
+		}
+		assertThat(governor.userRequestsPerMinute("user")).isEqualTo(90);
+	}
+
+}
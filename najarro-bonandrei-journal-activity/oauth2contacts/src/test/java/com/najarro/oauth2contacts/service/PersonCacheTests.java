@@ -0,0 +1,152 @@
+package com.najarro.oauth2contacts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.najarro.oauth2contacts.config.ContactCacheProperties;
+import com.najarro.oauth2contacts.config.ContactSyncProperties;
+import com.najarro.oauth2contacts.config.DuplicateProperties;
+import com.najarro.oauth2contacts.config.PeopleApiProperties;
+import com.najarro.oauth2contacts.model.Contact;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.najarro.oauth2contacts.service.ContactFixtures.contact;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The edit form's per-person cache, on its own and as {@link ContactService#getContact} uses it
+ * for a user whose contacts are not cached.
+ */
+class PersonCacheTests {
+
+	private final MutableClock clock = new MutableClock();
+	private final ContactCacheProperties properties = new ContactCacheProperties();
+	private final List<String> calls = new ArrayList<>();
+	private String version = "v1";
+	private RuntimeException metadataFailure;
+
+	private PersonCache cache() {
+		properties.setMaxPersons(2);
+		properties.setTtl(Duration.ofMinutes(10));
+		properties.setSyncInterval(Duration.ofSeconds(30));
+		return new PersonCache(properties, clock);
+	}
+
+	@Test
+	void entryIsFreshWithinTheSyncIntervalAndKeptUntilTheTtl() {
+		PersonCache cache = cache();
+		cache.put("alice", new PersonVersion(contact("people/1", "Ada", "Lovelace"), "v1"));
+
+		PersonCache.Entry entry = cache.get("alice", "people/1");
+		assertThat(cache.isFresh(entry)).isTrue();
+		clock.advance(Duration.ofSeconds(31));
+		assertThat(cache.isFresh(entry)).isFalse();
+
+		cache.revalidated("alice", entry);
+		assertThat(cache.isFresh(cache.get("alice", "people/1"))).isTrue();
+		clock.advance(Duration.ofMinutes(11));
+		assertThat(cache.get("alice", "people/1")).isNull();
+	}
+
+	@Test
+	void keepsOnlyVersionedPeopleAndEvictsLeastRecentlyUsed() {
+		PersonCache cache = cache();
+		cache.put("alice", new PersonVersion(contact("people/0", "No", "Version"), null));
+		cache.put("alice", new PersonVersion(contact("people/1", "Ada", "Lovelace"), "v1"));
+		cache.put("alice", new PersonVersion(contact("people/2", "Alan", "Turing"), "v1"));
+		cache.get("alice", "people/1");
+		cache.put("bob", new PersonVersion(contact("people/1", "Grace", "Hopper"), "v1"));
+
+		assertThat(cache.get("alice", "people/0")).isNull();
+		assertThat(cache.get("alice", "people/1")).isNotNull();
+		assertThat(cache.get("alice", "people/2")).isNull();
+		assertThat(cache.get("bob", "people/1").getContact().getFirstName()).isEqualTo("Grace");
+
+		cache.evict("alice", "people/1");
+		assertThat(cache.get("alice", "people/1")).isNull();
+	}
+
+	@Test
+	void getContactRevalidatesWithAMetadataReadAndRefetchesOnlyOnANewVersion() {
+		ContactService service = service(cache());
+
+		assertThat(service.getContact("alice", "token", "people/1").getFirstName()).isEqualTo("Ada-v1");
+		clock.advance(Duration.ofSeconds(10));
+		assertThat(service.getContact("alice", "token", "people/1").getFirstName()).isEqualTo("Ada-v1");
+		assertThat(calls).containsExactly("get");
+
+		clock.advance(Duration.ofSeconds(31));
+		assertThat(service.getContact("alice", "token", "people/1").getFirstName()).isEqualTo("Ada-v1");
+		assertThat(calls).containsExactly("get", "metadata");
+		// Revalidated, so fresh for another interval
+		assertThat(service.getContact("alice", "token", "people/1").getFirstName()).isEqualTo("Ada-v1");
+		assertThat(calls).containsExactly("get", "metadata");
+
+		clock.advance(Duration.ofSeconds(31));
+		version = "v2";
+		assertThat(service.getContact("alice", "token", "people/1").getFirstName()).isEqualTo("Ada-v2");
+		assertThat(calls).containsExactly("get", "metadata", "metadata", "get");
+	}
+
+	@Test
+	void getContactServesTheStaleEntryWhileGoogleIsUnavailable() {
+		ContactService service = service(cache());
+		service.getContact("alice", "token", "people/1");
+
+		clock.advance(Duration.ofSeconds(31));
+		version = "v2";
+		metadataFailure = new PeopleApiUnavailableException("People API is unavailable (circuit open); try again shortly");
+		assertThat(service.getContact("alice", "token", "people/1").getFirstName()).isEqualTo("Ada-v1");
+		assertThat(calls).containsExactly("get", "metadata");
+	}
+
+	@Test
+	void writesEvictTheEntry() {
+		ContactService service = service(cache());
+		service.getContact("alice", "token", "people/1");
+
+		service.updateContact("alice", "token", "people/1", "names", "{}");
+		assertThat(service.getContact("alice", "token", "people/1").getFirstName()).isEqualTo("Ada-v1");
+		assertThat(calls).containsExactly("get", "update", "get");
+
+		service.deleteContact("alice", "token", "people/1");
+		assertThat(service.getContact("alice", "token", "people/1")).isNotNull();
+		assertThat(calls).containsExactly("get", "update", "get", "delete", "get");
+	}
+
+	private ContactService service(PersonCache personCache) {
+		PeopleApiClient client = new PeopleApiClient(null, new ObjectMapper(), new PeopleApiProperties(), null, null, null) {
+			@Override
+			public PersonVersion getPersonVersion(String principalName, String accessToken, String resourceName) {
+				calls.add("get");
+				return new PersonVersion(contact(resourceName, "Ada-" + version, "Lovelace"), version);
+			}
+
+			@Override
+			public String getPersonVersionOnly(String principalName, String accessToken, String resourceName) {
+				calls.add("metadata");
+				if (metadataFailure != null) {
+					throw metadataFailure;
+				}
+				return version;
+			}
+
+			@Override
+			public Contact updateContact(String principalName, String accessToken, String resourceName,
+										 String updatePersonFields, String jsonBody) {
+				calls.add("update");
+				return contact(resourceName, "Ada", "Lovelace");
+			}
+
+			@Override
+			public void deleteContact(String principalName, String accessToken, String resourceName) {
+				calls.add("delete");
+			}
+		};
+		return new ContactService(client, new ContactCache(properties, clock), personCache,
+				new ContactSyncProperties(), new DuplicateProperties());
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.najarro.oauth2contacts.service;
+
+import com.najarro.oauth2contacts.config.ContactCacheProperties;
+import com.najarro.oauth2contacts.model.Contact;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SharedContactSnapshotsTests {
+
+	private final Clock clock = Clock.fixed(Instant.parse("2026-01-01T10:00:00Z"), ZoneOffset.UTC);
+	private final InMemorySharedStore store = new InMemorySharedStore(clock);
+	private final ContactCacheProperties properties = new ContactCacheProperties();
+	private final AesGcm aead = AesGcm.withRandomKey();
+
+	private ContactCache node() {
+		return new ContactCache(properties, clock, null, new SharedContactSnapshots(store, "test:", Duration.ofMinutes(30), aead));
+	}
+
+	private static ContactSnapshot snapshot(String syncToken, String... names) {
+		ContactSnapshot snapshot = new ContactSnapshot();
+		for (int i = 0; i < names.length; i++) {
+			Contact contact = new Contact();
+			contact.setResourceName("people/c" + i);
+			contact.setEtag("%Eg" + i);
+			contact.setFirstName(names[i]);
+			snapshot.put(contact);
+		}
+		snapshot.markSynced(syncToken, Instant.parse("2026-01-01T09:59:00Z"));
+		return snapshot;
+	}
+
+	@Test
+	void nodeServesSnapshotSharedByAnotherNode() {
+		ContactCache first = node();
+		ContactCache second = node();
+		first.put("alice", snapshot("sync-1", "Ana", "Bea"));
+		assertThat(second.get("alice")).isNull();
+
+		first.share();
+
+		ContactSnapshot shared = second.get("alice");
+		assertThat(shared.getSyncToken()).isEqualTo("sync-1");
+		assertThat(shared.getContacts()).extracting(Contact::getFirstName).containsExactly("Ana", "Bea");
+		assertThat(shared.get("people/c1").getEtag()).isEqualTo("%Eg1");
+	}
+
+	@Test
+	void sharingAChangeDropsOtherNodesCopies() {
+		ContactCache first = node();
+		ContactCache second = node();
+		first.put("alice", snapshot("sync-1", "Ana"));
+		first.share();
+		ContactSnapshot before = second.get("alice");
+		// Reading a shared copy doesn't share it back
+		second.share();
+		assertThat(first.get("alice")).isNotNull();
+
+		Contact renamed = new Contact();
+		renamed.setResourceName("people/c0");
+		renamed.setEtag("%Eg9");
+		renamed.setFirstName("Anna");
+		first.get("alice").put(renamed);
+		first.share();
+
+		ContactSnapshot after = second.get("alice");
+		assertThat(after).isNotSameAs(before);
+		assertThat(after.get("people/c0").getFirstName()).isEqualTo("Anna");
+
+		second.invalidate("alice");
+		assertThat(first.get("alice")).isNull();
+		assertThat(node().get("alice")).isNull();
+	}
+
+	@Test
+	void sharedSnapshotsAreEncryptedAndBoundToTheirUser() {
+		ContactCache first = node();
+		first.put("alice", snapshot("sync-1", "Ana"));
+		first.share();
+
+		byte[] stored = store.get("test:snapshot:alice");
+		assertThat(new String(stored, StandardCharsets.ISO_8859_1)).doesNotContain("Ana").doesNotContain("sync-1");
+
+		// A copy moved under another user's key doesn't decrypt
+		store.put("test:snapshot:mallory", stored, Duration.ofMinutes(30));
+		assertThat(node().get("mallory")).isNull();
+		assertThat(node().get("alice").getSyncToken()).isEqualTo("sync-1");
+	}
+}
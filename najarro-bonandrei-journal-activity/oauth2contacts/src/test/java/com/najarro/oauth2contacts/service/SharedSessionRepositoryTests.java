@@ -0,0 +1,144 @@
+package com.najarro.oauth2contacts.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.session.MapSession;
+import org.springframework.session.events.AbstractSessionEvent;
+import org.springframework.session.events.SessionDeletedEvent;
+import org.springframework.session.events.SessionExpiredEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SharedSessionRepositoryTests {
+
+	private final MutableClock clock = new MutableClock();
+	private final InMemorySharedStore store = new InMemorySharedStore(clock);
+	private final List<AbstractSessionEvent> events = new ArrayList<>();
+
+	private SharedSessionRepository node() {
+		return new SharedSessionRepository(store, "test:", Duration.ofMinutes(30),
+				event -> events.add((AbstractSessionEvent) event), clock);
+	}
+
+	@Test
+	void sessionSavedOnOneNodeIsServedByAnother() {
+		SharedSessionRepository first = node();
+		SharedSessionRepository second = node();
+		MapSession session = first.createSession();
+		session.setLastAccessedTime(clock.instant());
+		session.setAttribute("greeting", "hello");
+		session.setAttribute("roles", new ArrayList<>(List.of("USER")));
+		first.save(session);
+
+		MapSession found = second.findById(session.getId());
+		assertThat(found.<String>getAttribute("greeting")).isEqualTo("hello");
+		assertThat(found.<List<String>>getAttribute("roles")).containsExactly("USER");
+		assertThat(found.getMaxInactiveInterval()).isEqualTo(Duration.ofMinutes(30));
+
+		// A new id on login replaces the old one
+		String originalId = found.getId();
+		found.changeSessionId();
+		second.save(found);
+		assertThat(first.findById(originalId)).isNull();
+		assertThat(first.findById(found.getId())).isNotNull();
+
+		second.deleteById(found.getId());
+		assertThat(first.findById(found.getId())).isNull();
+		assertThat(events).singleElement().isInstanceOf(SessionDeletedEvent.class);
+	}
+
+	@Test
+	void expiredSessionIsReportedByTheNodeThatSawIt() {
+		SharedSessionRepository first = node();
+		MapSession session = first.createSession();
+		session.setLastAccessedTime(clock.instant());
+		first.save(session);
+
+		clock.advance(Duration.ofMinutes(20));
+		MapSession used = node().findById(session.getId());
+		used.setLastAccessedTime(clock.instant());
+		node().save(used);
+		clock.advance(Duration.ofMinutes(20));
+		first.cleanUpExpiredSessions();
+		assertThat(events).isEmpty();
+
+		clock.advance(Duration.ofMinutes(20));
+		first.cleanUpExpiredSessions();
+		assertThat(events).singleElement().isInstanceOf(SessionExpiredEvent.class)
+				.extracting(AbstractSessionEvent::getSessionId).isEqualTo(session.getId());
+	}
+
+	@Test
+	void authorizedClientRoundTripsThroughTheStore() {
+		ClientRegistration google = ClientRegistration.withRegistrationId("google")
+				.clientId("id")
+				.clientSecret("secret")
+				.authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+				.redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+				.authorizationUri("https://accounts.example.com/auth")
+				.tokenUri("https://accounts.example.com/token")
+				.build();
+		SharedAuthorizedClientService service = new SharedAuthorizedClientService(store, "test:", Duration.ofHours(1),
+				new InMemoryClientRegistrationRepository(google), AesGcm.withRandomKey());
+		Instant issuedAt = Instant.parse("2026-01-01T10:00:00Z");
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access",
+				issuedAt, issuedAt.plus(Duration.ofHours(1)), Set.of("email", "profile"));
+		service.saveAuthorizedClient(new OAuth2AuthorizedClient(google, "alice", accessToken, new OAuth2RefreshToken("refresh", issuedAt)),
+				new TestingAuthenticationToken("alice", null));
+
+		OAuth2AuthorizedClient loaded = service.loadAuthorizedClient("google", "alice");
+		assertThat(loaded.getClientRegistration()).isSameAs(google);
+		assertThat(loaded.getAccessToken().getTokenValue()).isEqualTo("access");
+		assertThat(loaded.getAccessToken().getExpiresAt()).isEqualTo(issuedAt.plus(Duration.ofHours(1)));
+		assertThat(loaded.getAccessToken().getScopes()).containsExactlyInAnyOrder("email", "profile");
+		assertThat(loaded.getRefreshToken().getTokenValue()).isEqualTo("refresh");
+		assertThat(new String(store.get("test:client:google:alice"), StandardCharsets.ISO_8859_1))
+				.doesNotContain("access").doesNotContain("refresh");
+		OAuth2AuthorizedClient other = service.loadAuthorizedClient("google", "bob");
+		assertThat(other).isNull();
+
+		service.removeAuthorizedClient("google", "alice");
+		OAuth2AuthorizedClient removed = service.loadAuthorizedClient("google", "alice");
+		assertThat(removed).isNull();
+	}
+
+	private static final class MutableClock extends Clock {
+
+		private Instant now = Instant.parse("2026-01-01T10:00:00Z");
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
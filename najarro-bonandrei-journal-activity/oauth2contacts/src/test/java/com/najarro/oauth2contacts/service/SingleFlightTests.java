@@ -0,0 +1,91 @@
+package com.najarro.oauth2contacts.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTests {
+
+	@Test
+	void concurrentCallersWithTheSameKeyShareOneCall() throws Exception {
+		SingleFlight<String> singleFlight = new SingleFlight<>();
+		AtomicInteger calls = new AtomicInteger();
+		AtomicInteger coalesced = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		int callers = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(callers);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < callers; i++) {
+				results.add(executor.submit(() -> singleFlight.execute("user|/people/c1", () -> {
+					calls.incrementAndGet();
+					await(release);
+					return "person";
+				}, coalesced::incrementAndGet)));
+			}
+			// Let every caller reach the single flight before the leader's call completes
+			while (coalesced.get() < callers - 1) {
+				Thread.onSpinWait();
+			}
+			release.countDown();
+			for (Future<String> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("person");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(calls).hasValue(1);
+		assertThat(coalesced).hasValue(callers - 1);
+		assertThat(singleFlight.inFlight()).isZero();
+	}
+
+	@Test
+	void failuresAreSharedAndNotRemembered() throws Exception {
+		SingleFlight<String> singleFlight = new SingleFlight<>();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+				started.countDown();
+				await(release);
+				throw new IllegalStateException("upstream failed");
+			}, () -> {
+			}));
+			started.await(5, TimeUnit.SECONDS);
+			AtomicInteger coalesced = new AtomicInteger();
+			Future<String> follower = Executors.newVirtualThreadPerTaskExecutor()
+					.submit(() -> singleFlight.execute("key", () -> "unused", coalesced::incrementAndGet));
+			while (coalesced.get() == 0) {
+				Thread.onSpinWait();
+			}
+			release.countDown();
+			assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).cause()
+					.isInstanceOf(IllegalStateException.class)
+					.hasMessage("upstream failed");
+			assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(singleFlight.execute("key", () -> "fresh", () -> {
+		})).isEqualTo("fresh");
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,69 @@
+#!/usr/bin/env bash
+# Compares startup time and resident memory of a Spring Boot module across its builds:
+# the plain jar (the baseline), the same jar with its AOT-generated code, the CDS archive, and
+# the native executable, each where it has been built. Run through a module's startup-report
+# profile, e.g. mvn -Paot,cds,startup-report verify, or directly:
+#
+#   ./startup-report.sh oauth2contacts/target/oauth2contacts-0.0.1-SNAPSHOT.jar [native executable]
+#
+# Every variant is started RUNS times (default 3) with startup.report.enabled=true and
+# startup.report.exit=true, and the median of the "Startup report" lines the applications log
+# (see StartupReport) is shown. AOT and native builds only log it when they were built with
+# startup.report.enabled=true, as the startup-report profile does.
+set -euo pipefail
+
+jar=${1:?usage: startup-report.sh <application jar> [native executable]}
+native=${2:-}
+runs=${RUNS:-3}
+java=${JAVA_HOME:+$JAVA_HOME/bin/}java
+jar_tool=${JAVA_HOME:+$JAVA_HOME/bin/}jar
+target=$(dirname "$jar")
+cds_jar="$target/cds/$(basename "$jar")"
+cds_archive="$target/cds/application.jsa"
+
+# Placeholder credentials; the report only needs the application context, not a real login
+app_args=(--server.port=0 --startup.report.enabled=true --startup.report.exit=true
+  --spring.security.oauth2.client.registration.google.client-id=startup-report
+  --spring.security.oauth2.client.registration.google.client-secret=startup-report
+  --spring.security.oauth2.client.registration.github.client-id=startup-report
+  --spring.security.oauth2.client.registration.github.client-secret=startup-report)
+
+aot=false
+if "$jar_tool" tf "$jar" | grep -q '__ApplicationContextInitializer'; then
+  aot=true
+fi
+
+# Prints "<ready ms> <rss MB> <peak MB>" for the median run of the given command
+measure() {
+  local results=()
+  for ((i = 0; i < runs; i++)); do
+    local line
+    line=$("$@" "${app_args[@]}" 2>&1 | grep -m1 'Startup report:' || true)
+    if [[ -z $line ]]; then
+      echo "failed"
+      return
+    fi
+    # Startup report: ready in 1234 ms, RSS 210 MB (peak 215 MB), mode jvm
+    results+=("$(sed -E 's/.*ready in ([0-9]+) ms, RSS ([^ ]+) MB \(peak ([^ ]+) MB\).*/\1 \2 \3/' <<<"$line")")
+  done
+  printf '%s\n' "${results[@]}" | sort -n | sed -n "$(((runs + 1) / 2))p"
+}
+
+row() {
+  local name=$1
+  shift
+  read -r ready rss peak <<<"$(measure "$@")"
+  printf '%-14s %10s %8s %8s\n' "$name" "$ready" "${rss:-}" "${peak:-}"
+}
+
+printf '%-14s %10s %8s %8s\n' "build" "ready ms" "RSS MB" "peak MB"
+row "jar" "$java" -jar "$jar"
+if $aot; then
+  row "jar+aot" "$java" -Dspring.aot.enabled=true -jar "$jar"
+fi
+if [[ -f $cds_archive && -f $cds_jar ]]; then
+  row "cds$($aot && echo +aot)" "$java" -XX:SharedArchiveFile="$cds_archive" -Dspring.aot.enabled=$aot -jar "$cds_jar"
+fi
+if [[ -n $native && -x $native ]]; then
+  row "native" "$native"
+fi